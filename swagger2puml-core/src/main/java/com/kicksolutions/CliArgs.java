@@ -19,8 +19,10 @@ public class CliArgs {
         parsedCliArguments.clear();
             
         for(int i=0; i < args.length; i++) {
-            if(args[i].startsWith("-") ){
+            // a lone "-" is a value (stdin/stdout), never an option
+            if(args[i].startsWith("-") && args[i].length() > 1 && i + 1 < args.length){
             	parsedCliArguments.put(args[i], args[i+1]);
+            	i++;
             }
         }
     }
@@ -45,4 +47,22 @@ public class CliArgs {
     		return parsedCliArguments.get(argument);
     	}
     }
+
+    /**
+     * Values of an option that takes several arguments, e.g. -diff old new.
+     * 
+     * @param argument
+     * @param count
+     * @return the values or null when the option or any of its values is missing
+     */
+    public String[] getArgumentValues(String argument, int count) {
+    	for(int i=0; i < args.length; i++) {
+    		if(args[i].equals(argument) && i + count < args.length){
+    			String[] values = new String[count];
+    			System.arraycopy(args, i + 1, values, 0, count);
+    			return values;
+    		}
+    	}
+    	return null;
+    }
 }
\ No newline at end of file
@@ -1,11 +1,22 @@
 package com.kicksolutions.swagger;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Logger;
 
 import org.apache.commons.lang3.StringUtils;
 
 import com.kicksolutions.CliArgs;
+import com.kicksolutions.swagger.plantuml.AdmissionController;
+import com.kicksolutions.swagger.plantuml.DiagramFormat;
+import com.kicksolutions.swagger.plantuml.LayoutPreset;
 import com.kicksolutions.swagger.plantuml.PlantUMLGenerator;
+import com.kicksolutions.swagger.plantuml.ReferencedDocumentCache;
+import com.kicksolutions.swagger.plantuml.ShardMerger;
+import com.kicksolutions.swagger.plantuml.ShardPlanner;
 
 /**
  * MSANTOSH
@@ -17,11 +28,38 @@ public class Swagger2PlantUML
 	private static final String USAGE = new StringBuilder()
 			.append(" Usage: ")
 			.append(Swagger2PlantUML.class.getName()).append(" <options> \n")
-			.append(" -i <spec file> ")
-			.append(" -o <output directory> ")
+			.append("    or: ").append(Swagger2PlantUML.class.getName()).append(" merge -i <shard output directory>[,...] -o <output directory> \n")
+			.append(" -i <spec file>[,<spec file>...] or - for stdin, <archive>!/<entry or glob> reads from zip/jar; several specs are transformed in a pipeline, each into a directory of -o ")
+			.append(" -o <output directory>, <archive>.zip or - for stdout ")
 			.append(" -generateDefinitionModelOnly true/false; Default=false ")
 			.append(" -includeCardinality true/false; Default=true ")
-			.append(" -generateSvg true/false; Default=true ").toString();
+			.append(" -generateSvg true/false; Default=true ")
+			.append(" -groupOperationsByTag true/false; Default=false ")
+			.append(" -mergeSpecs true/false; Default=false ")
+			.append(" -shard i/n transforms only the i-th of n shards of the -i specs (directories are expanded to their yaml/json files) ")
+			.append(" -diff <old spec file> <new spec file> renders only what changed, instead of -i ")
+			.append(" -history <spec file or git revision of -i>[,...] or tags; one diagram per revision ")
+			.append(" -gitRepo <git repository of -history revisions>; Default=. ")
+			.append(" -shardOutput true/false; Default=false ")
+			.append(" -compactMembers true/false; Default=false ")
+			.append(" -maxEnumValues <enum values shown per enum>; Default=0 (all) ")
+			.append(" -maxMembers <members shown per class>; Default=0 (all) ")
+			.append(" -flattenInheritance true/false; Default=true ")
+			.append(" -simplifyRelations true/false; Default=false ")
+			.append(" -metrics true/false; Default=false ")
+			.append(" -layoutPreset quality/balanced/fast; Default=quality ")
+			.append(" -formats svg,png,eps,txt,utxt; Default=svg ")
+			.append(" -profile true/false; Default=false ")
+			.append(" -minifySvg true/false; Default=false ")
+			.append(" -svgPrecision <decimals kept in minified coordinates>; Default=2 ")
+			.append(" -svgz true/false; Default=false ")
+			.append(" -tileSize <pixels of a tile of the SVG>; Default=0 (no tiles) ")
+			.append(" -renderBudget <estimated render millis before degrading>; Default=0 (no budget) ")
+			.append(" -pipelineThreads <parse>,<codegen>,<render> threads of the pipeline; Default=2,<processors>,2 ")
+			.append(" -pipelineQueue <specs queued per pipeline stage>; Default=4 ")
+			.append(" -heapBudget <MB of heap for the specs in flight> or auto for 60% of the heap; Default=0 (no admission control) ")
+			.append(" -referenceCache <documents referenced through $ref kept parsed for all specs of the run>; Default=0 (each spec resolves its own) ")
+			.append(" -renderTimeout <millis before a render is cancelled>; Default=0 (no timeout) ").toString();
 	
 	public Swagger2PlantUML() {
 		super();
@@ -47,27 +85,129 @@ public class Swagger2PlantUML
     	CliArgs cliArgs = new CliArgs(args);
     	String specFile = cliArgs.getArgumentValue("-i", "");
     	String output = cliArgs.getArgumentValue("-o","");
+    	
+    	if(args.length > 0 && "merge".equals(args[0])) {
+    		merge(specFile, output);
+    		LOGGER.exiting(LOGGER.getName(), "init");
+    		return;
+    	}
     	boolean generateDefinitionModelOnly = Boolean.parseBoolean(cliArgs.getArgumentValue("-generateDefinitionModelOnly","false"));
     	boolean includeCardinality = Boolean.parseBoolean(cliArgs.getArgumentValue("-includeCardinality","true"));
     	boolean generateSvg = Boolean.parseBoolean(cliArgs.getArgumentValue("-generateSvg", "true"));
     	
-    	if(StringUtils.isNotEmpty(specFile) && StringUtils.isNotEmpty(output)){
-    		process(specFile, output,generateDefinitionModelOnly,includeCardinality,generateSvg);
+    	PlantUMLGenerator generator = new PlantUMLGenerator();
+    	generator.setGroupOperationsByTag(Boolean.parseBoolean(cliArgs.getArgumentValue("-groupOperationsByTag", "false")));
+    	generator.setRenderBudgetMillis(Long.parseLong(cliArgs.getArgumentValue("-renderBudget", "0")));
+    	generator.setShardOutput(Boolean.parseBoolean(cliArgs.getArgumentValue("-shardOutput", "false")));
+    	generator.setCompactMembers(Boolean.parseBoolean(cliArgs.getArgumentValue("-compactMembers", "false")));
+    	generator.setMaxEnumValues(Integer.parseInt(cliArgs.getArgumentValue("-maxEnumValues", "0")));
+    	generator.setMaxMembers(Integer.parseInt(cliArgs.getArgumentValue("-maxMembers", "0")));
+    	generator.setFlattenInheritance(Boolean.parseBoolean(cliArgs.getArgumentValue("-flattenInheritance", "true")));
+    	generator.setSimplifyRelations(Boolean.parseBoolean(cliArgs.getArgumentValue("-simplifyRelations", "false")));
+    	generator.setWriteMetrics(Boolean.parseBoolean(cliArgs.getArgumentValue("-metrics", "false")));
+    	generator.setLayoutPreset(LayoutPreset.parse(cliArgs.getArgumentValue("-layoutPreset", "quality")));
+    	generator.setFormats(DiagramFormat.parse(cliArgs.getArgumentValue("-formats", "svg")));
+    	generator.setProfile(Boolean.parseBoolean(cliArgs.getArgumentValue("-profile", "false")));
+    	generator.setMinifySvg(Boolean.parseBoolean(cliArgs.getArgumentValue("-minifySvg", "false")));
+    	generator.setSvgPrecision(Integer.parseInt(cliArgs.getArgumentValue("-svgPrecision", "2")));
+    	generator.setSvgz(Boolean.parseBoolean(cliArgs.getArgumentValue("-svgz", "false")));
+    	generator.setTileSize(Integer.parseInt(cliArgs.getArgumentValue("-tileSize", "0")));
+    	generator.setRenderTimeoutMillis(Long.parseLong(cliArgs.getArgumentValue("-renderTimeout", "0")));
+    	
+    	String[] pipelineThreads = cliArgs.getArgumentValue("-pipelineThreads", "").split(",");
+    	if(pipelineThreads.length == 3) {
+    		generator.setParseThreads(Integer.parseInt(pipelineThreads[0].trim()));
+    		generator.setCodegenThreads(Integer.parseInt(pipelineThreads[1].trim()));
+    		generator.setRenderThreads(Integer.parseInt(pipelineThreads[2].trim()));
+    	}
+    	generator.setPipelineQueueCapacity(Integer.parseInt(cliArgs.getArgumentValue("-pipelineQueue", "4")));
+    	
+    	String heapBudget = cliArgs.getArgumentValue("-heapBudget", "0");
+    	if("auto".equals(heapBudget)) {
+    		generator.setAdmissionController(new AdmissionController(AdmissionController.getDefaultBudget()));
+    	}
+    	else if(Long.parseLong(heapBudget) > 0) {
+    		generator.setAdmissionController(new AdmissionController(Long.parseLong(heapBudget) * 1024 * 1024));
+    	}
+    	
+    	int referenceCacheSize = Integer.parseInt(cliArgs.getArgumentValue("-referenceCache", "0"));
+    	if(referenceCacheSize > 0) {
+    		generator.setReferenceCache(new ReferencedDocumentCache(referenceCacheSize));
+    	}
+    	
+    	boolean mergeSpecs = Boolean.parseBoolean(cliArgs.getArgumentValue("-mergeSpecs", "false"));
+    	
+    	String[] diffSpecs = cliArgs.getArgumentValues("-diff", 2);
+    	
+    	String history = cliArgs.getArgumentValue("-history", "");
+    	
+    	String shard = cliArgs.getArgumentValue("-shard", "");
+    	
+    	if(StringUtils.isNotEmpty(history) && StringUtils.isNotEmpty(output)){
+    		generator.renderHistory(Arrays.asList(history.split(",")), specFile, cliArgs.getArgumentValue("-gitRepo", "."), 
+    				output, generateDefinitionModelOnly, includeCardinality, generateSvg);
+    	}
+    	else if(diffSpecs != null && StringUtils.isNotEmpty(output)){
+    		generator.diffSwaggers2Puml(diffSpecs[0], diffSpecs[1], output, includeCardinality, generateSvg);
+    	}
+    	else if(StringUtils.isNotEmpty(shard) && StringUtils.isNotEmpty(specFile) && StringUtils.isNotEmpty(output)){
+    		int[] shardOfShards = ShardPlanner.parse(shard);
+    		generator.transformShard(ShardPlanner.expand(Arrays.asList(specFile.split(","))), shardOfShards[0], shardOfShards[1], 
+    				output, generateDefinitionModelOnly, includeCardinality, generateSvg);
+    	}
+    	else if(mergeSpecs && StringUtils.isNotEmpty(specFile) && StringUtils.isNotEmpty(output)){
+    		generator.mergeSwaggers2Puml(Arrays.asList(specFile.split(",")), output, includeCardinality, generateSvg);
+    	}
+    	else if(StringUtils.isNotEmpty(specFile) && StringUtils.isNotEmpty(output)){
+    		process(generator, specFile, output,generateDefinitionModelOnly,includeCardinality,generateSvg);
     	}
     	else{
     		LOGGER.severe(USAGE);
     	}
     	
+    	ReferencedDocumentCache referenceCache = generator.getReferenceCache();
+    	if(referenceCache != null && referenceCache.getHits() + referenceCache.getMisses() > 0) {
+    		LOGGER.info(referenceCache.toString());
+    	}
+    	
     	LOGGER.exiting(LOGGER.getName(), "init");
     }
     
+    /**
+     * Merges the outputs of the shards of a batch into one index.
+     * 
+     * @param shardOutputs
+     * @param output
+     */
+    private void merge(String shardOutputs,String output){
+    	if(StringUtils.isEmpty(shardOutputs) || StringUtils.isEmpty(output)) {
+    		LOGGER.severe(USAGE);
+    		return;
+    	}
+    	
+    	List<File> directories = new ArrayList<File>();
+    	for(String shardOutput : shardOutputs.split(",")) {
+    		directories.add(new File(shardOutput.trim()));
+    	}
+    	
+    	try {
+    		new ShardMerger().merge(directories, new File(output));
+    	} catch (IOException e) {
+    		throw new RuntimeException(e);
+    	}
+    }
+    
     /**
      * 
      * @param specFile
      * @param output
      */
-    private void process(String specFile,String output,boolean generateDefinitionModelOnly,boolean includeCardinality,boolean generateSvg){
-    	PlantUMLGenerator generator = new PlantUMLGenerator();
-    	generator.transformSwagger2Puml(specFile, output, generateDefinitionModelOnly, includeCardinality, generateSvg);
+    private void process(PlantUMLGenerator generator,String specFile,String output,boolean generateDefinitionModelOnly,boolean includeCardinality,boolean generateSvg){
+    	if(specFile.contains(",")) {
+    		generator.transformSwaggers2Puml(Arrays.asList(specFile.split(",")), output, generateDefinitionModelOnly, includeCardinality, generateSvg);
+    	}
+    	else {
+    		generator.transformSwagger2Puml(specFile, output, generateDefinitionModelOnly, includeCardinality, generateSvg);
+    	}
     }    
 }
\ No newline at end of file
@@ -0,0 +1,263 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts transformations only while the heap they are estimated to need,
+ * together with that of the transformations in flight, fits a budget. Specs
+ * are admitted in arrival order; a spec needing more than the whole budget is
+ * admitted once nothing else is in flight, so it runs alone instead of never.
+ * <p>
+ * A spec is admitted on an estimate from its file size and charged again with
+ * its definition count once parsed, see {@link #estimateBytes(long, int)}.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class AdmissionController {
+
+	/** Parser, tree and codegen model of a spec without definitions */
+	private static final long BASE_BYTES = 16L * 1024 * 1024;
+
+	/** Swagger model, JSON tree and codegen model per byte of spec */
+	private static final long BYTES_PER_SPEC_BYTE = 24;
+
+	/** PUML text and layout per definition */
+	private static final long BYTES_PER_DEFINITION = 512L * 1024;
+
+	/** Definitions assumed per KB of spec until it is parsed */
+	private static final double DEFINITIONS_PER_KB = 0.5;
+
+	private final long budgetBytes;
+
+	private long inFlightBytes;
+	private int inFlight;
+	private long nextTicket;
+	private long servedTicket;
+	private final Set<Long> passedTickets = new HashSet<Long>();
+
+	private long admitted;
+	private long waited;
+	private long waitNanos;
+	private long maxWaitNanos;
+	private long peakInFlightBytes;
+
+	/**
+	 *
+	 * @param budgetBytes
+	 *            heap the specs in flight may take together
+	 */
+	public AdmissionController(long budgetBytes) {
+		if (budgetBytes <= 0) {
+			throw new IllegalArgumentException("Heap budget must be positive --> " + budgetBytes);
+		}
+
+		this.budgetBytes = budgetBytes;
+	}
+
+	/**
+	 *
+	 * @return 60% of the maximum heap, the rest is left to the JVM and to
+	 *         caches such as the {@link ReferencedDocumentCache}
+	 */
+	public static long getDefaultBudget() {
+		return Runtime.getRuntime().maxMemory() / 10 * 6;
+	}
+
+	/**
+	 * Rough linear model of the heap one spec takes from parsing until its
+	 * diagram is rendered.
+	 *
+	 * @param specBytes
+	 * @param definitions
+	 * @return
+	 */
+	public static long estimateBytes(long specBytes, int definitions) {
+		return BASE_BYTES + Math.max(0, specBytes) * BYTES_PER_SPEC_BYTE
+				+ Math.max(0, definitions) * BYTES_PER_DEFINITION;
+	}
+
+	/**
+	 *
+	 * @param specFile
+	 * @return estimate before parsing, definitions are guessed from the size
+	 */
+	public static long estimateBytes(File specFile) {
+		return estimateBytes(specFile.length());
+	}
+
+	/**
+	 *
+	 * @param specBytes
+	 * @return estimate before parsing, definitions are guessed from the size
+	 */
+	public static long estimateBytes(long specBytes) {
+		return estimateBytes(specBytes, (int) (specBytes / 1024 * DEFINITIONS_PER_KB));
+	}
+
+	/**
+	 * Blocks until the spec fits the budget and it is its turn.
+	 *
+	 * @param bytes
+	 *            estimated heap of the spec
+	 * @return to be closed once the spec is done
+	 * @throws InterruptedException
+	 */
+	public synchronized Permit acquire(long bytes) throws InterruptedException {
+		long ticket = nextTicket++;
+		long start = System.nanoTime();
+		boolean blocked = false;
+
+		try {
+			while (ticket != servedTicket || (inFlight > 0 && inFlightBytes + bytes > budgetBytes)) {
+				blocked = true;
+				wait();
+			}
+		} catch (InterruptedException e) {
+			// the spec gives up its turn, the next one may fit
+			passTurn(ticket);
+			throw e;
+		}
+
+		passTurn(ticket);
+
+		long waitedNanos = System.nanoTime() - start;
+		admitted++;
+
+		if (blocked) {
+			waited++;
+			waitNanos += waitedNanos;
+			maxWaitNanos = Math.max(maxWaitNanos, waitedNanos);
+		}
+
+		inFlight++;
+		charge(bytes);
+		return new Permit(bytes);
+	}
+
+	/**
+	 * Hands the turn on once every ticket before this one is admitted or gave
+	 * up.
+	 */
+	private void passTurn(long ticket) {
+		passedTickets.add(ticket);
+
+		while (passedTickets.remove(servedTicket)) {
+			servedTicket++;
+		}
+
+		notifyAll();
+	}
+
+	private void charge(long bytes) {
+		inFlightBytes += bytes;
+		peakInFlightBytes = Math.max(peakInFlightBytes, inFlightBytes);
+	}
+
+	public long getBudgetBytes() {
+		return budgetBytes;
+	}
+
+	public synchronized long getInFlightBytes() {
+		return inFlightBytes;
+	}
+
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	/**
+	 *
+	 * @return estimated heap of the specs in flight at the busiest moment
+	 */
+	public synchronized long getPeakInFlightBytes() {
+		return peakInFlightBytes;
+	}
+
+	public synchronized long getAdmitted() {
+		return admitted;
+	}
+
+	/**
+	 *
+	 * @return specs that had to queue before they were admitted
+	 */
+	public synchronized long getWaited() {
+		return waited;
+	}
+
+	public synchronized long getWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+	}
+
+	public synchronized long getMaxWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format(
+				"Admission: %d specs admitted, %d queued for %d ms (max %d ms), peak %d of %d MB heap budget",
+				admitted, waited, getWaitMillis(), getMaxWaitMillis(), peakInFlightBytes / (1024 * 1024),
+				budgetBytes / (1024 * 1024));
+	}
+
+	/**
+	 * Heap charged for one admitted spec.
+	 */
+	public class Permit implements AutoCloseable {
+
+		private long bytes;
+		private boolean closed;
+
+		private Permit(long bytes) {
+			this.bytes = bytes;
+		}
+
+		/**
+		 * Charges the spec with a better estimate, e.g. once its definitions
+		 * are known. Never blocks, as the spec is already running; a larger
+		 * estimate holds back the specs waiting behind it.
+		 *
+		 * @param estimatedBytes
+		 */
+		public void resize(long estimatedBytes) {
+			synchronized (AdmissionController.this) {
+				if (closed) {
+					return;
+				}
+
+				inFlightBytes -= bytes;
+				bytes = estimatedBytes;
+				charge(bytes);
+				AdmissionController.this.notifyAll();
+			}
+		}
+
+		public long getBytes() {
+			synchronized (AdmissionController.this) {
+				return bytes;
+			}
+		}
+
+		/**
+		 * Gives the heap back, may be called more than once.
+		 */
+		@Override
+		public void close() {
+			synchronized (AdmissionController.this) {
+				if (closed) {
+					return;
+				}
+
+				closed = true;
+				inFlight--;
+				inFlightBytes -= bytes;
+				AdmissionController.this.notifyAll();
+			}
+		}
+	}
+}
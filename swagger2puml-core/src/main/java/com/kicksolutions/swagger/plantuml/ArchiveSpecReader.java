@@ -0,0 +1,168 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Reads specs straight out of zip and jar archives through the NIO zip
+ * {@link FileSystem}, without extracting them. A spec inside an archive is
+ * addressed either as a jar URI, {@code jar:file:/libs/service.jar!/api/swagger.yaml},
+ * or as the archive path and the entry,
+ * {@code /libs/service.jar!/api/swagger.yaml}. The entry may be a glob such
+ * as {@code /bundles/apis.zip!/**.yaml} to read several specs at once, one
+ * after the other through an {@link EntryHandler}.
+ *
+ * @author MSANTOSH
+ *
+ */
+public final class ArchiveSpecReader {
+
+	private static final Logger LOGGER = Logger.getLogger(ArchiveSpecReader.class.getName());
+
+	private static final String JAR_SCHEME = "jar:";
+	private static final String ENTRY_SEPARATOR = "!/";
+
+	private ArchiveSpecReader() {
+		super();
+	}
+
+	/**
+	 *
+	 * @param spec
+	 * @return whether the spec points into an archive
+	 */
+	public static boolean isArchiveSpec(String spec) {
+		return spec != null && (spec.startsWith(JAR_SCHEME) || spec.contains(ENTRY_SEPARATOR));
+	}
+
+	/**
+	 * Handles one matching entry while the archive is open.
+	 */
+	public interface EntryHandler {
+
+		/**
+		 *
+		 * @param entry
+		 *            path of the entry
+		 * @param path
+		 *            of the entry in the archive, to read it
+		 * @param count
+		 *            entries matching in total
+		 * @throws IOException
+		 */
+		void handle(String entry, Path path, int count) throws IOException;
+	}
+
+	/**
+	 *
+	 * @param spec
+	 * @return content of every matching entry by entry path, in archive order
+	 * @throws IOException
+	 *             if the archive can not be read or no entry matches
+	 */
+	public static Map<String, String> read(String spec) throws IOException {
+		Map<String, String> specs = new LinkedHashMap<String, String>();
+		read(spec, (entry, path, count) -> specs.put(entry, new String(Files.readAllBytes(path), StandardCharsets.UTF_8)));
+		return specs;
+	}
+
+	/**
+	 *
+	 * @param spec
+	 * @return uncompressed bytes of every matching entry, without reading them
+	 * @throws IOException
+	 *             if the archive can not be read or no entry matches
+	 */
+	public static long size(String spec) throws IOException {
+		long[] bytes = new long[1];
+		read(spec, (entry, path, count) -> bytes[0] += Files.size(path));
+		return bytes[0];
+	}
+
+	/**
+	 * Hands the matching entries to the handler in archive order, so only
+	 * the entry being handled is held in memory.
+	 *
+	 * @param spec
+	 * @param handler
+	 * @throws IOException
+	 *             if the archive can not be read or no entry matches
+	 */
+	public static void read(String spec, EntryHandler handler) throws IOException {
+		int separator = spec.indexOf(ENTRY_SEPARATOR);
+
+		if (separator < 0) {
+			throw new IOException("Spec " + spec + " does not name an archive entry, expected <archive>!/<entry>");
+		}
+
+		String archive = spec.substring(0, separator);
+		String entry = spec.substring(separator + ENTRY_SEPARATOR.length());
+		Path archivePath = archive.startsWith(JAR_SCHEME) ? Paths.get(URI.create(archive.substring(JAR_SCHEME.length())))
+				: Paths.get(archive);
+
+		if (!Files.isRegularFile(archivePath)) {
+			throw new IOException("Archive " + archivePath + " does not exist");
+		}
+
+		try (FileSystem zip = FileSystems.newFileSystem(archivePath, (ClassLoader) null)) {
+			if (!isGlob(entry)) {
+				Path entryPath = zip.getPath(entry);
+
+				if (!Files.isRegularFile(entryPath)) {
+					throw new IOException("Entry " + entry + " does not exist in " + archivePath);
+				}
+
+				handler.handle(entry, entryPath, 1);
+				return;
+			}
+
+			PathMatcher matcher = zip.getPathMatcher("glob:" + entry);
+			Path root = zip.getPath("/");
+			List<Path> matches = new ArrayList<Path>();
+
+			try (Stream<Path> entries = Files.walk(root)) {
+				for (Iterator<Path> iterator = entries.iterator(); iterator.hasNext();) {
+					Path entryPath = iterator.next();
+
+					if (Files.isRegularFile(entryPath)
+							&& matcher.matches(zip.getPath(root.relativize(entryPath).toString()))) {
+						matches.add(entryPath);
+					}
+				}
+			}
+
+			if (matches.isEmpty()) {
+				throw new IOException("No entry of " + archivePath + " matches " + entry);
+			}
+
+			LOGGER.info("Found " + matches.size() + " specs in " + archivePath);
+
+			for (Path entryPath : matches) {
+				handler.handle(root.relativize(entryPath).toString(), entryPath, matches.size());
+			}
+		}
+	}
+
+	private static boolean isGlob(String entry) {
+		for (char c : new char[] { '*', '?', '[', '{' }) {
+			if (entry.indexOf(c) >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
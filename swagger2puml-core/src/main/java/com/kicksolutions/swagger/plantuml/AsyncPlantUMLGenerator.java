@@ -0,0 +1,241 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Runs the transformations of a {@link PlantUMLGenerator} on an executor and
+ * hands back a {@link CompletableFuture}, so callers don't block a thread
+ * while Graphviz lays out the diagram. Cancelling the future interrupts the
+ * running transformation, which in turn cancels its renders.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class AsyncPlantUMLGenerator {
+
+	private static final Logger LOGGER = Logger.getLogger(AsyncPlantUMLGenerator.class.getName());
+
+	private static volatile ExecutorService defaultExecutor;
+
+	private final PlantUMLGenerator generator;
+	private final Executor executor;
+
+	/**
+	 * Runs on {@link #getDefaultExecutor()}.
+	 *
+	 * @param generator
+	 */
+	public AsyncPlantUMLGenerator(PlantUMLGenerator generator) {
+		this(generator, getDefaultExecutor());
+	}
+
+	/**
+	 *
+	 * @param generator
+	 * @param executor
+	 *            runs one task per transformation
+	 */
+	public AsyncPlantUMLGenerator(PlantUMLGenerator generator, Executor executor) {
+		this.generator = generator;
+		this.executor = executor;
+	}
+
+	/**
+	 * Virtual threads when the JVM has them (Java 21+), otherwise a pool of
+	 * daemon threads bounded by the number of processors. Created on first
+	 * use and shared.
+	 *
+	 * @return
+	 */
+	public static ExecutorService getDefaultExecutor() {
+		if (defaultExecutor == null) {
+			synchronized (AsyncPlantUMLGenerator.class) {
+				if (defaultExecutor == null) {
+					defaultExecutor = newDefaultExecutor();
+				}
+			}
+		}
+
+		return defaultExecutor;
+	}
+
+	private static ExecutorService newDefaultExecutor() {
+		try {
+			ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+					.invoke(null);
+			LOGGER.fine("Transforming on virtual threads");
+			return executor;
+		} catch (ReflectiveOperationException e) {
+			// before Java 21
+		}
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), runnable -> {
+					Thread thread = new Thread(runnable, "swagger2puml-async");
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Transforms the spec in memory.
+	 *
+	 * @param specFile
+	 *            spec file or archive entry, see
+	 *            {@link PlantUMLGenerator#transformSwagger2Puml(String, OutputSink, boolean, boolean, boolean)}
+	 * @param generateDefinitionModelOnly
+	 * @param includeCardinality
+	 * @param generateSvg
+	 * @return the PUML and the rendered diagrams
+	 */
+	public CompletableFuture<DiagramResult> transformSwagger2Puml(final String specFile,
+			final boolean generateDefinitionModelOnly, final boolean includeCardinality, final boolean generateSvg) {
+		return submit(() -> {
+			InMemorySink sink = new InMemorySink();
+			generator.transformSwagger2Puml(specFile, sink, generateDefinitionModelOnly, includeCardinality,
+					generateSvg);
+			return new DiagramResult(sink.getEntries());
+		});
+	}
+
+	/**
+	 * Transforms the spec into the sink, which is closed when done and aborted
+	 * when the transformation fails or is cancelled while running.
+	 *
+	 * @param specFile
+	 * @param sink
+	 * @param generateDefinitionModelOnly
+	 * @param includeCardinality
+	 * @param generateSvg
+	 * @return completes once the sink is closed
+	 */
+	public CompletableFuture<Void> transformSwagger2Puml(final String specFile, final OutputSink sink,
+			final boolean generateDefinitionModelOnly, final boolean includeCardinality, final boolean generateSvg) {
+		return submit(() -> {
+			try {
+				generator.transformSwagger2Puml(specFile, sink, generateDefinitionModelOnly, includeCardinality,
+						generateSvg);
+
+				if (Thread.currentThread().isInterrupted()) {
+					throw new CancellationException("Transformation of " + specFile + " was cancelled");
+				}
+
+				sink.close();
+				return null;
+			} catch (Exception e) {
+				sink.abort();
+				throw e;
+			}
+		});
+	}
+
+	/**
+	 * Runs the task on the executor; cancelling the returned future interrupts
+	 * the thread running it.
+	 *
+	 * @param task
+	 * @return
+	 */
+	private <T> CompletableFuture<T> submit(final Callable<T> task) {
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		final AtomicReference<Thread> runner = new AtomicReference<Thread>();
+
+		try {
+			executor.execute(() -> {
+				synchronized (runner) {
+					if (future.isDone()) {
+						return;
+					}
+					runner.set(Thread.currentThread());
+				}
+
+				try {
+					future.complete(task.call());
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				} finally {
+					synchronized (runner) {
+						runner.set(null);
+						// a late cancel must not leak into the next task of a pooled thread
+						Thread.interrupted();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+
+		future.whenComplete((result, failure) -> {
+			if (future.isCancelled()) {
+				synchronized (runner) {
+					Thread thread = runner.get();
+
+					if (thread != null) {
+						thread.interrupt();
+					}
+				}
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * Files written by one transformation, by name.
+	 */
+	public static class DiagramResult {
+
+		private final Map<String, byte[]> entries;
+
+		public DiagramResult(Map<String, byte[]> entries) {
+			this.entries = Collections.unmodifiableMap(entries);
+		}
+
+		/**
+		 *
+		 * @return the PUML, null when not written
+		 */
+		public String getPuml() {
+			return getText(PlantUMLCodegen.PUML_FILE);
+		}
+
+		/**
+		 *
+		 * @return the rendered SVG, null when not rendered
+		 */
+		public byte[] getSvg() {
+			return entries.get(PlantUMLCodegen.PUML_FILE.replaceFirst("\\.puml$", "") + DiagramFormat.SVG.getExtension());
+		}
+
+		/**
+		 *
+		 * @param name
+		 * @return the entry as UTF-8 text, null when not written
+		 */
+		public String getText(String name) {
+			byte[] content = entries.get(name);
+			return content == null ? null : new String(content, StandardCharsets.UTF_8);
+		}
+
+		public Map<String, byte[]> getEntries() {
+			return entries;
+		}
+	}
+}
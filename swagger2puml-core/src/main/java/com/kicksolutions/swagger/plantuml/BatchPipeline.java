@@ -0,0 +1,484 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.swagger.models.Swagger;
+
+/**
+ * Transforms many specs by passing them through four stages, each on its own
+ * pool: parse, codegen model, PUML text and render. Stages are connected by
+ * bounded queues; a stage whose successor's queue is full blocks until it
+ * drains, so a slow render stage holds back parsing instead of piling up
+ * parsed specs in memory. With an {@link AdmissionController} on the
+ * generator, specs enter the pipeline only while their estimated heap fits its
+ * budget.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class BatchPipeline {
+
+	private static final Logger LOGGER = Logger.getLogger(BatchPipeline.class.getName());
+
+	/** Time the current stage thread spent waiting for room downstream */
+	private static final ThreadLocal<long[]> BLOCKED_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+	private final PlantUMLGenerator generator;
+	private final int parseThreads;
+	private final int codegenThreads;
+	private final int renderThreads;
+	private final int queueCapacity;
+	private final List<StageMetrics> metrics = new ArrayList<StageMetrics>();
+	private final Map<String, Exception> failures = new LinkedHashMap<String, Exception>();
+
+	/**
+	 *
+	 * @param generator
+	 *            options of the generator apply to every spec
+	 * @param parseThreads
+	 * @param codegenThreads
+	 *            threads of the codegen model and of the PUML text stage each
+	 * @param renderThreads
+	 * @param queueCapacity
+	 *            specs waiting in front of each stage
+	 */
+	public BatchPipeline(PlantUMLGenerator generator, int parseThreads, int codegenThreads, int renderThreads,
+			int queueCapacity) {
+		this.generator = generator;
+		this.parseThreads = Math.max(1, parseThreads);
+		this.codegenThreads = Math.max(1, codegenThreads);
+		this.renderThreads = Math.max(1, renderThreads);
+		this.queueCapacity = Math.max(1, queueCapacity);
+	}
+
+	/**
+	 * Writes the diagrams of each spec to a directory of the target location
+	 * named after the spec file. Waits until all specs are done.
+	 *
+	 * @param specFiles
+	 * @param targetLocation
+	 * @param generateDefinitionModelOnly
+	 * @param includeCardinality
+	 * @param generateSvg
+	 * @throws RuntimeException
+	 *             listing the specs that failed, after the others are written
+	 */
+	public void run(List<String> specFiles, File targetLocation, final boolean generateDefinitionModelOnly,
+			final boolean includeCardinality, final boolean generateSvg) {
+		if (!targetLocation.isDirectory()) {
+			throw new RuntimeException("Ouput Location is not valid --> " + targetLocation);
+		}
+
+		run(specFiles, getTargetDirectories(targetLocation, specFiles), generateDefinitionModelOnly,
+				includeCardinality, generateSvg);
+	}
+
+	/**
+	 * Writes the diagrams of each spec to the directory at the same position.
+	 * Waits until all specs are done.
+	 *
+	 * @param specFiles
+	 * @param targetDirectories
+	 *            existing directories
+	 * @param generateDefinitionModelOnly
+	 * @param includeCardinality
+	 * @param generateSvg
+	 * @throws RuntimeException
+	 *             listing the specs that failed, after the others are written
+	 */
+	public void run(List<String> specFiles, List<File> targetDirectories, final boolean generateDefinitionModelOnly,
+			final boolean includeCardinality, final boolean generateSvg) {
+		final Stage parse = new Stage("parse", parseThreads, queueCapacity);
+		final Stage codegen = new Stage("codegen", codegenThreads, queueCapacity);
+		final Stage puml = new Stage("puml", codegenThreads, queueCapacity);
+		final Stage render = new Stage("render", renderThreads, queueCapacity);
+		final CountDownLatch done = new CountDownLatch(specFiles.size());
+		final List<Job> jobs = new ArrayList<Job>();
+
+		metrics.clear();
+		failures.clear();
+		long start = System.nanoTime();
+
+		try {
+			for (int i = 0; i < specFiles.size(); i++) {
+				final String specFile = specFiles.get(i);
+				final Job job = new Job(specFile, targetDirectories.get(i));
+				final long specBytes = PlantUMLGenerator.getSpecBytes(specFile);
+				jobs.add(job);
+
+				// holds back the specs behind it until the heap of this one fits
+				job.permit = generator.admit(specFile, specBytes);
+
+				parse.submit(job, failures, done, () -> {
+					job.swagger = generator.readSwagger(specFile);
+
+					if (job.permit != null && job.swagger != null) {
+						job.permit.resize(PlantUMLGenerator.estimateBytes(specBytes, job.swagger));
+					}
+
+					job.codegen = generator.newCodegen(job.swagger, job.targetLocation, generateDefinitionModelOnly,
+							includeCardinality);
+
+					codegen.submit(job, failures, done, () -> {
+						job.model = job.codegen.preprocessSwagger(job.swagger);
+						job.swagger = null;
+
+						puml.submit(job, failures, done, () -> {
+							try (OutputSink sink = new DirectorySink(job.targetLocation)) {
+								job.codegen.generatePuml(job.model, sink);
+							}
+							job.model = null;
+
+							if (!generateSvg) {
+								job.release();
+								done.countDown();
+								return;
+							}
+
+							render.submit(job, failures, done, () -> {
+								generator.generateUmlDiagrams(
+										new File(job.targetLocation, PlantUMLCodegen.PUML_FILE).getAbsolutePath(),
+										job.targetLocation);
+								job.release();
+								done.countDown();
+							});
+						});
+					});
+				});
+			}
+
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while transforming " + specFiles, e);
+		} finally {
+			long wallNanos = System.nanoTime() - start;
+
+			for (Stage stage : new Stage[] { parse, codegen, puml, render }) {
+				stage.shutdown();
+				metrics.add(stage.getMetrics(wallNanos));
+			}
+
+			// specs dropped from the queues when interrupted
+			for (Job job : jobs) {
+				job.release();
+			}
+		}
+
+		LOGGER.info("Transformed " + (specFiles.size() - failures.size()) + " of " + specFiles.size() + " specs in "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+
+		for (StageMetrics stageMetrics : metrics) {
+			LOGGER.info(stageMetrics.toString());
+		}
+
+		if (generator.getAdmissionController() != null) {
+			LOGGER.info(generator.getAdmissionController().toString());
+		}
+
+		if (!failures.isEmpty()) {
+			throw new RuntimeException("Unable to transform " + failures.keySet(), failures.values().iterator().next());
+		}
+	}
+
+	/**
+	 *
+	 * @return metrics of the stages of the last run, in pipeline order
+	 */
+	public List<StageMetrics> getMetrics() {
+		return new ArrayList<StageMetrics>(metrics);
+	}
+
+	/**
+	 *
+	 * @return the specs that failed in the last run and why, in the order they
+	 *         failed
+	 */
+	public Map<String, Exception> getFailures() {
+		synchronized (failures) {
+			return new LinkedHashMap<String, Exception>(failures);
+		}
+	}
+
+	/**
+	 *
+	 * @param targetLocation
+	 * @param specFiles
+	 * @return a directory per spec named after the spec file, prefixed with the
+	 *         name of its directory when specs share a file name
+	 */
+	public static List<File> getTargetDirectories(File targetLocation, List<String> specFiles) {
+		List<File> directories = new ArrayList<File>();
+
+		for (String directoryName : getTargetDirectoryNames(specFiles)) {
+			File directory = new File(targetLocation, directoryName);
+
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new RuntimeException("Unable to create " + directory);
+			}
+
+			directories.add(directory);
+		}
+
+		return directories;
+	}
+
+	/**
+	 * Depends on all the specs, so the specs of a shard are named as in the
+	 * whole batch.
+	 *
+	 * @param specFiles
+	 * @return names of the directories of
+	 *         {@link #getTargetDirectories(File, List)}, not created
+	 */
+	public static List<String> getTargetDirectoryNames(List<String> specFiles) {
+		List<File> files = new ArrayList<File>();
+		Set<String> baseNames = new HashSet<String>();
+		boolean sharedBaseNames = false;
+
+		for (String specFile : specFiles) {
+			File file = new File(specFile.replaceFirst("!/.*$", "")).getAbsoluteFile();
+			files.add(file);
+			sharedBaseNames |= !baseNames.add(getBaseName(file));
+		}
+
+		List<String> directories = new ArrayList<String>();
+		Set<String> directoryNames = new HashSet<String>();
+
+		for (File file : files) {
+			String baseName = getBaseName(file);
+
+			if (sharedBaseNames && file.getParentFile() != null) {
+				baseName = file.getParentFile().getName() + "_" + baseName;
+			}
+
+			String directoryName = baseName;
+			for (int i = 2; !directoryNames.add(directoryName); i++) {
+				directoryName = baseName + "_" + i;
+			}
+
+			directories.add(directoryName);
+		}
+
+		return directories;
+	}
+
+	private static String getBaseName(File file) {
+		return file.getName().replaceFirst("\\.[^.]*$", "");
+	}
+
+	/**
+	 * A spec on its way through the stages.
+	 */
+	private static class Job {
+		private final String specFile;
+		private final File targetLocation;
+		private Swagger swagger;
+		private PlantUMLCodegen codegen;
+		private Map<String, Object> model;
+		private AdmissionController.Permit permit;
+
+		Job(String specFile, File targetLocation) {
+			this.specFile = specFile;
+			this.targetLocation = targetLocation;
+		}
+
+		void release() {
+			if (permit != null) {
+				permit.close();
+			}
+		}
+	}
+
+	/**
+	 * Step of a stage, may throw anything.
+	 */
+	private interface Step {
+		void run() throws Exception;
+	}
+
+	/**
+	 * Fixed pool with a bounded queue, submitting blocks while the queue is
+	 * full.
+	 */
+	private static class Stage {
+		private final String name;
+		private final int threads;
+		private final ThreadPoolExecutor executor;
+		private final AtomicLong busyNanos = new AtomicLong();
+		private final AtomicLong backpressureNanos = new AtomicLong();
+		private final AtomicInteger items = new AtomicInteger();
+		private final AtomicInteger submissions = new AtomicInteger();
+		private final AtomicInteger maxQueueDepth = new AtomicInteger();
+		private final AtomicLong queueDepthSum = new AtomicLong();
+
+		Stage(String name, int threads, int queueCapacity) {
+			this.name = name;
+			this.threads = threads;
+			this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<Runnable>(queueCapacity), runnable -> {
+						Thread thread = new Thread(runnable, "swagger2puml-" + name);
+						thread.setDaemon(true);
+						return thread;
+					}, (runnable, pool) -> {
+						try {
+							// blocks the submitting stage until there is room
+							pool.getQueue().put(runnable);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new RejectedExecutionException(e);
+						}
+					});
+		}
+
+		/**
+		 * Runs the step of the job, a failure is recorded for the job and ends
+		 * it. Errors such as a stack overflow in the layout end the job too,
+		 * rather than leaving the run waiting for it forever.
+		 */
+		void submit(final Job job, final Map<String, Exception> failures, final CountDownLatch done,
+				final Step step) {
+			int depth = executor.getQueue().size();
+			submissions.incrementAndGet();
+			queueDepthSum.addAndGet(depth);
+			maxQueueDepth.accumulateAndGet(depth, Math::max);
+			long submitted = System.nanoTime();
+
+			executor.execute(() -> {
+				long start = System.nanoTime();
+				BLOCKED_NANOS.get()[0] = 0;
+
+				try {
+					step.run();
+				} catch (Throwable e) {
+					LOGGER.log(Level.SEVERE, "Unable to transform " + job.specFile + " in stage " + name, e);
+
+					synchronized (failures) {
+						failures.put(job.specFile, e instanceof Exception ? (Exception) e
+								: new RuntimeException(e.toString(), e));
+					}
+
+					job.release();
+					done.countDown();
+				} finally {
+					// waiting for the next stage is not work of this one
+					busyNanos.addAndGet(System.nanoTime() - start - BLOCKED_NANOS.get()[0]);
+					items.incrementAndGet();
+				}
+			});
+
+			long blocked = System.nanoTime() - submitted;
+			backpressureNanos.addAndGet(blocked);
+			BLOCKED_NANOS.get()[0] += blocked;
+		}
+
+		/**
+		 * Interrupts what is still running and waits a little for it, so a
+		 * step that already counted down its job is counted in the metrics.
+		 */
+		void shutdown() {
+			executor.shutdownNow();
+
+			try {
+				executor.awaitTermination(1, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		StageMetrics getMetrics(long wallNanos) {
+			return new StageMetrics(name, threads, items.get(), busyNanos.get(), backpressureNanos.get(), wallNanos,
+					maxQueueDepth.get(), submissions.get() == 0 ? 0 : (double) queueDepthSum.get() / submissions.get());
+		}
+	}
+
+	/**
+	 * Utilization and queue depth of one stage.
+	 */
+	public static class StageMetrics {
+		private final String stage;
+		private final int threads;
+		private final int items;
+		private final long busyNanos;
+		private final long backpressureNanos;
+		private final long wallNanos;
+		private final int maxQueueDepth;
+		private final double meanQueueDepth;
+
+		StageMetrics(String stage, int threads, int items, long busyNanos, long backpressureNanos, long wallNanos,
+				int maxQueueDepth, double meanQueueDepth) {
+			this.stage = stage;
+			this.threads = threads;
+			this.items = items;
+			this.busyNanos = busyNanos;
+			this.backpressureNanos = backpressureNanos;
+			this.wallNanos = wallNanos;
+			this.maxQueueDepth = maxQueueDepth;
+			this.meanQueueDepth = meanQueueDepth;
+		}
+
+		public String getStage() {
+			return stage;
+		}
+
+		public int getThreads() {
+			return threads;
+		}
+
+		public int getItems() {
+			return items;
+		}
+
+		public long getBusyMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(busyNanos);
+		}
+
+		/**
+		 *
+		 * @return time the previous stage waited for room in the queue of this
+		 *         one
+		 */
+		public long getBackpressureMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(backpressureNanos);
+		}
+
+		/**
+		 *
+		 * @return share of the wall time the threads of the stage were busy, 0 to 1
+		 */
+		public double getUtilization() {
+			return wallNanos <= 0 ? 0 : Math.min(1.0, (double) busyNanos / ((double) wallNanos * threads));
+		}
+
+		public int getMaxQueueDepth() {
+			return maxQueueDepth;
+		}
+
+		public double getMeanQueueDepth() {
+			return meanQueueDepth;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"Stage %s: %d specs on %d threads, busy %d ms, %.0f%% utilized, queue depth mean %.1f max %d, backpressure %d ms",
+					stage, items, threads, getBusyMillis(), getUtilization() * 100, meanQueueDepth, maxQueueDepth,
+					getBackpressureMillis());
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sourceforge.plantuml.FileFormat;
+
+/**
+ * Image formats the diagram can be rendered to.
+ * 
+ * @author MSANTOSH
+ *
+ */
+public enum DiagramFormat {
+
+	SVG(FileFormat.SVG, ".svg"),
+	PNG(FileFormat.PNG, ".png"),
+	EPS(FileFormat.EPS, ".eps"),
+	TXT(FileFormat.ATXT, ".txt"),
+	UTXT(FileFormat.UTXT, ".utxt");
+
+	private final FileFormat fileFormat;
+	private final String extension;
+
+	private DiagramFormat(FileFormat fileFormat, String extension) {
+		this.fileFormat = fileFormat;
+		this.extension = extension;
+	}
+
+	public FileFormat getFileFormat() {
+		return fileFormat;
+	}
+
+	public String getExtension() {
+		return extension;
+	}
+
+	/**
+	 * 
+	 * @param formats
+	 *            comma separated format names, e.g. svg,png,txt
+	 * @return
+	 */
+	public static List<DiagramFormat> parse(String formats) {
+		List<DiagramFormat> diagramFormats = new ArrayList<DiagramFormat>();
+
+		for (String format : formats.split(",")) {
+			if (format.trim().isEmpty()) {
+				continue;
+			}
+
+			try {
+				DiagramFormat diagramFormat = valueOf(format.trim().toUpperCase());
+
+				if (!diagramFormats.contains(diagramFormat)) {
+					diagramFormats.add(diagramFormat);
+				}
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unsupported format " + format + ", expected one of svg, png, eps, txt, utxt");
+			}
+		}
+
+		return diagramFormats;
+	}
+}
@@ -0,0 +1,252 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.kicksolutions.swagger.plantuml.vo.ClassDiagram;
+import com.kicksolutions.swagger.plantuml.vo.ClassRelation;
+import com.kicksolutions.swagger.plantuml.vo.DiagramMetrics;
+import com.kicksolutions.swagger.plantuml.vo.InterfaceDiagram;
+
+/**
+ * Computes {@link DiagramMetrics} from the codegen model in time linear in
+ * the number of nodes, edges and members: every node and edge is visited a
+ * constant number of times, components are tracked with a union-find and
+ * inheritance depths are memoized.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class DiagramMetricsCalculator {
+
+	private final Map<String, Integer> index = new HashMap<String, Integer>();
+	private final List<String> names = new ArrayList<String>();
+	private int[] parent;
+	private int[] size;
+
+	public DiagramMetricsCalculator() {
+		super();
+	}
+
+	/**
+	 *
+	 * @param classDiagrams
+	 * @param interfaceDiagrams
+	 * @param relations
+	 *            the relations as drawn
+	 * @param parents
+	 *            allOf parents by definition, which are not drawn as edges
+	 *            when inheritance is flattened
+	 * @return
+	 */
+	public DiagramMetrics calculate(List<ClassDiagram> classDiagrams, List<InterfaceDiagram> interfaceDiagrams,
+			List<ClassRelation> relations, Map<String, List<String>> parents) {
+		DiagramMetrics metrics = new DiagramMetrics();
+		index.clear();
+		names.clear();
+
+		for (ClassDiagram classDiagram : classDiagrams) {
+			indexOf(classDiagram.getClassName());
+
+			if (classDiagram.isClass()) {
+				metrics.setClasses(metrics.getClasses() + 1);
+			} else {
+				metrics.setEnums(metrics.getEnums() + 1);
+			}
+		}
+
+		// operations of the same interface are drawn into one node
+		int classNodes = names.size();
+		for (InterfaceDiagram interfaceDiagram : interfaceDiagrams) {
+			indexOf(interfaceDiagram.getInterfaceName());
+		}
+		metrics.setInterfaces(names.size() - classNodes);
+
+		// nodes only known from edges, such as an error bundle
+		for (ClassRelation relation : relations) {
+			indexOf(relation.getSourceClass());
+			indexOf(relation.getTargetClass());
+		}
+
+		int nodes = names.size();
+		int[] members = new int[nodes];
+		int[] fanIn = new int[nodes];
+		int[] fanOut = new int[nodes];
+
+		for (ClassDiagram classDiagram : classDiagrams) {
+			members[index.get(String.valueOf(classDiagram.getClassName()))] += classDiagram.getFields() != null
+					? classDiagram.getFields().size() : 0;
+		}
+
+		for (InterfaceDiagram interfaceDiagram : interfaceDiagrams) {
+			members[index.get(String.valueOf(interfaceDiagram.getInterfaceName()))] += interfaceDiagram
+					.getMethods() != null ? interfaceDiagram.getMethods().size() : 0;
+		}
+		List<List<Integer>> parentNodes = new ArrayList<List<Integer>>(Collections.nCopies(nodes, (List<Integer>) null));
+
+		parent = new int[nodes];
+		size = new int[nodes];
+		for (int i = 0; i < nodes; i++) {
+			parent[i] = i;
+			size[i] = 1;
+		}
+
+		for (ClassRelation relation : relations) {
+			int source = index.get(String.valueOf(relation.getSourceClass()));
+			int target = index.get(String.valueOf(relation.getTargetClass()));
+
+			fanOut[source]++;
+			fanIn[target]++;
+			union(source, target);
+
+			if (relation.isInheritance()) {
+				metrics.setInheritanceEdges(metrics.getInheritanceEdges() + 1);
+				addParent(parentNodes, source, target);
+			} else if (relation.isComposition()) {
+				metrics.setCompositionEdges(metrics.getCompositionEdges() + 1);
+			} else if (relation.isExtension()) {
+				metrics.setExtensionEdges(metrics.getExtensionEdges() + 1);
+			}
+		}
+
+		if (parents != null) {
+			for (Map.Entry<String, List<String>> child : parents.entrySet()) {
+				Integer source = index.get(child.getKey());
+
+				for (String parentName : child.getValue()) {
+					Integer target = index.get(parentName);
+
+					if (source != null && target != null) {
+						addParent(parentNodes, source, target);
+					}
+				}
+			}
+		}
+
+		metrics.setNodes(nodes);
+		metrics.setEdges(relations.size());
+
+		int[] depth = new int[nodes];
+		byte[] state = new byte[nodes];
+		int components = 0;
+		int largestComponent = 0;
+		int isolatedNodes = 0;
+
+		for (int i = 0; i < nodes; i++) {
+			metrics.setMembers(metrics.getMembers() + members[i]);
+			metrics.setMaxMembers(Math.max(metrics.getMaxMembers(), members[i]));
+
+			if (fanIn[i] > metrics.getMaxFanIn()) {
+				metrics.setMaxFanIn(fanIn[i]);
+				metrics.setMaxFanInNode(names.get(i));
+			}
+
+			if (fanOut[i] > metrics.getMaxFanOut()) {
+				metrics.setMaxFanOut(fanOut[i]);
+				metrics.setMaxFanOutNode(names.get(i));
+			}
+
+			if (find(i) == i) {
+				components++;
+				largestComponent = Math.max(largestComponent, size[i]);
+			}
+
+			if (fanIn[i] + fanOut[i] == 0) {
+				isolatedNodes++;
+			}
+
+			metrics.setMaxInheritanceDepth(Math.max(metrics.getMaxInheritanceDepth(), depth(i, parentNodes, depth, state)));
+		}
+
+		metrics.setComponents(components);
+		metrics.setLargestComponent(largestComponent);
+		metrics.setIsolatedNodes(isolatedNodes);
+
+		RenderCostEstimator estimator = new RenderCostEstimator();
+		metrics.setEstimatedRenderMillis(estimator.estimateMillis(
+				estimator.estimate(classDiagrams, interfaceDiagrams, relations), RenderDegradation.NONE));
+
+		return metrics;
+	}
+
+	private int indexOf(String name) {
+		String key = String.valueOf(name);
+		Integer position = index.get(key);
+
+		if (position == null) {
+			position = names.size();
+			index.put(key, position);
+			names.add(key);
+		}
+
+		return position;
+	}
+
+	private static void addParent(List<List<Integer>> parentNodes, int child, int parentNode) {
+		List<Integer> parents = parentNodes.get(child);
+
+		if (parents == null) {
+			parents = new ArrayList<Integer>();
+			parentNodes.set(child, parents);
+		}
+
+		parents.add(parentNode);
+	}
+
+	/**
+	 * Each node is expanded once, a node met again while its own ancestors are
+	 * expanded closes a cycle and counts as a root.
+	 *
+	 * @return edges on the longest chain of parents above the node
+	 */
+	private static int depth(int node, List<List<Integer>> parentNodes, int[] depth, byte[] state) {
+		if (state[node] == 2) {
+			return depth[node];
+		}
+
+		if (state[node] == 1 || parentNodes.get(node) == null) {
+			return 0;
+		}
+
+		state[node] = 1;
+		int max = 0;
+
+		for (int parentNode : parentNodes.get(node)) {
+			max = Math.max(max, depth(parentNode, parentNodes, depth, state) + 1);
+		}
+
+		state[node] = 2;
+		depth[node] = max;
+		return max;
+	}
+
+	private int find(int node) {
+		while (parent[node] != node) {
+			parent[node] = parent[parent[node]];
+			node = parent[node];
+		}
+
+		return node;
+	}
+
+	private void union(int a, int b) {
+		int rootA = find(a);
+		int rootB = find(b);
+
+		if (rootA == rootB) {
+			return;
+		}
+
+		if (size[rootA] < size[rootB]) {
+			int swap = rootA;
+			rootA = rootB;
+			rootB = swap;
+		}
+
+		parent[rootB] = rootA;
+		size[rootA] += size[rootB];
+	}
+}
@@ -0,0 +1,114 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Writes each entry to a temp file next to its target and moves it in place
+ * when the entry is committed. An entry closed without commit leaves the
+ * target as it was.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class DirectorySink implements OutputSink {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final File directory;
+
+	/**
+	 *
+	 * @param directory
+	 *            must exist
+	 * @throws IOException
+	 */
+	public DirectorySink(File directory) throws IOException {
+		if (!directory.isDirectory()) {
+			throw new IOException(directory + " is not a directory");
+		}
+
+		this.directory = directory;
+	}
+
+	@Override
+	public Entry open(String name) throws IOException {
+		final Path target = resolve(name);
+		Files.createDirectories(target.getParent());
+		final Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+
+		return new Entry(new BufferedOutputStream(new FileOutputStream(temp.toFile()), BUFFER_SIZE)) {
+			@Override
+			protected void finish(boolean commit) throws IOException {
+				try {
+					out.close();
+
+					if (commit) {
+						move(temp, target);
+					}
+				} finally {
+					Files.deleteIfExists(temp);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Leaves the file untouched when it already holds the content, so
+	 * incremental consumers only see entries that changed.
+	 */
+	@Override
+	public boolean write(String name, byte[] content) throws IOException {
+		Path target = resolve(name);
+
+		if (Files.isRegularFile(target) && Files.size(target) == content.length
+				&& Arrays.equals(Files.readAllBytes(target), content)) {
+			return false;
+		}
+
+		return OutputSink.super.write(name, content);
+	}
+
+	@Override
+	public File getDirectory() {
+		return directory;
+	}
+
+	@Override
+	public void close() throws IOException {
+		// entries are committed one by one, nothing left to finish
+	}
+
+	/**
+	 *
+	 * @param name
+	 * @return
+	 * @throws IOException
+	 *             if the name escapes the directory
+	 */
+	private Path resolve(String name) throws IOException {
+		Path root = directory.toPath().toAbsolutePath().normalize();
+		Path target = root.resolve(name).normalize();
+
+		if (!target.startsWith(root) || target.equals(root)) {
+			throw new IOException("Entry " + name + " is outside of " + directory);
+		}
+
+		return target;
+	}
+
+	private static void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
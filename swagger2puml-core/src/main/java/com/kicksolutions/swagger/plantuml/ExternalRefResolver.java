@@ -0,0 +1,220 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.swagger.parser.util.DeserializationUtils;
+
+/**
+ * Replaces the $refs of a spec to other local files with local references,
+ * the way the parser would, but taking the referenced documents from a
+ * {@link ReferencedDocumentCache} instead of parsing them for every spec and
+ * every reference:
+ * <ul>
+ * <li>schemas are copied into the definitions of the spec, named after the
+ * last segment of the reference or the file, and referenced from there</li>
+ * <li>anything else, such as parameters, responses and paths, is inlined</li>
+ * </ul>
+ * Remote references are left to the parser.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class ExternalRefResolver {
+
+	private static final String REF = "$ref";
+	private static final String DEFINITIONS = "definitions";
+
+	/** Keys whose value is a schema */
+	private static final Set<String> SCHEMA_KEYS = new HashSet<String>(
+			Arrays.asList("schema", "items", "additionalProperties", "not"));
+
+	/** Keys whose values are schemas */
+	private static final Set<String> SCHEMA_MAPS = new HashSet<String>(Arrays.asList("properties", DEFINITIONS));
+
+	private final ReferencedDocumentCache cache;
+
+	private File specFile;
+	private ObjectNode definitions;
+	private final Map<String, String> definitionNames = new HashMap<String, String>();
+	private final Set<String> inlining = new HashSet<String>();
+
+	/**
+	 *
+	 * @param cache
+	 */
+	public ExternalRefResolver(ReferencedDocumentCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 *
+	 * @param specFile
+	 * @return the parsed spec with local references only, as parsed when it
+	 *         has no references to other local files, null when empty
+	 * @throws IOException
+	 */
+	public JsonNode resolve(File specFile) throws IOException {
+		this.specFile = specFile.getCanonicalFile();
+		this.definitionNames.clear();
+		this.inlining.clear();
+
+		String content = new String(Files.readAllBytes(this.specFile.toPath()), StandardCharsets.UTF_8);
+		JsonNode root = DeserializationUtils.deserializeIntoTree(content, this.specFile.getPath());
+
+		if (root == null || !root.isObject() || !hasExternalRefs(root)) {
+			return root;
+		}
+
+		definitions = ((ObjectNode) root).with(DEFINITIONS);
+		walk(root, this.specFile, false);
+		return root;
+	}
+
+	/**
+	 *
+	 * @param root
+	 * @return whether a $ref points into another local file
+	 */
+	static boolean hasExternalRefs(JsonNode root) {
+		for (JsonNode ref : root.findValues(REF)) {
+			if (ref.isTextual() && !ref.asText().startsWith("#") && !ref.asText().contains("://")) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void walk(JsonNode node, File base, boolean schema) throws IOException {
+		if (node.isArray()) {
+			for (JsonNode element : node) {
+				walk(element, base, false);
+			}
+			return;
+		}
+
+		if (!node.isObject()) {
+			return;
+		}
+
+		ObjectNode object = (ObjectNode) node;
+		JsonNode ref = object.get(REF);
+
+		if (ref != null && ref.isTextual()) {
+			resolveRef(object, ref.asText(), base, schema);
+			return;
+		}
+
+		// names are copied, definitions grow while they are walked
+		List<String> names = new ArrayList<String>();
+		object.fieldNames().forEachRemaining(names::add);
+
+		for (String name : names) {
+			JsonNode child = object.get(name);
+
+			if (SCHEMA_MAPS.contains(name) && child.isObject()) {
+				List<JsonNode> schemas = new ArrayList<JsonNode>();
+				child.elements().forEachRemaining(schemas::add);
+
+				for (JsonNode childSchema : schemas) {
+					walk(childSchema, base, true);
+				}
+			} else if ("allOf".equals(name) && child.isArray()) {
+				for (JsonNode childSchema : child) {
+					walk(childSchema, base, true);
+				}
+			} else {
+				walk(child, base, SCHEMA_KEYS.contains(name));
+			}
+		}
+	}
+
+	private void resolveRef(ObjectNode object, String ref, File base, boolean schema) throws IOException {
+		boolean local = ref.startsWith("#");
+
+		if (ref.contains("://") || (local && base.equals(specFile))) {
+			return;
+		}
+
+		int hash = ref.indexOf('#');
+		String pointer = hash < 0 ? "" : ref.substring(hash + 1);
+		File file = local ? base : new File(base.getParentFile(), hash < 0 ? ref : ref.substring(0, hash)).getCanonicalFile();
+
+		if (file.equals(specFile)) {
+			object.put(REF, "#" + pointer);
+			return;
+		}
+
+		JsonNode document = cache.getDocument(file);
+		JsonNode target = pointer.isEmpty() ? document : document.at(pointer);
+
+		if (target.isMissingNode()) {
+			throw new RuntimeException("Unable to resolve " + ref + " in " + base);
+		}
+
+		String key = file.getPath() + "#" + pointer;
+
+		if (schema || pointer.startsWith("/" + DEFINITIONS + "/")) {
+			String definitionName = definitionNames.get(key);
+
+			if (definitionName == null) {
+				definitionName = addDefinition(key, file, pointer, target);
+			}
+
+			object.put(REF, "#/" + DEFINITIONS + "/" + definitionName);
+		} else {
+			if (!inlining.add(key)) {
+				throw new RuntimeException("Circular reference " + ref + " in " + base);
+			}
+
+			JsonNode copy = target.deepCopy();
+			walk(copy, file, false);
+			inlining.remove(key);
+
+			object.remove(REF);
+			if (copy.isObject()) {
+				object.setAll((ObjectNode) copy);
+			}
+		}
+	}
+
+	/**
+	 * Copies the referenced schema into the definitions of the spec, reusing
+	 * an identical definition of the same name.
+	 *
+	 * @return name of the definition
+	 */
+	private String addDefinition(String key, File file, String pointer, JsonNode target) throws IOException {
+		String baseName = pointer.isEmpty() ? file.getName().split("\\.")[0]
+				: pointer.substring(pointer.lastIndexOf('/') + 1).replace("~1", "/").replace("~0", "~");
+
+		String definitionName = baseName;
+		for (int i = 2; definitions.has(definitionName) && !definitions.get(definitionName).equals(target); i++) {
+			definitionName = baseName + "_" + i;
+		}
+
+		definitionNames.put(key, definitionName);
+
+		if (!definitions.has(definitionName)) {
+			// registered before walking, so cycles end at this definition
+			JsonNode copy = target.deepCopy();
+			definitions.set(definitionName, copy);
+			walk(copy, file, true);
+		}
+
+		return definitionName;
+	}
+}
@@ -0,0 +1,62 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the entries in memory, for embedding and tests.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class InMemorySink implements OutputSink {
+
+	private final Map<String, byte[]> entries = Collections.synchronizedMap(new LinkedHashMap<String, byte[]>());
+
+	public InMemorySink() {
+		super();
+	}
+
+	@Override
+	public Entry open(final String name) throws IOException {
+		final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+		return new Entry(content) {
+			@Override
+			protected void finish(boolean commit) throws IOException {
+				if (commit) {
+					entries.put(name, content.toByteArray());
+				}
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @return committed entries by name, in the order they were written
+	 */
+	public Map<String, byte[]> getEntries() {
+		synchronized (entries) {
+			return new LinkedHashMap<String, byte[]>(entries);
+		}
+	}
+
+	/**
+	 *
+	 * @param name
+	 * @return the entry as UTF-8 text, null when not written
+	 */
+	public String getContent(String name) {
+		byte[] content = entries.get(name);
+		return content == null ? null : new String(content, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void close() throws IOException {
+		// entries stay available after close
+	}
+}
@@ -0,0 +1,90 @@
+package com.kicksolutions.swagger.plantuml;
+
+/**
+ * Directives written into the PUML that trade layout quality for the time
+ * Graphviz needs. Unlike {@link RenderDegradation}, a preset applies to every
+ * diagram whatever its estimated render time.
+ *
+ * @author MSANTOSH
+ *
+ */
+public enum LayoutPreset {
+
+	/** Spline edges and the spacing of Graphviz */
+	QUALITY(false, 0, 0, false, 0),
+	/** Polyline edges, tighter spacing and one interface per tag */
+	BALANCED(true, 25, 35, true, 0),
+	/** As balanced with the tightest spacing, members are hidden above 150 nodes */
+	FAST(true, 15, 20, true, 150);
+
+	private final boolean polylineEdges;
+	private final int nodesep;
+	private final int ranksep;
+	private final boolean groupOperationsByTag;
+	private final int hideMembersAbove;
+
+	private LayoutPreset(boolean polylineEdges, int nodesep, int ranksep, boolean groupOperationsByTag,
+			int hideMembersAbove) {
+		this.polylineEdges = polylineEdges;
+		this.nodesep = nodesep;
+		this.ranksep = ranksep;
+		this.groupOperationsByTag = groupOperationsByTag;
+		this.hideMembersAbove = hideMembersAbove;
+	}
+
+	/**
+	 *
+	 * @return whether edges are routed as polylines instead of splines
+	 */
+	public boolean isPolylineEdges() {
+		return polylineEdges;
+	}
+
+	/**
+	 *
+	 * @return pixels between nodes of a rank, 0 for the default
+	 */
+	public int getNodesep() {
+		return nodesep;
+	}
+
+	/**
+	 *
+	 * @return pixels between ranks, 0 for the default
+	 */
+	public int getRanksep() {
+		return ranksep;
+	}
+
+	/**
+	 *
+	 * @return whether operations are merged into one interface per tag, see
+	 *         {@link PlantUMLCodegen#setGroupOperationsByTag(boolean)}
+	 */
+	public boolean isGroupOperationsByTag() {
+		return groupOperationsByTag;
+	}
+
+	/**
+	 *
+	 * @return nodes above which all members are hidden, 0 to always show them
+	 */
+	public int getHideMembersAbove() {
+		return hideMembersAbove;
+	}
+
+	/**
+	 *
+	 * @param preset
+	 *            name of the preset, in any case
+	 * @return
+	 */
+	public static LayoutPreset parse(String preset) {
+		try {
+			return valueOf(preset.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException(
+					"Unsupported layout preset " + preset + ", expected one of quality, balanced, fast");
+		}
+	}
+}
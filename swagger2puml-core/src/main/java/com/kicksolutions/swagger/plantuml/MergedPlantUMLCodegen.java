@@ -0,0 +1,255 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.Mustache;
+import com.github.mustachejava.MustacheFactory;
+import com.kicksolutions.swagger.plantuml.vo.ClassDiagram;
+import com.kicksolutions.swagger.plantuml.vo.ClassRelation;
+import com.kicksolutions.swagger.plantuml.vo.PackageDiagram;
+
+import io.swagger.models.Swagger;
+
+/**
+ * Generates one system wide class diagram out of several specs. Definitions
+ * that are structurally identical across specs, along with every definition
+ * they reference and whatever their property order or documentation, see
+ * {@link StructuralFingerprint#ofStructure(String, Map, Map)}, are collapsed into a single node of the shared package, everything else is drawn inside the package of
+ * the service declaring it.
+ * 
+ * @author MSANTOSH
+ *
+ */
+public class MergedPlantUMLCodegen {
+
+	private static final Logger LOGGER = Logger.getLogger(MergedPlantUMLCodegen.class.getName());
+	private static final String SHARED_PACKAGE = "Shared";
+
+	private Map<String, Swagger> swaggers;
+	private File targetLocation;
+	private boolean includeCardinality = true;
+
+	/**
+	 * 
+	 * @param swaggers
+	 *            specs keyed by service name, in the order they are drawn
+	 * @param targetLocation
+	 * @param includeCardinality
+	 */
+	public MergedPlantUMLCodegen(Map<String, Swagger> swaggers, File targetLocation, boolean includeCardinality) {
+		this.swaggers = swaggers;
+		this.targetLocation = targetLocation;
+		this.includeCardinality = includeCardinality;
+	}
+
+	/**
+	 * 
+	 */
+	public String generatePuml() throws IOException, IllegalAccessException {
+		LOGGER.entering(LOGGER.getName(), "generatePuml");
+
+		Map<String, Object> additionalProperties = preprocessSwaggers();
+
+		MustacheFactory mf = new DefaultMustacheFactory();
+		Mustache mustache = mf.compile("puml-merged.mustache");
+		String pumlPath = new File(targetLocation, PlantUMLCodegen.PUML_FILE).getAbsolutePath();
+
+		try (OutputSink sink = new DirectorySink(targetLocation);
+				OutputSink.Entry entry = sink.open(PlantUMLCodegen.PUML_FILE)) {
+			Writer writer = entry.newWriter();
+			mustache.execute(writer, additionalProperties);
+			writer.flush();
+			entry.commit();
+
+			LOGGER.log(Level.FINEST, "Sucessfully Written Puml File @ " + pumlPath);
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			LOGGER.log(Level.SEVERE, e.getMessage(), e);
+			throw new IllegalAccessException(e.getMessage());
+		}
+
+		LOGGER.exiting(LOGGER.getName(), "generatePuml");
+		return pumlPath;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	private Map<String, Object> preprocessSwaggers() {
+		LOGGER.entering(LOGGER.getName(), "preprocessSwaggers");
+
+		Map<String, List<ClassDiagram>> serviceDiagrams = new LinkedHashMap<String, List<ClassDiagram>>();
+		Map<String, Map<String, String>> serviceFingerprints = new LinkedHashMap<String, Map<String, String>>();
+		Map<String, Map<String, Set<String>>> fingerprintUsage = new LinkedHashMap<String, Map<String, Set<String>>>();
+		int definitionCount = 0;
+
+		for (Map.Entry<String, Swagger> entry : swaggers.entrySet()) {
+			String service = entry.getKey();
+			PlantUMLCodegen codegen = new PlantUMLCodegen(entry.getValue(), targetLocation, true, includeCardinality);
+			List<ClassDiagram> classDiagrams = codegen.processSwaggerModels(entry.getValue());
+			Map<String, String> fingerprints = new LinkedHashMap<String, String>();
+			Map<String, String> canonicalModels = new HashMap<String, String>();
+
+			for (ClassDiagram classDiagram : classDiagrams) {
+				String fingerprint = StructuralFingerprint.ofStructure(classDiagram.getClassName(),
+						entry.getValue().getDefinitions(), canonicalModels);
+				fingerprints.put(classDiagram.getClassName(), fingerprint);
+				getServices(getFingerprints(fingerprintUsage, classDiagram.getClassName()), fingerprint).add(service);
+			}
+
+			definitionCount += classDiagrams.size();
+			serviceDiagrams.put(service, classDiagrams);
+			serviceFingerprints.put(service, fingerprints);
+		}
+
+		Map<String, String> nodeNames = getNodeNames(fingerprintUsage);
+		Map<String, ClassDiagram> nodes = new LinkedHashMap<String, ClassDiagram>();
+		Map<String, List<ClassDiagram>> packages = new LinkedHashMap<String, List<ClassDiagram>>();
+		Map<String, ClassRelation> relations = new LinkedHashMap<String, ClassRelation>();
+		int sharedCount = 0;
+
+		packages.put(SHARED_PACKAGE, new ArrayList<ClassDiagram>());
+
+		for (Map.Entry<String, List<ClassDiagram>> entry : serviceDiagrams.entrySet()) {
+			String service = entry.getKey();
+			Map<String, String> fingerprints = serviceFingerprints.get(service);
+			packages.put(service, new ArrayList<ClassDiagram>());
+
+			for (ClassDiagram classDiagram : entry.getValue()) {
+				String className = classDiagram.getClassName();
+				String fingerprint = fingerprints.get(className);
+				String nodeName = nodeNames.get(nodeKey(className, fingerprint));
+
+				if (!nodes.containsKey(nodeName)) {
+					ClassDiagram node = new ClassDiagram(nodeName, classDiagram.getDescription(),
+							classDiagram.getFields(), new ArrayList<ClassRelation>(), classDiagram.isClass(),
+							classDiagram.getSuperClass());
+					boolean shared = fingerprintUsage.get(className).get(fingerprint).size() > 1;
+
+					nodes.put(nodeName, node);
+					packages.get(shared ? SHARED_PACKAGE : service).add(node);
+
+					if (shared) {
+						sharedCount++;
+					}
+				}
+
+				for (ClassRelation relation : classDiagram.getChildClass()) {
+					String target = relation.getTargetClass();
+
+					if (fingerprints.containsKey(target)) {
+						target = nodeNames.get(nodeKey(target, fingerprints.get(target)));
+					}
+
+					String relationKey = nodeName + "->" + target;
+
+					if (!relations.containsKey(relationKey)) {
+						ClassRelation mergedRelation = new ClassRelation(target, relation.isExtension(),
+								relation.isComposition(), relation.getCardinality(), nodeName);
+						mergedRelation.setInheritance(relation.isInheritance());
+						relations.put(relationKey, mergedRelation);
+					}
+				}
+			}
+		}
+
+		List<PackageDiagram> packageDiagrams = new ArrayList<PackageDiagram>();
+
+		for (Map.Entry<String, List<ClassDiagram>> entry : packages.entrySet()) {
+			if (!entry.getValue().isEmpty()) {
+				packageDiagrams.add(new PackageDiagram(entry.getKey(), entry.getValue()));
+			}
+		}
+
+		LOGGER.info("Merged " + definitionCount + " definitions from " + swaggers.size() + " specs into "
+				+ nodes.size() + " nodes (" + sharedCount + " shared)");
+
+		Map<String, Object> additionalProperties = new TreeMap<String, Object>();
+		additionalProperties.put("packages", packageDiagrams);
+		additionalProperties.put("entityRelations", new ArrayList<ClassRelation>(relations.values()));
+		additionalProperties.put("serviceCount", swaggers.size());
+		additionalProperties.put("definitionCount", definitionCount);
+		additionalProperties.put("nodeCount", nodes.size());
+		additionalProperties.put("sharedCount", sharedCount);
+
+		LOGGER.exiting(LOGGER.getName(), "preprocessSwaggers");
+		return additionalProperties;
+	}
+
+	/**
+	 * The structure used by most services keeps the plain definition name, the
+	 * other variants are prefixed with the first service declaring them.
+	 * 
+	 * @param fingerprintUsage
+	 * @return
+	 */
+	private Map<String, String> getNodeNames(Map<String, Map<String, Set<String>>> fingerprintUsage) {
+		Map<String, String> nodeNames = new LinkedHashMap<String, String>();
+
+		for (Map.Entry<String, Map<String, Set<String>>> entry : fingerprintUsage.entrySet()) {
+			String className = entry.getKey();
+			String primaryFingerprint = null;
+			int primaryUsage = 0;
+
+			for (Map.Entry<String, Set<String>> usage : entry.getValue().entrySet()) {
+				if (usage.getValue().size() > primaryUsage) {
+					primaryFingerprint = usage.getKey();
+					primaryUsage = usage.getValue().size();
+				}
+			}
+
+			for (Map.Entry<String, Set<String>> usage : entry.getValue().entrySet()) {
+				if (usage.getKey().equals(primaryFingerprint)) {
+					nodeNames.put(nodeKey(className, usage.getKey()), className);
+				} else {
+					String service = usage.getValue().iterator().next();
+					nodeNames.put(nodeKey(className, usage.getKey()), new StringBuilder()
+							.append(service.replaceAll("[^A-Za-z0-9_]", "")).append('.').append(className).toString());
+				}
+			}
+		}
+
+		return nodeNames;
+	}
+
+	private static String nodeKey(String className, String fingerprint) {
+		return className + "#" + fingerprint;
+	}
+
+	private static Set<String> getServices(Map<String, Set<String>> map, String key) {
+		Set<String> value = map.get(key);
+
+		if (value == null) {
+			value = new LinkedHashSet<String>();
+			map.put(key, value);
+		}
+
+		return value;
+	}
+
+	private static Map<String, Set<String>> getFingerprints(Map<String, Map<String, Set<String>>> map, String key) {
+		Map<String, Set<String>> value = map.get(key);
+
+		if (value == null) {
+			value = new LinkedHashMap<String, Set<String>>();
+			map.put(key, value);
+		}
+
+		return value;
+	}
+}
@@ -0,0 +1,48 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.util.List;
+import java.util.Map;
+
+import com.kicksolutions.swagger.plantuml.vo.ClassMembers;
+
+import io.swagger.models.Model;
+
+/**
+ * Converts a definition, or the schema of a body parameter, see
+ * {@link PlantUMLCodegen#registerModelHandler(Class, ModelHandler)}.
+ * 
+ * @author MSANTOSH
+ *
+ * @param <M>
+ */
+public interface ModelHandler<M extends Model> {
+
+	/**
+	 * 
+	 * @param model
+	 * @param models
+	 *            all definitions of the spec
+	 * @return members of the class drawn for the definition
+	 */
+	List<ClassMembers> getClassMembers(M model, Map<String, Model> models);
+
+	/**
+	 * 
+	 * @param model
+	 * @return the class the definition extends, or null
+	 */
+	default String getSuperClass(M model) {
+		return null;
+	}
+
+	/**
+	 * 
+	 * @param model
+	 *            schema of a body parameter
+	 * @param models
+	 *            all definitions of the spec
+	 * @return member whose data type names the schema and whose class name is
+	 *         the definition it refers to, if any
+	 */
+	ClassMembers asType(M model, Map<String, Model> models);
+}
@@ -0,0 +1,178 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Destination of the generated files. Entries are addressed by a relative
+ * name using / as separator, e.g. {@code classes/Pet.iuml}, and only become
+ * visible once {@link Entry#commit()} is called, so a reader never sees a
+ * partially written entry. Closing the sink finishes the output, e.g. the
+ * central directory of a zip.
+ *
+ * @author MSANTOSH
+ *
+ */
+public interface OutputSink extends Closeable {
+
+	/**
+	 *
+	 * @param name
+	 * @return buffered stream of the entry, the entry is published by
+	 *         {@link Entry#commit()} and dropped when closed without it
+	 * @throws IOException
+	 */
+	Entry open(String name) throws IOException;
+
+	/**
+	 *
+	 * @param name
+	 * @param content
+	 * @return false when the sink already holds the content and skipped the write
+	 * @throws IOException
+	 */
+	default boolean write(String name, byte[] content) throws IOException {
+		try (Entry entry = open(name)) {
+			entry.write(content);
+			entry.commit();
+		}
+		return true;
+	}
+
+	/**
+	 * Copies every file below the directory, named by its relative path.
+	 *
+	 * @param directory
+	 * @param prefix
+	 *            prepended to the names, empty or ending with /
+	 * @throws IOException
+	 */
+	default void writeTree(File directory, String prefix) throws IOException {
+		Path root = directory.toPath();
+
+		try (Stream<Path> files = Files.walk(root)) {
+			for (Iterator<Path> iterator = files.sorted().iterator(); iterator.hasNext();) {
+				Path file = iterator.next();
+
+				if (Files.isRegularFile(file)) {
+					try (Entry entry = open(prefix + root.relativize(file).toString().replace(File.separatorChar, '/'))) {
+						Files.copy(file, entry);
+						entry.commit();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Closes the sink after a failure, keeping whatever the target held before
+	 * where the sink can. Entries already committed to a directory stay.
+	 */
+	default void abort() {
+		try {
+			close();
+		} catch (IOException e) {
+			// the failure that caused the abort is reported instead
+		}
+	}
+
+	/**
+	 *
+	 * @return the directory entries are written to, null when the sink is not
+	 *         backed by a directory
+	 */
+	default File getDirectory() {
+		return null;
+	}
+
+	/**
+	 *
+	 * @param output
+	 *            - for stdout, a .zip file or a directory
+	 * @return
+	 * @throws IOException
+	 */
+	static OutputSink forLocation(String output) throws IOException {
+		if (PlantUMLGenerator.STANDARD_STREAM.equals(output)) {
+			return new StdoutSink();
+		}
+
+		if (ZipSink.isZipLocation(output)) {
+			return new ZipSink(new File(output));
+		}
+
+		return new DirectorySink(new File(output));
+	}
+
+	/**
+	 * Stream of one entry. Whatever fails before {@link #commit()}, e.g. a
+	 * template throwing halfway, closing the entry discards what was written.
+	 */
+	abstract class Entry extends FilterOutputStream {
+
+		private boolean committed = false;
+		private boolean closed = false;
+
+		protected Entry(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		/**
+		 *
+		 * @return buffered UTF-8 writer of the entry, to be flushed before
+		 *         {@link #commit()}
+		 */
+		public Writer newWriter() {
+			return new BufferedWriter(new OutputStreamWriter(this, StandardCharsets.UTF_8));
+		}
+
+		/**
+		 * Publishes the entry and closes it.
+		 *
+		 * @throws IOException
+		 */
+		public void commit() throws IOException {
+			if (closed) {
+				throw new IOException("Entry is already closed");
+			}
+
+			committed = true;
+			close();
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+
+			closed = true;
+			finish(committed);
+		}
+
+		/**
+		 * Called once when the entry is closed.
+		 *
+		 * @param commit
+		 *            false to discard the entry
+		 * @throws IOException
+		 */
+		protected abstract void finish(boolean commit) throws IOException;
+	}
+}
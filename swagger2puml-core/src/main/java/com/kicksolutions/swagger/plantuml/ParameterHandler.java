@@ -0,0 +1,35 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.kicksolutions.swagger.plantuml.vo.ClassRelation;
+
+import io.swagger.models.parameters.Parameter;
+
+/**
+ * Converts an operation parameter into a method parameter of the interface,
+ * see {@link PlantUMLCodegen#registerParameterHandler(Class, ParameterHandler)}.
+ * 
+ * @author MSANTOSH
+ *
+ * @param <P>
+ */
+public interface ParameterHandler<P extends Parameter> {
+
+	/**
+	 * 
+	 * @param parameter
+	 * @return type and name of the parameter, e.g. "Long petId"
+	 */
+	String toMethodParameter(P parameter);
+
+	/**
+	 * 
+	 * @param parameter
+	 * @return relations from the interface to the classes the parameter uses
+	 */
+	default List<ClassRelation> getRelations(P parameter) {
+		return Collections.emptyList();
+	}
+}
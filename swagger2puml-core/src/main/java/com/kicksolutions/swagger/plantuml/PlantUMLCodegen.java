@@ -4,16 +4,22 @@
 package com.kicksolutions.swagger.plantuml;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Set;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,10 +29,13 @@ import com.github.mustachejava.DefaultMustacheFactory;
 import com.github.mustachejava.Mustache;
 import com.github.mustachejava.MustacheFactory;
 import com.kicksolutions.swagger.plantuml.vo.ClassDiagram;
+import com.kicksolutions.swagger.plantuml.vo.ClassMemberStore;
 import com.kicksolutions.swagger.plantuml.vo.ClassMembers;
 import com.kicksolutions.swagger.plantuml.vo.ClassRelation;
+import com.kicksolutions.swagger.plantuml.vo.DiagramMetrics;
 import com.kicksolutions.swagger.plantuml.vo.InterfaceDiagram;
 import com.kicksolutions.swagger.plantuml.vo.MethodDefinitions;
+import com.kicksolutions.swagger.plantuml.vo.RenderCostEstimate;
 
 import io.swagger.models.ArrayModel;
 import io.swagger.models.ComposedModel;
@@ -37,16 +46,17 @@ import io.swagger.models.Path;
 import io.swagger.models.RefModel;
 import io.swagger.models.Response;
 import io.swagger.models.Swagger;
+import io.swagger.models.parameters.AbstractSerializableParameter;
 import io.swagger.models.parameters.BodyParameter;
-import io.swagger.models.parameters.FormParameter;
 import io.swagger.models.parameters.Parameter;
-import io.swagger.models.parameters.PathParameter;
 import io.swagger.models.parameters.QueryParameter;
 import io.swagger.models.properties.ArrayProperty;
+import io.swagger.models.properties.MapProperty;
 import io.swagger.models.properties.ObjectProperty;
 import io.swagger.models.properties.Property;
 import io.swagger.models.properties.RefProperty;
 import io.swagger.models.properties.StringProperty;
+import io.swagger.util.Json;
 
 /**
  * @author MSANTOSH
@@ -55,9 +65,28 @@ import io.swagger.models.properties.StringProperty;
 public class PlantUMLCodegen {
 
 	private static final Logger LOGGER = Logger.getLogger(PlantUMLCodegen.class.getName());
+	
+	/** Name of the generated root PUML */
+	public static final String PUML_FILE = "swagger.puml";
+	public static final String METRICS_FILE = "swagger-metrics.json";
 
 	private boolean generateDefinitionModelOnly = false;
 	private boolean includeCardinality = true;
+	private boolean groupOperationsByTag = false;
+	private long renderBudgetMillis = 0;
+	private boolean shardOutput = false;
+	private boolean compactMembers = false;
+	private int maxEnumValues = 0;
+	private int maxMembers = 0;
+	private boolean flattenInheritance = true;
+	private boolean simplifyRelations = false;
+	private boolean writeMetrics = false;
+	private LayoutPreset layoutPreset = LayoutPreset.QUALITY;
+	private Map<String, ClassDiagram> classDiagramCache;
+	private final TypeHandlerRegistry<Property, PropertyHandler<?>> propertyHandlers = new TypeHandlerRegistry<Property, PropertyHandler<?>>();
+	private final TypeHandlerRegistry<Parameter, ParameterHandler<?>> parameterHandlers = new TypeHandlerRegistry<Parameter, ParameterHandler<?>>();
+	private final TypeHandlerRegistry<Model, ModelHandler<?>> modelHandlers = new TypeHandlerRegistry<Model, ModelHandler<?>>();
+	private final Set<Class<?>> unsupportedTypes = new HashSet<Class<?>>();
 	private Swagger swagger;
 	private File targetLocation;
 	private static final String CARDINALITY_ONE_TO_MANY = "1..*";
@@ -74,48 +103,507 @@ public class PlantUMLCodegen {
 		this.targetLocation = targetLocation;
 		this.generateDefinitionModelOnly = generateDefinitionModelOnly;
 		this.includeCardinality = includeCardinality;
+		registerDefaultHandlers();
 	}
 
 	/**
+	 * Handles a property type, or a supertype, that the built in handlers do not
+	 * cover or should cover differently.
 	 * 
+	 * @param type
+	 * @param handler
 	 */
-	public String generatePuml() throws IOException, IllegalAccessException {
-		LOGGER.entering(LOGGER.getName(), "generatePuml");
+	public <P extends Property> void registerPropertyHandler(Class<P> type, PropertyHandler<? super P> handler) {
+		propertyHandlers.register(type, handler);
+	}
+
+	/**
+	 * Handles a parameter type, see {@link #registerPropertyHandler}.
+	 * 
+	 * @param type
+	 * @param handler
+	 */
+	public <P extends Parameter> void registerParameterHandler(Class<P> type, ParameterHandler<? super P> handler) {
+		parameterHandlers.register(type, handler);
+	}
+
+	/**
+	 * Handles a model type, see {@link #registerPropertyHandler}.
+	 * 
+	 * @param type
+	 * @param handler
+	 */
+	public <M extends Model> void registerModelHandler(Class<M> type, ModelHandler<? super M> handler) {
+		modelHandlers.register(type, handler);
+	}
+
+	/**
+	 * Built in handlers, covering every type of the swagger-models hierarchy
+	 * either directly or through a supertype.
+	 */
+	private void registerDefaultHandlers() {
+		registerPropertyHandler(Property.class, (property, name, owner, models) -> getClassMember(property, name));
+		registerPropertyHandler(RefProperty.class,
+				(property, name, owner, models) -> getClassMember(property, models, owner, name));
+		registerPropertyHandler(ArrayProperty.class,
+				(property, name, owner, models) -> getClassMember(property, owner, models, name));
+		registerPropertyHandler(MapProperty.class,
+				(property, name, owner, models) -> getClassMember(property, owner, models, name));
+
+		registerParameterHandler(AbstractSerializableParameter.class, this::getMethodParameter);
+		registerParameterHandler(QueryParameter.class, this::getMethodParameter);
+		registerParameterHandler(BodyParameter.class, new ParameterHandler<BodyParameter>() {
+			@Override
+			public String toMethodParameter(BodyParameter parameter) {
+				return getMethodParameter(parameter);
+			}
+
+			@Override
+			public List<ClassRelation> getRelations(BodyParameter parameter) {
+				return PlantUMLCodegen.this.getRelations(parameter);
+			}
+		});
+
+		registerModelHandler(ModelImpl.class, new ModelHandler<ModelImpl>() {
+			@Override
+			public List<ClassMembers> getClassMembers(ModelImpl model, Map<String, Model> models) {
+				return PlantUMLCodegen.this.getClassMembers(model, models);
+			}
+
+			@Override
+			public String getSuperClass(ModelImpl model) {
+				return PlantUMLCodegen.this.getSuperClass(model);
+			}
+
+			@Override
+			public ClassMembers asType(ModelImpl model, Map<String, Model> models) {
+				return PlantUMLCodegen.this.asType(model);
+			}
+		});
+		registerModelHandler(ArrayModel.class, new ModelHandler<ArrayModel>() {
+			@Override
+			public List<ClassMembers> getClassMembers(ArrayModel model, Map<String, Model> models) {
+				return PlantUMLCodegen.this.getClassMembers(model, models);
+			}
+
+			@Override
+			public String getSuperClass(ArrayModel model) {
+				return PlantUMLCodegen.this.getSuperClass(model);
+			}
+
+			@Override
+			public ClassMembers asType(ArrayModel model, Map<String, Model> models) {
+				return PlantUMLCodegen.this.asType(model, models);
+			}
+		});
+		registerModelHandler(ComposedModel.class, new ModelHandler<ComposedModel>() {
+			@Override
+			public List<ClassMembers> getClassMembers(ComposedModel model, Map<String, Model> models) {
+				return PlantUMLCodegen.this.getClassMembers(model, models);
+			}
+
+			@Override
+			public ClassMembers asType(ComposedModel model, Map<String, Model> models) {
+				return PlantUMLCodegen.this.asType(model);
+			}
+		});
+		registerModelHandler(RefModel.class, new ModelHandler<RefModel>() {
+			@Override
+			public List<ClassMembers> getClassMembers(RefModel model, Map<String, Model> models) {
+				return PlantUMLCodegen.this.getClassMembers(model);
+			}
+
+			@Override
+			public ClassMembers asType(RefModel model, Map<String, Model> models) {
+				return PlantUMLCodegen.this.asType(model);
+			}
+		});
+	}
+
+	/**
+	 * 
+	 * @param parameter
+	 * @return handler of the parameter, null if its type is not supported
+	 */
+	@SuppressWarnings("unchecked")
+	private ParameterHandler<Parameter> getParameterHandler(Parameter parameter) {
+		ParameterHandler<Parameter> handler = (ParameterHandler<Parameter>) parameterHandlers.get(parameter.getClass());
+
+		if (handler == null) {
+			reportUnsupportedType(parameter.getClass());
+		}
+
+		return handler;
+	}
+
+	/**
+	 * 
+	 * @param model
+	 * @return handler of the model, null if its type is not supported
+	 */
+	@SuppressWarnings("unchecked")
+	private ModelHandler<Model> getModelHandler(Model model) {
+		ModelHandler<Model> handler = (ModelHandler<Model>) modelHandlers.get(model.getClass());
+
+		if (handler == null) {
+			reportUnsupportedType(model.getClass());
+		}
+
+		return handler;
+	}
+
+	private void reportUnsupportedType(Class<?> type) {
+		if (unsupportedTypes.add(type)) {
+			LOGGER.warning("No handler registered for " + type.getName() + ", it is left out of the diagram");
+		}
+	}
+
+	private Map<String, Model> getDefinitions() {
+		return swagger.getDefinitions() != null ? swagger.getDefinitions() : Collections.<String, Model>emptyMap();
+	}
+
+	/**
+	 * When enabled all operations sharing an interface name (i.e. the same first
+	 * tag) are merged into a single interface instead of one interface per
+	 * operation.
+	 * 
+	 * @param groupOperationsByTag
+	 */
+	public void setGroupOperationsByTag(boolean groupOperationsByTag) {
+		this.groupOperationsByTag = groupOperationsByTag;
+	}
+
+	/**
+	 * Estimated render time above which the diagram is degraded, see
+	 * {@link RenderDegradation}. Zero or less disables the check.
+	 * 
+	 * @param renderBudgetMillis
+	 */
+	public void setRenderBudgetMillis(long renderBudgetMillis) {
+		this.renderBudgetMillis = renderBudgetMillis;
+	}
+
+	/**
+	 * When enabled every class and interface is written to its own include
+	 * file and swagger.puml only includes them, see
+	 * {@link #generateShardedPuml(MustacheFactory, Map, OutputSink)}
+	 * 
+	 * @param shardOutput
+	 */
+	public void setShardOutput(boolean shardOutput) {
+		this.shardOutput = shardOutput;
+	}
+
+	/**
+	 * When enabled the members of all classes are kept in a single
+	 * {@link ClassMemberStore} instead of one object per member.
+	 * 
+	 * @param compactMembers
+	 */
+	public void setCompactMembers(boolean compactMembers) {
+		this.compactMembers = compactMembers;
+	}
+
+	/**
+	 * Enum values beyond this many are collapsed into a single "… N more"
+	 * member. Zero or less keeps all values.
+	 * 
+	 * @param maxEnumValues
+	 */
+	public void setMaxEnumValues(int maxEnumValues) {
+		this.maxEnumValues = maxEnumValues;
+	}
+
+	/**
+	 * Members of a class beyond this many, inherited ones included, are
+	 * collapsed into a single "… N more" member and no relations are drawn
+	 * for them. Zero or less keeps all members.
+	 * 
+	 * @param maxMembers
+	 */
+	public void setMaxMembers(int maxMembers) {
+		this.maxMembers = maxMembers;
+	}
+
+	/**
+	 * When enabled, the default, subclasses of an allOf list the members of
+	 * all their ancestors. Otherwise they only list their own members and
+	 * extend the referenced parents.
+	 * 
+	 * @param flattenInheritance
+	 */
+	public void setFlattenInheritance(boolean flattenInheritance) {
+		this.flattenInheritance = flattenInheritance;
+	}
+
+	/**
+	 * Passes the relations through {@link RelationGraphSimplifier} before
+	 * they are rendered.
+	 * 
+	 * @param simplifyRelations
+	 */
+	public void setSimplifyRelations(boolean simplifyRelations) {
+		this.simplifyRelations = simplifyRelations;
+	}
+
+	/**
+	 * Writes the {@link DiagramMetrics} of the relations as drawn to
+	 * swagger-metrics.json next to the PUML.
+	 * 
+	 * @param writeMetrics
+	 */
+	public void setWriteMetrics(boolean writeMetrics) {
+		this.writeMetrics = writeMetrics;
+	}
+
+	/**
+	 * Layout directives written into the PUML, see {@link LayoutPreset}.
+	 * 
+	 * @param layoutPreset
+	 */
+	public void setLayoutPreset(LayoutPreset layoutPreset) {
+		this.layoutPreset = layoutPreset;
+	}
+
+	/**
+	 * Class diagrams by definition fingerprint, shared between runs so that
+	 * unchanged definitions are not processed again.
+	 * 
+	 * @param classDiagramCache
+	 */
+	public void setClassDiagramCache(Map<String, ClassDiagram> classDiagramCache) {
+		this.classDiagramCache = classDiagramCache;
+	}
+
+	/**
+	 * Writes the PUML to the given writer instead of swagger.puml, as it is
+	 * generated. Sharding does not apply here.
+	 * 
+	 * @param writer
+	 * @throws IOException
+	 * @throws IllegalAccessException
+	 */
+	public void generatePuml(Writer writer) throws IOException, IllegalAccessException {
+		LOGGER.entering(LOGGER.getName(), "generatePuml-Writer");
 
 		Map<String, Object> additionalProperties = preprocessSwagger(swagger);
 
 		MustacheFactory mf = new DefaultMustacheFactory();
 		Mustache mustache = mf.compile("puml.mustache");
-		Writer writer = null;
-		String pumlPath = new StringBuilder()
-				.append(targetLocation.getAbsolutePath())
-				.append(File.separator)
-				.append("swagger.puml")
-				.toString();
 
 		try {
-			writer = new FileWriter(pumlPath);
 			mustache.execute(writer, additionalProperties);
-
-			LOGGER.log(Level.FINEST, "Sucessfully Written Puml File @ " + pumlPath);
 		} catch (Exception e) {
 			LOGGER.log(Level.SEVERE, e.getMessage(), e);
 			throw new IllegalAccessException(e.getMessage());
 		} finally {
-			if (writer != null) {
-				writer.flush();
-			}
+			writer.flush();
+		}
+
+		LOGGER.exiting(LOGGER.getName(), "generatePuml-Writer");
+	}
+
+	/**
+	 * 
+	 */
+	public String generatePuml() throws IOException, IllegalAccessException {
+		LOGGER.entering(LOGGER.getName(), "generatePuml");
+
+		String pumlPath = new File(targetLocation, PUML_FILE).getAbsolutePath();
+
+		try (OutputSink sink = new DirectorySink(targetLocation)) {
+			generatePuml(sink);
 		}
 
 		LOGGER.exiting(LOGGER.getName(), "generatePuml");
 		return pumlPath;
 	}
 
+	/**
+	 * Writes swagger.puml, and the shards when sharding, to the sink.
+	 * 
+	 * @param sink
+	 * @throws IOException
+	 * @throws IllegalAccessException
+	 */
+	public void generatePuml(OutputSink sink) throws IOException, IllegalAccessException {
+		LOGGER.entering(LOGGER.getName(), "generatePuml-Sink");
+
+		generatePuml(preprocessSwagger(swagger), sink);
+
+		LOGGER.exiting(LOGGER.getName(), "generatePuml-Sink");
+	}
+
+	/**
+	 * Renders a model built by {@link #preprocessSwagger(Swagger)}, so the two
+	 * steps can run on different threads.
+	 * 
+	 * @param additionalProperties
+	 * @param sink
+	 * @throws IOException
+	 * @throws IllegalAccessException
+	 */
+	void generatePuml(Map<String, Object> additionalProperties, OutputSink sink)
+			throws IOException, IllegalAccessException {
+		MustacheFactory mf = new DefaultMustacheFactory();
+
+		if (additionalProperties.get("diagramMetrics") != null) {
+			sink.write(METRICS_FILE, Json.pretty().writeValueAsBytes(additionalProperties.get("diagramMetrics")));
+		}
+
+		if (shardOutput) {
+			generateShardedPuml(mf, additionalProperties, sink);
+			return;
+		}
+
+		Mustache mustache = mf.compile("puml.mustache");
+
+		try (OutputSink.Entry entry = sink.open(PUML_FILE)) {
+			Writer writer = entry.newWriter();
+			mustache.execute(writer, additionalProperties);
+			writer.flush();
+			entry.commit();
+
+			LOGGER.log(Level.FINEST, "Sucessfully Written Puml File " + PUML_FILE);
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			LOGGER.log(Level.SEVERE, e.getMessage(), e);
+			throw new IllegalAccessException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes each class to classes/&lt;name&gt;.iuml and each interface to
+	 * interfaces/&lt;name&gt;.iuml next to the root PUML, which only holds the
+	 * includes and the relations. Names that only differ once sanitized get a
+	 * numbered suffix. Files are written in parallel and left untouched when
+	 * their content did not change, shards of a previous run that are no
+	 * longer written are removed.
+	 * 
+	 * @param mf
+	 * @param additionalProperties
+	 * @param sink
+	 * @throws IllegalAccessException
+	 */
+	@SuppressWarnings("unchecked")
+	private void generateShardedPuml(MustacheFactory mf, Map<String, Object> additionalProperties, OutputSink sink)
+			throws IllegalAccessException {
+		Map<String, StringWriter> shards = new LinkedHashMap<String, StringWriter>();
+		Map<String, String> shardNames = new HashMap<String, String>();
+		// names differing in case only clash on case insensitive file systems
+		Set<String> takenNames = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+		Mustache classMustache = mf.compile("puml-class.mustache");
+		Mustache interfaceMustache = mf.compile("puml-interface.mustache");
+
+		for (ClassDiagram classDiagram : (List<ClassDiagram>) additionalProperties.get("classDiagrams")) {
+			classMustache.execute(getShard(shards, shardNames, takenNames, "classes", classDiagram.getClassName()), classDiagram);
+		}
+
+		if (additionalProperties.containsKey("interfaceDiagrams")) {
+			for (InterfaceDiagram interfaceDiagram : (List<InterfaceDiagram>) additionalProperties
+					.get("interfaceDiagrams")) {
+				interfaceMustache.execute(
+						getShard(shards, shardNames, takenNames, "interfaces", interfaceDiagram.getInterfaceName()),
+						interfaceDiagram);
+			}
+		}
+
+		Map<String, Object> rootProperties = new TreeMap<String, Object>(additionalProperties);
+		rootProperties.remove("classDiagrams");
+		rootProperties.remove("interfaceDiagrams");
+		rootProperties.put("includes", new ArrayList<String>(shards.keySet()));
+
+		Map<String, String> files = new LinkedHashMap<String, String>();
+		for (Map.Entry<String, StringWriter> shard : shards.entrySet()) {
+			files.put(shard.getKey(), shard.getValue().toString());
+		}
+		files.put(PUML_FILE, mf.compile("puml.mustache").execute(new StringWriter(), rootProperties).toString());
+
+		if (sink.getDirectory() != null) {
+			removeStaleShards(sink.getDirectory(), files.keySet());
+		}
+
+		AtomicInteger written = new AtomicInteger();
+
+		try {
+			files.entrySet().parallelStream().forEach(file -> {
+				try {
+					if (sink.write(file.getKey(), file.getValue().getBytes(StandardCharsets.UTF_8))) {
+						written.incrementAndGet();
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			LOGGER.log(Level.SEVERE, e.getMessage(), e);
+			throw new IllegalAccessException(e.getMessage());
+		}
+
+		LOGGER.info("Written " + written.get() + " of " + files.size() + " PUML shards, "
+				+ (files.size() - written.get()) + " unchanged");
+	}
+
+	/**
+	 * 
+	 * @param shards
+	 * @param shardNames
+	 *            shard of each folder/name
+	 * @param takenNames
+	 *            shard names in use, names sanitized alike get distinct shards
+	 * @param folder
+	 * @param name
+	 * @return
+	 */
+	private StringWriter getShard(Map<String, StringWriter> shards, Map<String, String> shardNames,
+			Set<String> takenNames, String folder, String name) {
+		String key = folder + '/' + name;
+		String shardName = shardNames.get(key);
+
+		if (shardName == null) {
+			String baseName = folder + '/' + name.replaceAll("[^A-Za-z0-9_.-]", "_");
+			shardName = baseName + ".iuml";
+
+			for (int i = 2; !takenNames.add(shardName); i++) {
+				shardName = baseName + "_" + i + ".iuml";
+			}
+
+			shardNames.put(key, shardName);
+			shards.put(shardName, new StringWriter());
+		}
+
+		return shards.get(shardName);
+	}
+
+	/**
+	 * Deletes the .iuml files of the shard folders that are not about to be
+	 * written, e.g. of definitions removed from the spec.
+	 * 
+	 * @param directory
+	 * @param files
+	 */
+	private void removeStaleShards(File directory, Set<String> files) {
+		for (String folder : new String[] { "classes", "interfaces" }) {
+			File[] shardFiles = new File(directory, folder).listFiles((dir, name) -> name.endsWith(".iuml"));
+
+			if (shardFiles == null) {
+				continue;
+			}
+
+			for (File shardFile : shardFiles) {
+				if (!files.contains(folder + '/' + shardFile.getName()) && shardFile.delete()) {
+					LOGGER.fine("Removed stale shard " + shardFile);
+				}
+			}
+		}
+	}
+
 	/**
 	 * 
 	 * @param swagger
 	 */
-	private Map<String, Object> preprocessSwagger(Swagger swagger) {
+	Map<String, Object> preprocessSwagger(Swagger swagger) {
 		LOGGER.entering(LOGGER.getName(), "preprocessSwagger");
 
 		Map<String, Object> additionalProperties = new TreeMap<String, Object>();
@@ -133,13 +621,124 @@ public class PlantUMLCodegen {
 			additionalProperties.put("interfaceDiagrams", interfaceDiagrams);
 		}
 		
-		additionalProperties.put("entityRelations", getRelations(classDiagrams, interfaceDiagrams));
+		List<ClassRelation> relations = getRelations(classDiagrams, interfaceDiagrams);
+
+		if (simplifyRelations) {
+			RelationGraphSimplifier simplifier = new RelationGraphSimplifier();
+			relations = simplifier.simplify(relations, classDiagrams, interfaceDiagrams);
+			additionalProperties.put("errorBundle", simplifier.getErrorBundle());
+		}
+
+		additionalProperties.put("entityRelations", relations);
+
+		if (writeMetrics) {
+			DiagramMetrics metrics = new DiagramMetricsCalculator().calculate(classDiagrams, interfaceDiagrams,
+					relations, getAllOfParents(swagger));
+			metrics.setTitle(swagger.getInfo().getTitle());
+			metrics.setVersion(swagger.getInfo().getVersion());
+			additionalProperties.put("diagramMetrics", metrics);
+			LOGGER.info(metrics.toString());
+		}
+
+		if (renderBudgetMillis > 0) {
+			applyRenderBudget(additionalProperties, classDiagrams, interfaceDiagrams, relations);
+		}
+
+		applyLayoutPreset(additionalProperties, classDiagrams.size() + interfaceDiagrams.size());
 
 		LOGGER.exiting(LOGGER.getName(), "preprocessSwagger");
 
 		return additionalProperties;
 	}
 	
+	/**
+	 * 
+	 * @param swagger
+	 * @return the definitions referenced in the allOf of each composed
+	 *         definition
+	 */
+	private Map<String, List<String>> getAllOfParents(Swagger swagger) {
+		Map<String, List<String>> parents = new HashMap<String, List<String>>();
+
+		if (swagger.getDefinitions() == null) {
+			return parents;
+		}
+
+		for (Map.Entry<String, Model> definition : swagger.getDefinitions().entrySet()) {
+			if (definition.getValue() instanceof ComposedModel) {
+				List<String> parentNames = new ArrayList<String>();
+
+				for (Model part : ((ComposedModel) definition.getValue()).getAllOf()) {
+					if (part instanceof RefModel) {
+						parentNames.add(((RefModel) part).getSimpleRef());
+					}
+				}
+
+				parents.put(definition.getKey(), parentNames);
+			}
+		}
+
+		return parents;
+	}
+
+	/**
+	 * Sets the template flags of the degradation needed to bring the estimated
+	 * render time within the budget.
+	 * 
+	 * @param additionalProperties
+	 * @param classDiagrams
+	 * @param interfaceDiagrams
+	 * @param relations
+	 */
+	private void applyRenderBudget(Map<String, Object> additionalProperties, List<ClassDiagram> classDiagrams,
+			List<InterfaceDiagram> interfaceDiagrams, List<ClassRelation> relations) {
+		RenderCostEstimator estimator = new RenderCostEstimator();
+		RenderCostEstimate estimate = estimator.estimate(classDiagrams, interfaceDiagrams, relations);
+		RenderDegradation degradation = estimator.selectDegradation(estimate, renderBudgetMillis);
+
+		LOGGER.info("Estimated render time " + estimator.estimateMillis(estimate, RenderDegradation.NONE) + " ms for "
+				+ estimate + ", budget " + renderBudgetMillis + " ms");
+
+		if (degradation != RenderDegradation.NONE) {
+			LOGGER.warning("Render budget exceeded, applying " + degradation + " (estimated "
+					+ estimator.estimateMillis(estimate, degradation) + " ms)");
+		}
+
+		additionalProperties.put("renderDegradation", degradation);
+		additionalProperties.put("hideEnumMembers", degradation.includes(RenderDegradation.COLLAPSE_ENUMS));
+		additionalProperties.put("hideMembers", degradation.includes(RenderDegradation.HIDE_MEMBERS));
+		additionalProperties.put("polylineEdges", degradation.includes(RenderDegradation.POLYLINE_EDGES));
+		additionalProperties.put("smetanaLayout", degradation.includes(RenderDegradation.SMETANA_LAYOUT));
+	}
+
+	/**
+	 * Sets the template flags of the layout preset, on top of those of the
+	 * render budget.
+	 * 
+	 * @param additionalProperties
+	 * @param nodes
+	 */
+	private void applyLayoutPreset(Map<String, Object> additionalProperties, int nodes) {
+		additionalProperties.put("layoutPreset", layoutPreset);
+
+		if (layoutPreset.isPolylineEdges()) {
+			additionalProperties.put("polylineEdges", true);
+		}
+
+		if (layoutPreset.getNodesep() > 0) {
+			additionalProperties.put("nodesep", layoutPreset.getNodesep());
+		}
+
+		if (layoutPreset.getRanksep() > 0) {
+			additionalProperties.put("ranksep", layoutPreset.getRanksep());
+		}
+
+		if (layoutPreset.getHideMembersAbove() > 0 && nodes > layoutPreset.getHideMembersAbove()) {
+			LOGGER.info(nodes + " nodes, hiding members for layout preset " + layoutPreset);
+			additionalProperties.put("hideMembers", true);
+		}
+	}
+
 	/**
 	 * 
 	 * @param classDiagrams
@@ -202,6 +801,7 @@ public class PlantUMLCodegen {
 	private List<InterfaceDiagram> processSwaggerPaths(Swagger swagger) {
 		LOGGER.entering(LOGGER.getName(), "processSwaggerPaths");
 		List<InterfaceDiagram> interfaceDiagrams = new ArrayList<InterfaceDiagram>();
+		Map<String, InterfaceDiagram> groupedDiagrams = new LinkedHashMap<String, InterfaceDiagram>();
 		Map<String, Path> paths = swagger.getPaths();
 
 		for (Map.Entry<String, Path> entry : paths.entrySet()) {
@@ -213,10 +813,20 @@ public class PlantUMLCodegen {
 			String uri = entry.getKey();
 
 			for (Operation operation : operations) {
-				interfaceDiagrams.add(getInterfaceDiagram(operation, uri));
+				InterfaceDiagram interfaceDiagram = getInterfaceDiagram(operation, uri);
+
+				if (!groupOperationsByTag && !layoutPreset.isGroupOperationsByTag()) {
+					interfaceDiagrams.add(interfaceDiagram);
+				} else if (groupedDiagrams.containsKey(interfaceDiagram.getInterfaceName())) {
+					mergeInterfaceDiagram(groupedDiagrams.get(interfaceDiagram.getInterfaceName()), interfaceDiagram);
+				} else {
+					groupedDiagrams.put(interfaceDiagram.getInterfaceName(), interfaceDiagram);
+				}
 			}
 		}
 
+		interfaceDiagrams.addAll(groupedDiagrams.values());
+
 		LOGGER.exiting(LOGGER.getName(), "processSwaggerPaths");
 		return interfaceDiagrams;
 	}
@@ -241,6 +851,27 @@ public class PlantUMLCodegen {
 		return interfaceDiagram;
 	}
 
+	/**
+	 * Folds methods, error classes and relations of the given interface into the
+	 * target interface.
+	 * 
+	 * @param target
+	 * @param source
+	 */
+	private void mergeInterfaceDiagram(InterfaceDiagram target, InterfaceDiagram source) {
+		target.getMethods().addAll(source.getMethods());
+
+		for (String errorClassName : source.getErrorClasses()) {
+			if (!target.getErrorClasses().contains(errorClassName)) {
+				target.getErrorClasses().add(errorClassName);
+			}
+		}
+
+		List<ClassRelation> relations = new ArrayList<ClassRelation>(target.getChildClass());
+		relations.addAll(source.getChildClass());
+		target.setChildClass(filterUnique(relations, true));
+	}
+
 	/**
 	 * 
 	 * @param operation
@@ -329,29 +960,10 @@ public class PlantUMLCodegen {
 		List<Parameter> parameters = operation.getParameters();
 
 		for (Parameter parameter : parameters) {
-			if (parameter instanceof BodyParameter) {
-				Model bodyParameter = ((BodyParameter) parameter).getSchema();
-
-				if (bodyParameter instanceof RefModel) {
-
-					ClassRelation classRelation = new ClassRelation();
-					classRelation.setTargetClass(((RefModel) bodyParameter).getSimpleRef());
-					classRelation.setComposition(false);
-					classRelation.setExtension(true);
-
-					relatedResponses.add(classRelation);
-				} else if (bodyParameter instanceof ArrayModel) {
-					Property propertyObject = ((ArrayModel) bodyParameter).getItems();
-
-					if (propertyObject instanceof RefProperty) {
-						ClassRelation classRelation = new ClassRelation();
-						classRelation.setTargetClass(((RefProperty) propertyObject).getSimpleRef());
-						classRelation.setComposition(false);
-						classRelation.setExtension(true);
+			ParameterHandler<Parameter> handler = getParameterHandler(parameter);
 
-						relatedResponses.add(classRelation);
-					}
-				}
+			if (handler != null) {
+				relatedResponses.addAll(handler.getRelations(parameter));
 			}
 		}
 
@@ -424,58 +1036,101 @@ public class PlantUMLCodegen {
 	 * @return
 	 */
 	private String getMethodParameters(Operation operation) {
-		String methodParameter = "";
+		StringBuilder methodParameters = new StringBuilder();
 		List<Parameter> parameters = operation.getParameters();
 
 		for (Parameter parameter : parameters) {
-			if (StringUtils.isNotEmpty(methodParameter)) {
-				methodParameter = new StringBuilder().append(methodParameter).append(",").toString();
-			}
+			ParameterHandler<Parameter> handler = getParameterHandler(parameter);
+			String methodParameter = handler != null ? handler.toMethodParameter(parameter) : null;
 
-			if (parameter instanceof PathParameter) {
-				methodParameter = new StringBuilder().append(methodParameter)
-						.append(toTitleCase(((PathParameter) parameter).getType())).append(" ")
-						.append(((PathParameter) parameter).getName()).toString();
-			} else if (parameter instanceof QueryParameter) {
-				Property queryParameterProperty = ((QueryParameter) parameter).getItems();
-
-				if (queryParameterProperty instanceof RefProperty) {
-					methodParameter = new StringBuilder().append(methodParameter)
-							.append(toTitleCase(((RefProperty) queryParameterProperty).getSimpleRef())).append("[] ")
-							.append(((BodyParameter) parameter).getName()).toString();
-				} else if (queryParameterProperty instanceof StringProperty) {
-					methodParameter = new StringBuilder().append(methodParameter)
-							.append(toTitleCase(((StringProperty) queryParameterProperty).getType())).append("[] ")
-							.append(((QueryParameter) parameter).getName()).toString();
-				} else {
-					methodParameter = new StringBuilder().append(methodParameter)
-							.append(toTitleCase(((QueryParameter) parameter).getType())).append(" ")
-							.append(((QueryParameter) parameter).getName()).toString();
-				}
-			} else if (parameter instanceof BodyParameter) {
-				Model bodyParameter = ((BodyParameter) parameter).getSchema();
-
-				if (bodyParameter instanceof RefModel) {
-					methodParameter = new StringBuilder().append(methodParameter)
-							.append(toTitleCase(((RefModel) bodyParameter).getSimpleRef())).append(" ")
-							.append(((BodyParameter) parameter).getName()).toString();
-				} else if (bodyParameter instanceof ArrayModel) {
-					Property propertyObject = ((ArrayModel) bodyParameter).getItems();
-
-					if (propertyObject instanceof RefProperty) {
-						methodParameter = new StringBuilder().append(methodParameter)
-								.append(toTitleCase(((RefProperty) propertyObject).getSimpleRef())).append("[] ")
-								.append(((BodyParameter) parameter).getName()).toString();
-					}
+			if (StringUtils.isNotEmpty(methodParameter)) {
+				if (methodParameters.length() > 0) {
+					methodParameters.append(",");
 				}
-			} else if (parameter instanceof FormParameter) {
-				methodParameter = new StringBuilder().append(methodParameter)
-						.append(toTitleCase(((FormParameter) parameter).getType())).append(" ")
-						.append(((FormParameter) parameter).getName()).toString();
+				methodParameters.append(methodParameter);
 			}
 		}
 
-		return methodParameter;
+		return methodParameters.toString();
+	}
+
+	/**
+	 * 
+	 * @param parameter
+	 * @return
+	 */
+	private String getMethodParameter(QueryParameter parameter) {
+		Property items = parameter.getItems();
+
+		if (items instanceof RefProperty) {
+			return new StringBuilder().append(toTitleCase(((RefProperty) items).getSimpleRef())).append("[] ")
+					.append(parameter.getName()).toString();
+		} else if (items instanceof StringProperty) {
+			return new StringBuilder().append(toTitleCase(items.getType())).append("[] ").append(parameter.getName())
+					.toString();
+		}
+
+		return getMethodParameter((AbstractSerializableParameter<?>) parameter);
+	}
+
+	/**
+	 * Path, query, header, form and cookie parameters.
+	 * 
+	 * @param parameter
+	 * @return
+	 */
+	private String getMethodParameter(AbstractSerializableParameter<?> parameter) {
+		return new StringBuilder().append(toTitleCase(parameter.getType())).append(" ").append(parameter.getName())
+				.toString();
+	}
+
+	/**
+	 * 
+	 * @param parameter
+	 * @return
+	 */
+	private String getMethodParameter(BodyParameter parameter) {
+		ClassMembers schemaType = getSchemaType(parameter.getSchema());
+
+		if (schemaType == null || schemaType.getDataType() == null) {
+			return null;
+		}
+
+		return new StringBuilder().append(schemaType.getDataType()).append(" ").append(parameter.getName()).toString();
+	}
+
+	/**
+	 * 
+	 * @param parameter
+	 * @return
+	 */
+	private List<ClassRelation> getRelations(BodyParameter parameter) {
+		ClassMembers schemaType = getSchemaType(parameter.getSchema());
+
+		if (schemaType == null || StringUtils.isEmpty(schemaType.getClassName())) {
+			return Collections.emptyList();
+		}
+
+		ClassRelation classRelation = new ClassRelation();
+		classRelation.setTargetClass(schemaType.getClassName());
+		classRelation.setComposition(false);
+		classRelation.setExtension(true);
+
+		return Collections.singletonList(classRelation);
+	}
+
+	/**
+	 * 
+	 * @param schema
+	 * @return
+	 */
+	private ClassMembers getSchemaType(Model schema) {
+		if (schema == null) {
+			return null;
+		}
+
+		ModelHandler<Model> handler = getModelHandler(schema);
+		return handler != null ? handler.asType(schema, getDefinitions()) : null;
 	}
 
 	/**
@@ -588,23 +1243,51 @@ public class PlantUMLCodegen {
 	 * @param swagger
 	 * @return
 	 */
-	private List<ClassDiagram> processSwaggerModels(Swagger swagger) {
+	List<ClassDiagram> processSwaggerModels(Swagger swagger) {
 		LOGGER.entering(LOGGER.getName(), "processSwaggerModels");
 
 		List<ClassDiagram> classDiagrams = new ArrayList<ClassDiagram>();
 		Map<String, Model> modelsMap = swagger.getDefinitions();
+		ClassMemberStore memberStore = compactMembers ? new ClassMemberStore() : null;
+		Map<String, String> serializedModels = new HashMap<String, String>();
 
 		for (Map.Entry<String, Model> models : modelsMap.entrySet()) {
 			String className = models.getKey();
 			Model modelObject = models.getValue();
+			String fingerprint = null;
+
+			if (classDiagramCache != null) {
+				fingerprint = StructuralFingerprint.of(className, modelsMap, serializedModels);
+				ClassDiagram classDiagram = classDiagramCache.get(fingerprint);
+
+				if (classDiagram != null) {
+					classDiagrams.add(classDiagram);
+					continue;
+				}
+			}
 
 			LOGGER.info("Processing Model " + className);
 
 			String superClass = getSuperClass(modelObject);
-			List<ClassMembers> classMembers = getClassMembers(modelObject, modelsMap);
+			List<ClassMembers> classMembers = limitMembers(getClassMembers(modelObject, modelsMap), maxMembers);
+
+			if (memberStore != null) {
+				classMembers = memberStore.append(classMembers);
+			}
+
+			List<ClassRelation> childClasses = getChildClasses(classMembers, superClass);
+
+			if (!flattenInheritance && modelObject instanceof ComposedModel) {
+				childClasses.addAll(0, getParentClasses((ComposedModel) modelObject));
+			}
 
-			classDiagrams.add(new ClassDiagram(className, modelObject.getDescription(), classMembers,
-					getChildClasses(classMembers, superClass), isModelClass(modelObject), superClass));
+			ClassDiagram classDiagram = new ClassDiagram(className, modelObject.getDescription(), classMembers,
+					childClasses, isModelClass(modelObject), superClass);
+			classDiagrams.add(classDiagram);
+
+			if (fingerprint != null) {
+				classDiagramCache.put(fingerprint, classDiagram);
+			}
 		}
 
 		LOGGER.exiting(LOGGER.getName(), "processSwaggerModels");
@@ -641,30 +1324,40 @@ public class PlantUMLCodegen {
 	 * @return
 	 */
 	private String getSuperClass(Model model) {
-		LOGGER.entering(LOGGER.getName(), "getSuperClass");
+		ModelHandler<Model> handler = getModelHandler(model);
+		return handler != null ? handler.getSuperClass(model) : null;
+	}
 
-		String superClass = null;
+	/**
+	 * 
+	 * @param arrayModel
+	 * @return
+	 */
+	private String getSuperClass(ArrayModel arrayModel) {
+		Property propertyObject = arrayModel.getItems();
 
-		if (model instanceof ArrayModel) {
-			ArrayModel arrayModel = (ArrayModel) model;
-			Property propertyObject = arrayModel.getItems();
+		if (propertyObject instanceof RefProperty) {
+			return new StringBuilder().append("ArrayList[").append(((RefProperty) propertyObject).getSimpleRef())
+					.append("]").toString();
+		}
 
-			if (propertyObject instanceof RefProperty) {
-				superClass = new StringBuilder().append("ArrayList[")
-						.append(((RefProperty) propertyObject).getSimpleRef()).append("]").toString();
-			}
-		} else if (model instanceof ModelImpl) {
-			Property addProperty = ((ModelImpl) model).getAdditionalProperties();
+		return null;
+	}
 
-			if (addProperty instanceof RefProperty) {
-				superClass = new StringBuilder().append("Map[").append(((RefProperty) addProperty).getSimpleRef())
-						.append("]").toString();
-			}
-		}
+	/**
+	 * 
+	 * @param model
+	 * @return
+	 */
+	private String getSuperClass(ModelImpl model) {
+		Property addProperty = model.getAdditionalProperties();
 
-		LOGGER.exiting(LOGGER.getName(), "getSuperClass");
+		if (addProperty instanceof RefProperty) {
+			return new StringBuilder().append("Map[").append(((RefProperty) addProperty).getSimpleRef()).append("]")
+					.toString();
+		}
 
-		return superClass;
+		return null;
 	}
 
 	/**
@@ -710,20 +1403,8 @@ public class PlantUMLCodegen {
 	 * @return
 	 */
 	private List<ClassMembers> getClassMembers(Model modelObject, Map<String, Model> modelsMap) {
-		LOGGER.entering(LOGGER.getName(), "getClassMembers");
-
-		List<ClassMembers> classMembers = new ArrayList<ClassMembers>();
-
-		if (modelObject instanceof ModelImpl) {
-			classMembers = getClassMembers((ModelImpl) modelObject, modelsMap);
-		} else if (modelObject instanceof ComposedModel) {
-			classMembers = getClassMembers((ComposedModel) modelObject, modelsMap);
-		} else if (modelObject instanceof ArrayModel) {
-			classMembers = getClassMembers((ArrayModel) modelObject, modelsMap);
-		}
-
-		LOGGER.exiting(LOGGER.getName(), "getClassMembers");
-		return classMembers;
+		ModelHandler<Model> handler = getModelHandler(modelObject);
+		return handler != null ? handler.getClassMembers(modelObject, modelsMap) : new ArrayList<ClassMembers>();
 	}
 
 	/**
@@ -747,6 +1428,58 @@ public class PlantUMLCodegen {
 		return classMembers;
 	}
 
+	/**
+	 * A definition that is only a reference to another one.
+	 * 
+	 * @param refModel
+	 * @return
+	 */
+	private List<ClassMembers> getClassMembers(RefModel refModel) {
+		List<ClassMembers> classMembers = new ArrayList<ClassMembers>();
+		ClassMembers classMember = new ClassMembers();
+		classMember.setClassName(refModel.getSimpleRef());
+		classMember.setName(" ");
+		classMembers.add(classMember);
+
+		return classMembers;
+	}
+
+	/**
+	 * 
+	 * @param arrayModel
+	 * @param models
+	 * @return
+	 */
+	private ClassMembers asType(ArrayModel arrayModel, Map<String, Model> models) {
+		Property items = arrayModel.getItems();
+		return items != null ? toArrayMember(toClassMember(items, null, null, models)) : null;
+	}
+
+	/**
+	 * 
+	 * @param model
+	 * @return
+	 */
+	private ClassMembers asType(RefModel model) {
+		ClassMembers classMember = new ClassMembers();
+		classMember.setDataType(toTitleCase(model.getSimpleRef()));
+		classMember.setClassName(model.getSimpleRef());
+		return classMember;
+	}
+
+	/**
+	 * Inline schemas are not drawn as classes.
+	 * 
+	 * @param model
+	 * @return
+	 */
+	private ClassMembers asType(Model model) {
+		ClassMembers classMember = new ClassMembers();
+		classMember.setDataType(model instanceof ModelImpl && ((ModelImpl) model).getType() != null
+				? toTitleCase(((ModelImpl) model).getType()) : "Object");
+		return classMember;
+	}
+
 	/**
 	 * 
 	 * @param composedModel
@@ -754,7 +1487,51 @@ public class PlantUMLCodegen {
 	 * @return
 	 */
 	private List<ClassMembers> getClassMembers(ComposedModel composedModel, Map<String, Model> modelsMap) {
-      return getClassMembers(composedModel, modelsMap, new HashSet<Model>());
+		if (!flattenInheritance) {
+			return getOwnClassMembers(composedModel, modelsMap);
+		}
+
+		return getClassMembers(composedModel, modelsMap, new HashSet<Model>());
+	}
+
+	/**
+	 * Members declared inline in the allOf, without those of the referenced
+	 * parents.
+	 * 
+	 * @param composedModel
+	 * @param modelsMap
+	 * @return
+	 */
+	private List<ClassMembers> getOwnClassMembers(ComposedModel composedModel, Map<String, Model> modelsMap) {
+		List<ClassMembers> classMembers = new ArrayList<ClassMembers>();
+
+		for (Model currentModel : composedModel.getAllOf()) {
+			if (!(currentModel instanceof RefModel)) {
+				classMembers.addAll(getClassMembers(currentModel, modelsMap));
+			}
+		}
+
+		return classMembers;
+	}
+
+	/**
+	 * 
+	 * @param composedModel
+	 * @return one inheritance relation per parent referenced in the allOf
+	 */
+	private List<ClassRelation> getParentClasses(ComposedModel composedModel) {
+		List<ClassRelation> parentClasses = new ArrayList<ClassRelation>();
+
+		for (Model currentModel : composedModel.getAllOf()) {
+			if (currentModel instanceof RefModel) {
+				ClassRelation classRelation = new ClassRelation();
+				classRelation.setTargetClass(((RefModel) currentModel).getSimpleRef());
+				classRelation.setInheritance(true);
+				parentClasses.add(classRelation);
+			}
+		}
+
+		return parentClasses;
 	}
 
   /**
@@ -882,6 +1659,11 @@ public class PlantUMLCodegen {
 
 		if (enumValues != null && !enumValues.isEmpty()) {
 			for (String enumValue : enumValues) {
+				if (maxEnumValues > 0 && classMembers.size() == maxEnumValues) {
+					classMembers.add(new HiddenMembers(enumValues.size() - maxEnumValues));
+					break;
+				}
+
 				ClassMembers classMember = new ClassMembers();
 				classMember.setName(enumValue);
 				classMembers.add(classMember);
@@ -892,6 +1674,39 @@ public class PlantUMLCodegen {
 		return classMembers;
 	}
 
+	/**
+	 * Collapses the members beyond the limit, including those already
+	 * collapsed while converting the properties of ancestors.
+	 * 
+	 * @param classMembers
+	 * @param limit
+	 * @return
+	 */
+	private List<ClassMembers> limitMembers(List<ClassMembers> classMembers, int limit) {
+		if (limit <= 0 || classMembers.size() <= limit) {
+			return classMembers;
+		}
+
+		List<ClassMembers> limitedMembers = new ArrayList<ClassMembers>(limit + 1);
+		int hidden = 0;
+
+		for (ClassMembers classMember : classMembers) {
+			if (classMember instanceof HiddenMembers) {
+				hidden += ((HiddenMembers) classMember).count;
+			} else if (limitedMembers.size() < limit) {
+				limitedMembers.add(classMember);
+			} else {
+				hidden++;
+			}
+		}
+
+		if (hidden > 0) {
+			limitedMembers.add(new HiddenMembers(hidden));
+		}
+
+		return limitedMembers;
+	}
+
 	/**
 	 * 
 	 * @param modelMembers
@@ -904,28 +1719,50 @@ public class PlantUMLCodegen {
 		List<ClassMembers> classMembers = new ArrayList<ClassMembers>();
 
 		for (Map.Entry<String, Property> modelMapObject : modelMembers.entrySet()) {
-			String variablName = modelMapObject.getKey();
-
-			ClassMembers classMemberObject = new ClassMembers();
-			Property property = modelMembers.get(variablName);
-
-			if (property instanceof ArrayProperty) {
-				classMemberObject = getClassMember((ArrayProperty) property, modelObject, models, variablName);
-			} else if (property instanceof RefProperty) {
-				classMemberObject = getClassMember((RefProperty) property, models, modelObject, variablName);
-			} else {
-				classMemberObject.setDataType(
-						getDataType(property.getFormat() != null ? property.getFormat() : property.getType(), false));
-				classMemberObject.setName(variablName);
+			if (maxMembers > 0 && classMembers.size() == maxMembers) {
+				// the remaining properties are not converted at all
+				classMembers.add(new HiddenMembers(modelMembers.size() - maxMembers));
+				break;
 			}
 
-			classMembers.add(classMemberObject);
+			classMembers.add(toClassMember(modelMapObject.getValue(), modelMapObject.getKey(), modelObject, models));
 		}
 
 		LOGGER.exiting(LOGGER.getName(), "convertModelPropertiesToClassMembers");
 		return classMembers;
 	}
 
+	/**
+	 * 
+	 * @param property
+	 * @param variablName
+	 * @param modelObject
+	 * @param models
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	private ClassMembers toClassMember(Property property, String variablName, Model modelObject,
+			Map<String, Model> models) {
+		PropertyHandler<Property> handler = (PropertyHandler<Property>) propertyHandlers.get(property.getClass());
+		return handler.toClassMember(property, variablName, modelObject, models);
+	}
+
+	/**
+	 * Properties without a more specific handler.
+	 * 
+	 * @param property
+	 * @param variablName
+	 * @return
+	 */
+	private ClassMembers getClassMember(Property property, String variablName) {
+		ClassMembers classMemberObject = new ClassMembers();
+		classMemberObject.setDataType(
+				getDataType(property.getFormat() != null ? property.getFormat() : property.getType(), false));
+		classMemberObject.setName(variablName);
+
+		return classMemberObject;
+	}
+
 	/**
 	 * 
 	 * @param modelObject
@@ -941,16 +1778,51 @@ public class PlantUMLCodegen {
 		ClassMembers classMemberObject = new ClassMembers();
 		Property propObject = property.getItems();
 
-		if (propObject instanceof RefProperty) {
-			classMemberObject = getClassMember((RefProperty) propObject, models, modelObject, variablName);
-		} else if (propObject instanceof StringProperty) {
+		if (propObject instanceof StringProperty) {
 			classMemberObject = getClassMember((StringProperty) propObject, variablName);
+		} else if (propObject != null) {
+			classMemberObject = toArrayMember(toClassMember(propObject, variablName, modelObject, models));
 		}
 
 		LOGGER.exiting(LOGGER.getName(), "getClassMember-ArrayProperty");
 		return classMemberObject;
 	}
 
+	/**
+	 * 
+	 * @param property
+	 * @param modelObject
+	 * @param models
+	 * @param variablName
+	 * @return member typed Map[value type], related to the value class if any
+	 */
+	private ClassMembers getClassMember(MapProperty property, Model modelObject, Map<String, Model> models,
+			String variablName) {
+		Property valueProperty = property.getAdditionalProperties();
+		ClassMembers classMemberObject = valueProperty != null
+				? toClassMember(valueProperty, variablName, modelObject, models) : new ClassMembers();
+		String valueType = classMemberObject.getDataType() != null
+				? classMemberObject.getDataType().replaceFirst("\\[\\]$", "") : "Object";
+
+		classMemberObject.setDataType(new StringBuilder().append("Map[").append(valueType).append("]").toString());
+		classMemberObject.setName(variablName);
+
+		return classMemberObject;
+	}
+
+	/**
+	 * 
+	 * @param classMember
+	 * @return the member typed as an array of its type
+	 */
+	private ClassMembers toArrayMember(ClassMembers classMember) {
+		if (classMember.getDataType() != null && !classMember.getDataType().endsWith("[]")) {
+			classMember.setDataType(classMember.getDataType() + "[]");
+		}
+
+		return classMember;
+	}
+
 	/**
 	 * 
 	 * @param stringProperty
@@ -1063,4 +1935,17 @@ public class PlantUMLCodegen {
 
 		return titleCase.toString();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Stands for the members collapsed by {@link #setMaxMembers(int)} and
+	 * {@link #setMaxEnumValues(int)}.
+	 */
+	private static class HiddenMembers extends ClassMembers {
+		private final int count;
+
+		HiddenMembers(int count) {
+			super(null, "\u2026 " + count + " more", null, null);
+			this.count = count;
+		}
+	}
+}
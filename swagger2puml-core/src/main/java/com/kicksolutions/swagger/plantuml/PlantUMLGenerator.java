@@ -1,18 +1,53 @@
 package com.kicksolutions.swagger.plantuml;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.kicksolutions.swagger.plantuml.vo.ClassDiagram;
+import com.kicksolutions.swagger.plantuml.vo.ShardEntry;
+import com.kicksolutions.swagger.plantuml.vo.ShardSummary;
 
 import io.swagger.models.Swagger;
 import io.swagger.parser.SwaggerParser;
-import net.sourceforge.plantuml.FileFormat;
+import io.swagger.util.Json;
 import net.sourceforge.plantuml.FileFormatOption;
-import net.sourceforge.plantuml.GeneratedImage;
-import net.sourceforge.plantuml.SourceFileReader;
-import net.sourceforge.plantuml.SourceFileReader2;
+import net.sourceforge.plantuml.SourceStringReader;
 
 /**
  * MSANTOSH
@@ -22,48 +57,1199 @@ public class PlantUMLGenerator
 {
 	private static final Logger LOGGER = Logger.getLogger(PlantUMLGenerator.class.getName());
 	
+	/** Spec file or output location standing for stdin / stdout */
+	public static final String STANDARD_STREAM = "-";
+	
+	/** History revision standing for all tags of the git repository */
+	public static final String HISTORY_TAGS = "tags";
+	
+	/** Note of the PUML naming the spec and its version */
+	private static final Pattern VERSION_NOTE = Pattern.compile("(?m)^note as N1$[\\s\\S]*?^end note$");
+	private static final Pattern NOTE_VALUE = Pattern.compile("<color:royalBlue>(.*)</color>");
+	
+	private boolean groupOperationsByTag = false;
+	private long renderBudgetMillis = 0;
+	private long renderTimeoutMillis = 0;
+	private boolean shardOutput = false;
+	private boolean compactMembers = false;
+	private int maxEnumValues = 0;
+	private int maxMembers = 0;
+	private boolean flattenInheritance = true;
+	private boolean simplifyRelations = false;
+	private boolean writeMetrics = false;
+	private LayoutPreset layoutPreset = LayoutPreset.QUALITY;
+	private List<DiagramFormat> formats = Collections.singletonList(DiagramFormat.SVG);
+	private boolean profile = false;
+	private boolean minifySvg = false;
+	private int svgPrecision = 2;
+	private boolean svgz = false;
+	private int tileSize = 0;
+	private int parseThreads = 2;
+	private int codegenThreads = Runtime.getRuntime().availableProcessors();
+	private int renderThreads = 2;
+	private int pipelineQueueCapacity = 4;
+	private ReferencedDocumentCache referenceCache;
+	private AdmissionController admissionController;
+	private List<Consumer<PlantUMLCodegen>> codegenCustomizers = new ArrayList<Consumer<PlantUMLCodegen>>();
+	
 	public PlantUMLGenerator() {
 		super();
 	}
+	
+	public boolean isGroupOperationsByTag() {
+		return groupOperationsByTag;
+	}
+
+	/**
+	 * Merges all operations of a tag into one interface, see
+	 * {@link PlantUMLCodegen#setGroupOperationsByTag(boolean)}
+	 * 
+	 * @param groupOperationsByTag
+	 */
+	public void setGroupOperationsByTag(boolean groupOperationsByTag) {
+		this.groupOperationsByTag = groupOperationsByTag;
+	}
+
+	public long getRenderBudgetMillis() {
+		return renderBudgetMillis;
+	}
+
+	/**
+	 * Estimated render time above which the diagram gets degraded, see
+	 * {@link PlantUMLCodegen#setRenderBudgetMillis(long)}
+	 * 
+	 * @param renderBudgetMillis
+	 */
+	public void setRenderBudgetMillis(long renderBudgetMillis) {
+		this.renderBudgetMillis = renderBudgetMillis;
+	}
+
+	public boolean isShardOutput() {
+		return shardOutput;
+	}
+
+	/**
+	 * Writes one include file per class and interface, see
+	 * {@link PlantUMLCodegen#setShardOutput(boolean)}
+	 * 
+	 * @param shardOutput
+	 */
+	public void setShardOutput(boolean shardOutput) {
+		this.shardOutput = shardOutput;
+	}
+
+	public boolean isCompactMembers() {
+		return compactMembers;
+	}
+
+	/**
+	 * Keeps class members in a columnar store, see
+	 * {@link PlantUMLCodegen#setCompactMembers(boolean)}
+	 * 
+	 * @param compactMembers
+	 */
+	public void setCompactMembers(boolean compactMembers) {
+		this.compactMembers = compactMembers;
+	}
+
+	public int getMaxEnumValues() {
+		return maxEnumValues;
+	}
+
+	/**
+	 * See {@link PlantUMLCodegen#setMaxEnumValues(int)}
+	 * 
+	 * @param maxEnumValues
+	 */
+	public void setMaxEnumValues(int maxEnumValues) {
+		this.maxEnumValues = maxEnumValues;
+	}
+
+	public int getMaxMembers() {
+		return maxMembers;
+	}
+
+	/**
+	 * See {@link PlantUMLCodegen#setMaxMembers(int)}
+	 * 
+	 * @param maxMembers
+	 */
+	public void setMaxMembers(int maxMembers) {
+		this.maxMembers = maxMembers;
+	}
+
+	public boolean isFlattenInheritance() {
+		return flattenInheritance;
+	}
+
+	/**
+	 * See {@link PlantUMLCodegen#setFlattenInheritance(boolean)}
+	 * 
+	 * @param flattenInheritance
+	 */
+	public void setFlattenInheritance(boolean flattenInheritance) {
+		this.flattenInheritance = flattenInheritance;
+	}
+
+	public boolean isSimplifyRelations() {
+		return simplifyRelations;
+	}
+
+	/**
+	 * See {@link PlantUMLCodegen#setSimplifyRelations(boolean)}
+	 * 
+	 * @param simplifyRelations
+	 */
+	public void setSimplifyRelations(boolean simplifyRelations) {
+		this.simplifyRelations = simplifyRelations;
+	}
+
+	public boolean isWriteMetrics() {
+		return writeMetrics;
+	}
+
+	/**
+	 * See {@link PlantUMLCodegen#setWriteMetrics(boolean)}
+	 * 
+	 * @param writeMetrics
+	 */
+	public void setWriteMetrics(boolean writeMetrics) {
+		this.writeMetrics = writeMetrics;
+	}
+
+	public LayoutPreset getLayoutPreset() {
+		return layoutPreset;
+	}
+
+	/**
+	 * See {@link PlantUMLCodegen#setLayoutPreset(LayoutPreset)}
+	 * 
+	 * @param layoutPreset
+	 */
+	public void setLayoutPreset(LayoutPreset layoutPreset) {
+		this.layoutPreset = layoutPreset;
+	}
+
+	public List<DiagramFormat> getFormats() {
+		return formats;
+	}
+
+	/**
+	 * Image formats rendered when images are requested, SVG by default.
+	 * 
+	 * @param formats
+	 */
+	public void setFormats(List<DiagramFormat> formats) {
+		if (formats == null || formats.isEmpty()) {
+			throw new IllegalArgumentException("At least one format is required");
+		}
+		this.formats = formats;
+	}
+
+	public boolean isProfile() {
+		return profile;
+	}
+
+	/**
+	 * Logs the time spent parsing, generating and rendering.
+	 * 
+	 * @param profile
+	 */
+	public void setProfile(boolean profile) {
+		this.profile = profile;
+	}
+
+	public long getRenderTimeoutMillis() {
+		return renderTimeoutMillis;
+	}
+
+	/**
+	 * Deadline after which a running render is cancelled. Zero or less waits
+	 * forever.
+	 * 
+	 * @param renderTimeoutMillis
+	 */
+	public void setRenderTimeoutMillis(long renderTimeoutMillis) {
+		this.renderTimeoutMillis = renderTimeoutMillis;
+	}
+
+	public boolean isMinifySvg() {
+		return minifySvg;
+	}
+
+	/**
+	 * Streams rendered SVG through {@link SvgMinifier}.
+	 * 
+	 * @param minifySvg
+	 */
+	public void setMinifySvg(boolean minifySvg) {
+		this.minifySvg = minifySvg;
+	}
+
+	public int getSvgPrecision() {
+		return svgPrecision;
+	}
+
+	/**
+	 * Decimals kept in coordinates of minified SVG.
+	 * 
+	 * @param svgPrecision
+	 */
+	public void setSvgPrecision(int svgPrecision) {
+		this.svgPrecision = svgPrecision;
+	}
+
+	public boolean isSvgz() {
+		return svgz;
+	}
+
+	/**
+	 * Writes SVG gzip compressed as .svgz instead of .svg.
+	 * 
+	 * @param svgz
+	 */
+	public void setSvgz(boolean svgz) {
+		this.svgz = svgz;
+	}
+
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * Also splits the rendered SVG into tiles of this many pixels with an HTML
+	 * index loading them lazily, see {@link SvgTiler}. Zero or less disables
+	 * tiling.
+	 * 
+	 * @param tileSize
+	 */
+	public void setTileSize(int tileSize) {
+		this.tileSize = tileSize;
+	}
+
+	public int getParseThreads() {
+		return parseThreads;
+	}
+
+	/**
+	 * Threads parsing specs in {@link #transformSwaggers2Puml(List, String, boolean, boolean, boolean)}
+	 * 
+	 * @param parseThreads
+	 */
+	public void setParseThreads(int parseThreads) {
+		this.parseThreads = parseThreads;
+	}
+
+	public int getCodegenThreads() {
+		return codegenThreads;
+	}
+
+	/**
+	 * Threads building the codegen model, and as many writing the PUML, in
+	 * {@link #transformSwaggers2Puml(List, String, boolean, boolean, boolean)}
+	 * 
+	 * @param codegenThreads
+	 */
+	public void setCodegenThreads(int codegenThreads) {
+		this.codegenThreads = codegenThreads;
+	}
+
+	public int getRenderThreads() {
+		return renderThreads;
+	}
+
+	/**
+	 * Threads rendering diagrams in {@link #transformSwaggers2Puml(List, String, boolean, boolean, boolean)}
+	 * 
+	 * @param renderThreads
+	 */
+	public void setRenderThreads(int renderThreads) {
+		this.renderThreads = renderThreads;
+	}
+
+	public int getPipelineQueueCapacity() {
+		return pipelineQueueCapacity;
+	}
+
+	/**
+	 * Specs queued in front of each stage of
+	 * {@link #transformSwaggers2Puml(List, String, boolean, boolean, boolean)}
+	 * 
+	 * @param pipelineQueueCapacity
+	 */
+	public void setPipelineQueueCapacity(int pipelineQueueCapacity) {
+		this.pipelineQueueCapacity = pipelineQueueCapacity;
+	}
+
+	public ReferencedDocumentCache getReferenceCache() {
+		return referenceCache;
+	}
+
+	/**
+	 * Documents referenced through $ref by the specs this generator reads,
+	 * parsed once for all of them. null, the default, leaves $ref to the
+	 * parser, once per spec and reference.
+	 * 
+	 * @param referenceCache
+	 */
+	public void setReferenceCache(ReferencedDocumentCache referenceCache) {
+		this.referenceCache = referenceCache;
+	}
+
+	public AdmissionController getAdmissionController() {
+		return admissionController;
+	}
+
+	/**
+	 * Holds back specs read from files while their estimated heap does not fit
+	 * the budget of the controller, which may be shared by several
+	 * generators. null starts every spec right away.
+	 * 
+	 * @param admissionController
+	 */
+	public void setAdmissionController(AdmissionController admissionController) {
+		this.admissionController = admissionController;
+	}
+
+	/**
+	 * Applied to every codegen this generator creates, e.g. to register
+	 * handlers for additional swagger-models types.
+	 * 
+	 * @param customizer
+	 */
+	public void addCodegenCustomizer(Consumer<PlantUMLCodegen> customizer) {
+		codegenCustomizers.add(customizer);
+	}
 	    
     /**
      * 
      * @param specFile
+     *            spec file, - for stdin, or an archive entry or glob, see
+     *            {@link ArchiveSpecReader}
      * @param output
+     *            directory, zip archive or - for stdout
      */
     public void transformSwagger2Puml(String specFile,String output,boolean generateDefinitionModelOnly,boolean includeCardinality,boolean generateSvg){
     	LOGGER.entering(LOGGER.getName(), "transformSwagger2Puml");
     	
-    	File swaggerSpecFile = new File(specFile);
     	File targetLocation = new File(output);
     	
-    	if(swaggerSpecFile.exists() && !swaggerSpecFile.isDirectory() 
-    			&& targetLocation.exists() && targetLocation.isDirectory()) { 
+    	if(!STANDARD_STREAM.equals(output) && !ZipSink.isZipLocation(output) 
+    			&& !(targetLocation.exists() && targetLocation.isDirectory())) {
+    		throw new RuntimeException("Spec File or Ouput Locations are not valid");
+    	}
+    	
+    	OutputSink sink;
+    	
+    	try {
+    		sink = OutputSink.forLocation(output);
+    	} catch (IOException e) {
+    		throw new RuntimeException(e);
+    	}
+    	
+    	try {
+    		transformSwagger2Puml(specFile, sink, generateDefinitionModelOnly, includeCardinality, generateSvg);
+    		sink.close();
+    	} catch (IOException e) {
+    		sink.abort();
+    		throw new RuntimeException(e);
+    	} catch (RuntimeException e) {
+    		sink.abort();
+    		throw e;
+    	}
+    	
+    	LOGGER.exiting(LOGGER.getName(), "transformSwagger2Puml");
+    }
+    
+    /**
+     * Writes swagger.puml and the rendered images to the sink. The sink is left
+     * open, so several specs can be written to one sink.
+     * 
+     * @param specFile
+     *            spec file, - for stdin, or an archive entry or glob, see
+     *            {@link ArchiveSpecReader}
+     * @param sink
+     */
+    public void transformSwagger2Puml(String specFile,OutputSink sink,boolean generateDefinitionModelOnly,boolean includeCardinality,boolean generateSvg){
+    	File swaggerSpecFile = new File(specFile);
+    	boolean fromStdin = STANDARD_STREAM.equals(specFile);
+    	
+    	if(ArchiveSpecReader.isArchiveSpec(specFile)) {
+    		transformArchive(specFile, sink, generateDefinitionModelOnly, includeCardinality, generateSvg);
+    	}
+    	else if(fromStdin || (swaggerSpecFile.exists() && !swaggerSpecFile.isDirectory())) { 
+    		try (AdmissionController.Permit permit = fromStdin ? null : admit(swaggerSpecFile)) {
+    			long start = System.nanoTime();
+    			Swagger swaggerObject = fromStdin ? readSwaggerFromStdin() : readSwaggerFile(swaggerSpecFile);
+    			logElapsed("Parsed " + specFile, start);
+    			
+    			if(permit != null && swaggerObject != null) {
+    				permit.resize(estimateBytes(swaggerSpecFile.length(), swaggerObject));
+    			}
+    			
+    			transformSwagger(swaggerObject, specFile, sink, "", generateDefinitionModelOnly, includeCardinality, generateSvg);
+    		}
+    	}else{
+    		throw new RuntimeException("Spec File or Ouput Locations are not valid");
+    	}
+    }
+    
+    /**
+     * Transforms every spec matched in the archive without extracting it, one
+     * entry at a time and each once admitted, see {@link #getAdmissionController()}.
+     * A single spec is written to the root of the sink, several specs each to
+     * a directory named after their entry.
+     * 
+     * @param specFile
+     * @param sink
+     * @param generateDefinitionModelOnly
+     * @param includeCardinality
+     * @param generateSvg
+     */
+    private void transformArchive(String specFile,OutputSink sink,boolean generateDefinitionModelOnly,boolean includeCardinality,boolean generateSvg){
+    	try {
+    		ArchiveSpecReader.read(specFile, (entry, path, count) -> {
+    			if(sink instanceof StdoutSink && count > 1) {
+    				throw new RuntimeException(count + " specs match " + specFile + ", only one can be written to stdout");
+    			}
+    			
+    			String prefix = count > 1 ? entry.replaceFirst("\\.[^./]*$", "") + "/" : "";
+    			long specBytes = Files.size(path);
+    			
+    			try (AdmissionController.Permit permit = admit(entry, specBytes)) {
+    				long start = System.nanoTime();
+    				Swagger swaggerObject = new SwaggerParser().parse(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    				
+    				if(swaggerObject == null) {
+    					throw new RuntimeException("Entry " + entry + " of " + specFile + " is not a valid Swagger Definition");
+    				}
+    				
+    				logElapsed("Parsed " + entry, start);
+    				
+    				if(permit != null) {
+    					permit.resize(AdmissionController.estimateBytes(specBytes, 
+    							swaggerObject.getDefinitions() != null ? swaggerObject.getDefinitions().size() : 0));
+    				}
+    				
+    				transformSwagger(swaggerObject, entry, sink, prefix, generateDefinitionModelOnly, includeCardinality, generateSvg);
+    			}
+    		});
+    	} catch (IOException e) {
+    		throw new RuntimeException(e);
+    	}
+    }
+    
+    /**
+     * Generates into the directory of the sink, or into a temp directory copied
+     * to the sink afterwards, as PlantUML resolves includes and images are post
+     * processed on disk.
+     * 
+     * @param swaggerObject
+     * @param specName
+     * @param sink
+     * @param prefix
+     *            directory in the sink, empty or ending with /
+     * @param generateDefinitionModelOnly
+     * @param includeCardinality
+     * @param generateSvg
+     */
+    private void transformSwagger(Swagger swaggerObject,String specName,OutputSink sink,String prefix,boolean generateDefinitionModelOnly,boolean includeCardinality,boolean generateSvg){
+    	File directory = sink.getDirectory();
+    	File targetLocation = null;
+    	
+    	try{
+    		LOGGER.info("Processing File --> "+ specName);
+    		
+    		if(sink instanceof StdoutSink)
+    		{
+    			streamToStdout(newCodegen(swaggerObject, null, generateDefinitionModelOnly, includeCardinality), sink, generateSvg);
+    			return;
+    		}
+    		
+    		targetLocation = directory != null ? new File(directory, prefix) 
+    				: Files.createTempDirectory("swagger2puml").toFile();
+    		
+    		if(!targetLocation.isDirectory() && !targetLocation.mkdirs()) {
+    			throw new RuntimeException("Unable to create " + targetLocation);
+    		}
     		
-    		Swagger swaggerObject = new SwaggerParser().read(swaggerSpecFile.getAbsolutePath());
-    		PlantUMLCodegen codegen = new PlantUMLCodegen(swaggerObject, targetLocation, generateDefinitionModelOnly, includeCardinality);
-    		String pumlPath = null;
+    		long start = System.nanoTime();
+    		String pumlPath = newCodegen(swaggerObject, targetLocation, generateDefinitionModelOnly, includeCardinality).generatePuml();    		
+    		LOGGER.info("Sucessfully Create PUML !!!");
+    		logElapsed("Generated " + pumlPath, start);
     		
-    		try{
-    			LOGGER.info("Processing File --> "+ specFile);
-    			pumlPath = codegen.generatePuml();    		
-    			LOGGER.info("Sucessfully Create PUML !!!");
+    		if(generateSvg)
+    		{
+    			start = System.nanoTime();
+    			generateUmlDiagrams(pumlPath, targetLocation);
+    			logElapsed("Rendered " + pumlPath, start);
+    		}
+    		
+    		if(directory == null) {
+    			sink.writeTree(targetLocation, prefix);
+    		}
+    	}
+    	catch(Exception e){
+    		LOGGER.log(Level.SEVERE, e.getMessage(),e);
+    		throw new RuntimeException(e);
+    	}
+    	finally {
+    		if(directory == null && targetLocation != null) {
+    			FileUtils.deleteQuietly(targetLocation);
+    		}
+    	}
+    }
+    
+    /**
+     * 
+     * @param swaggerObject
+     * @param targetLocation
+     * @param generateDefinitionModelOnly
+     * @param includeCardinality
+     * @return codegen configured with the options of this generator
+     */
+    PlantUMLCodegen newCodegen(Swagger swaggerObject,File targetLocation,boolean generateDefinitionModelOnly,boolean includeCardinality){
+    	PlantUMLCodegen codegen = new PlantUMLCodegen(swaggerObject, targetLocation, generateDefinitionModelOnly, includeCardinality);
+    	codegen.setGroupOperationsByTag(groupOperationsByTag);
+    	codegen.setRenderBudgetMillis(renderBudgetMillis);
+    	codegen.setShardOutput(shardOutput);
+    	codegen.setCompactMembers(compactMembers);
+    	codegen.setMaxEnumValues(maxEnumValues);
+    	codegen.setMaxMembers(maxMembers);
+    	codegen.setFlattenInheritance(flattenInheritance);
+    	codegen.setSimplifyRelations(simplifyRelations);
+    	codegen.setWriteMetrics(writeMetrics);
+    	codegen.setLayoutPreset(layoutPreset);
+    	
+    	for(Consumer<PlantUMLCodegen> customizer : codegenCustomizers) {
+    		customizer.accept(codegen);
+    	}
+    	
+    	return codegen;
+    }
+    
+    /**
+     * Generates one diagram per revision, each into a directory named after the
+     * revision. Work is shared between revisions: a spec identical to an earlier
+     * one is copied, unchanged definitions are taken from a class diagram cache
+     * and a PUML identical to an earlier one but for the version note is not
+     * rendered again.
+     * 
+     * @param revisions
+     *            spec files, or revisions of specFile in the git repository,
+     *            "tags" for all its tags from oldest to newest
+     * @param specFile
+     *            path of the spec in the git repository
+     * @param gitRepository
+     * @param output
+     * @param generateDefinitionModelOnly
+     * @param includeCardinality
+     * @param generateSvg
+     */
+    public void renderHistory(List<String> revisions,String specFile,String gitRepository,String output,boolean generateDefinitionModelOnly,boolean includeCardinality,boolean generateSvg){
+    	LOGGER.entering(LOGGER.getName(), "renderHistory");
+    	
+    	File targetLocation = new File(output);
+    	
+    	if(!targetLocation.exists() || !targetLocation.isDirectory()) {
+    		throw new RuntimeException("Ouput Location is not valid");
+    	}
+    	
+    	File repository = new File(gitRepository);
+    	
+    	if(revisions.size() == 1 && HISTORY_TAGS.equals(revisions.get(0))) {
+    		revisions = Arrays.asList(runGit(repository, "tag", "--sort=creatordate").split("\\s+"));
+    	}
+    	
+    	revisions = revisions.stream().map(String::trim).filter(revision -> !revision.isEmpty()).collect(Collectors.toList());
+    	
+    	if(revisions.isEmpty()) {
+    		throw new IllegalArgumentException("No revisions to render");
+    	}
+    	
+    	Map<String, File> outputsBySpec = new HashMap<String, File>();
+    	Map<String, File> rendersByBody = new HashMap<String, File>();
+    	Map<File, String> notesByRender = new HashMap<File, String>();
+    	Map<String, ClassDiagram> classDiagramCache = new HashMap<String, ClassDiagram>();
+    	Set<String> labels = new HashSet<String>();
+    	int copiedSpecs = 0;
+    	int copiedRenders = 0;
+    	long start = System.nanoTime();
+    	
+    	try{
+    		for(String revision : revisions) {
+    			File revisionFile = new File(revision);
+    			String label = revision.replaceFirst("\\.(yaml|yml|json)$", "").replaceAll("[^A-Za-z0-9._-]+", "_");
+    			
+    			for(int i = 2; !labels.add(label); i++) {
+    				label = label.replaceFirst("~\\d+$", "") + "~" + i;
+    			}
+    			
+    			File revisionTarget = new File(targetLocation, label);
+    			Files.createDirectories(revisionTarget.toPath());
+    			LOGGER.info("Processing Revision --> " + revision);
+    			
+    			String spec = revisionFile.isFile() ? new String(Files.readAllBytes(revisionFile.toPath()), StandardCharsets.UTF_8)
+    					: runGit(repository, "show", revision + ":" + specFile);
+    			String specDigest = StructuralFingerprint.digest(spec);
+    			
+    			if(outputsBySpec.containsKey(specDigest)) {
+    				FileUtils.copyDirectory(outputsBySpec.get(specDigest), revisionTarget);
+    				copiedSpecs++;
+    				continue;
+    			}
+    			
+    			Swagger swaggerObject = revisionFile.isFile() ? readSwaggerFile(revisionFile)
+    					: new SwaggerParser().parse(spec);
+    			
+    			if(swaggerObject == null) {
+    				throw new RuntimeException("Revision " + revision + " is not a valid Swagger Definition");
+    			}
     			
-    			if(generateSvg)
-    			{
-    				//generateUMLDiagram(pumlPath, targetLocation);
-    				generateUmlDiagramNonThread(pumlPath, targetLocation);
+    			PlantUMLCodegen codegen = newCodegen(swaggerObject, revisionTarget, generateDefinitionModelOnly, includeCardinality);
+    			codegen.setClassDiagramCache(classDiagramCache);
+    			String pumlPath = codegen.generatePuml();
+    			
+    			if(generateSvg) {
+    				String puml = new String(Files.readAllBytes(new File(pumlPath).toPath()), StandardCharsets.UTF_8);
+    				Matcher note = VERSION_NOTE.matcher(puml);
+    				String versionNote = note.find() ? note.group() : "";
+    				String bodyDigest = StructuralFingerprint.digest(puml.replace(versionNote, ""));
+    				File rendered = rendersByBody.get(bodyDigest);
+    				
+    				if(rendered != null && copyRender(rendered, notesByRender.get(rendered), revisionTarget, versionNote)) {
+    					copiedRenders++;
+    				} else {
+    					generateUmlDiagrams(pumlPath, revisionTarget);
+    					rendersByBody.put(bodyDigest, revisionTarget);
+    					notesByRender.put(revisionTarget, versionNote);
+    				}
     			}
+    			
+    			outputsBySpec.put(specDigest, revisionTarget);
+    		}
+    	}
+    	catch(Exception e){
+    		LOGGER.log(Level.SEVERE, e.getMessage(),e);
+    		throw new RuntimeException(e);
+    	}
+    	
+    	LOGGER.info("Rendered " + revisions.size() + " revisions in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+    			+ " ms, " + copiedSpecs + " specs and " + copiedRenders + " renders reused, " + classDiagramCache.size() + " distinct definitions");
+    	LOGGER.exiting(LOGGER.getName(), "renderHistory");
+    }
+    
+    /**
+     * Copies the images rendered for an earlier revision with the same diagram.
+     * When the name or version in the note differ, they are replaced in the
+     * text of the SVG; images in other formats cannot be relabelled.
+     * 
+     * @param rendered
+     * @param renderedNote
+     * @param revisionTarget
+     * @param versionNote
+     * @return false when the images have to be rendered again
+     * @throws IOException
+     */
+    private boolean copyRender(File rendered, String renderedNote, File revisionTarget, String versionNote) throws IOException {
+    	FileFilter images = file -> file.isDirectory() || !file.getName().matches(".*\\.i?puml$");
+    	
+    	if(renderedNote.equals(versionNote)) {
+    		FileUtils.copyDirectory(rendered, revisionTarget, images);
+    		return true;
+    	}
+    	
+    	if(!formats.equals(Collections.singletonList(DiagramFormat.SVG)) || svgz) {
+    		return false;
+    	}
+    	
+    	Map<String, String> labels = new LinkedHashMap<String, String>();
+    	Matcher from = NOTE_VALUE.matcher(renderedNote);
+    	Matcher to = NOTE_VALUE.matcher(versionNote);
+    	
+    	while(from.find() && to.find()) {
+    		if(!from.group(1).equals(to.group(1))) {
+    			labels.put(">" + from.group(1) + "<", ">" + to.group(1) + "<");
+    		}
+    	}
+    	
+    	File image = new File(rendered, PlantUMLCodegen.PUML_FILE.replaceFirst("\\.puml$", DiagramFormat.SVG.getExtension()));
+    	String svg = image.isFile() ? new String(Files.readAllBytes(image.toPath()), StandardCharsets.UTF_8) : "";
+    	
+    	for(String label : labels.keySet()) {
+    		if(!svg.contains(label)) {
+    			return false;
+    		}
+    	}
+    	
+    	FileUtils.copyDirectory(rendered, revisionTarget, images);
+    	
+    	for(File file : FileUtils.listFiles(revisionTarget, new String[] { "svg" }, true)) {
+    		String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    		
+    		for(Map.Entry<String, String> label : labels.entrySet()) {
+    			content = content.replace(label.getKey(), label.getValue());
+    		}
+    		
+    		new DirectorySink(file.getParentFile()).write(file.getName(), content.getBytes(StandardCharsets.UTF_8));
+    	}
+    	
+    	return true;
+    }
+    
+    /**
+     * 
+     * @param repository
+     * @param arguments
+     * @return standard output of the git command
+     */
+    private String runGit(File repository, String... arguments) {
+    	List<String> command = new ArrayList<String>();
+    	command.add("git");
+    	command.addAll(Arrays.asList(arguments));
+    	
+    	try {
+    		Process process = new ProcessBuilder(command).directory(repository)
+    				.redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    		String out = IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8);
+    		
+    		if(process.waitFor() != 0) {
+    			throw new RuntimeException(String.join(" ", command) + " failed in " + repository);
+    		}
+    		
+    		return out;
+    	} catch (IOException e) {
+    		throw new RuntimeException(e);
+    	} catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		throw new RuntimeException(e);
+    	}
+    }
+    
+    /**
+     * Transforms each spec into a directory of the output named after it. The
+     * specs overlap in a {@link BatchPipeline}, e.g. one is rendered while the
+     * next is parsed.
+     * 
+     * @param specFiles
+     * @param output
+     * @param generateDefinitionModelOnly
+     * @param includeCardinality
+     * @param generateSvg
+     * @return the pipeline, for its metrics
+     */
+    public BatchPipeline transformSwaggers2Puml(List<String> specFiles,String output,boolean generateDefinitionModelOnly,boolean includeCardinality,boolean generateSvg){
+    	LOGGER.entering(LOGGER.getName(), "transformSwaggers2Puml");
+    	
+    	BatchPipeline pipeline = new BatchPipeline(this, parseThreads, codegenThreads, renderThreads, pipelineQueueCapacity);
+    	pipeline.run(specFiles, new File(output), generateDefinitionModelOnly, includeCardinality, generateSvg);
+    	
+    	LOGGER.exiting(LOGGER.getName(), "transformSwaggers2Puml");
+    	return pipeline;
+    }
+    
+    /**
+     * Transforms the specs of one shard of a batch, see {@link ShardPlanner},
+     * each into the directory of the output it would have in the whole batch.
+     * Lists them with their outcome in a {@link ShardSummary} file, also when
+     * some fail, for {@link ShardMerger}.
+     * 
+     * @param specFiles
+     *            all specs of the batch, the same on every shard
+     * @param shard
+     *            from 1
+     * @param shards
+     * @param output
+     * @param generateDefinitionModelOnly
+     * @param includeCardinality
+     * @param generateSvg
+     * @return the summary of the shard
+     */
+    public ShardSummary transformShard(List<String> specFiles,int shard,int shards,String output,boolean generateDefinitionModelOnly,boolean includeCardinality,boolean generateSvg){
+    	LOGGER.entering(LOGGER.getName(), "transformShard");
+    	
+    	File targetLocation = new File(output);
+    	
+    	if(!targetLocation.isDirectory()) {
+    		throw new RuntimeException("Ouput Location is not valid --> " + output);
+    	}
+    	
+    	long[] costs = ShardPlanner.getCosts(specFiles);
+    	int[] assignment = new ShardPlanner(shards).assign(specFiles, costs);
+    	List<String> directoryNames = BatchPipeline.getTargetDirectoryNames(specFiles);
+    	ShardSummary summary = new ShardSummary(shard, shards);
+    	summary.setSpecs(new ArrayList<String>(specFiles));
+    	summary.setSpecsDigest(ShardPlanner.getDigest(specFiles));
+    	List<String> shardSpecs = new ArrayList<String>();
+    	List<File> targetDirectories = new ArrayList<File>();
+    	
+    	for(int i = 0; i < specFiles.size(); i++) {
+    		if(assignment[i] != shard) {
+    			continue;
+    		}
+    		
+    		File directory = new File(targetLocation, directoryNames.get(i));
+    		if(!directory.isDirectory() && !directory.mkdirs()) {
+    			throw new RuntimeException("Unable to create " + directory);
+    		}
+    		
+    		summary.getEntries().add(new ShardEntry(specFiles.get(i), directoryNames.get(i), shard, costs[i]));
+    		summary.setCost(summary.getCost() + costs[i]);
+    		shardSpecs.add(specFiles.get(i));
+    		targetDirectories.add(directory);
+    	}
+    	
+    	LOGGER.info("Shard " + shard + " of " + shards + ": " + shardSpecs.size() + " of " + specFiles.size() + " specs");
+    	
+    	BatchPipeline pipeline = new BatchPipeline(this, parseThreads, codegenThreads, renderThreads, pipelineQueueCapacity);
+    	RuntimeException failure = null;
+    	
+    	try {
+    		pipeline.run(shardSpecs, targetDirectories, generateDefinitionModelOnly, includeCardinality, generateSvg);
+    	} catch (RuntimeException e) {
+    		failure = e;
+    	}
+    	
+    	Map<String, Exception> failures = pipeline.getFailures();
+    	for(ShardEntry entry : summary.getEntries()) {
+    		Exception cause = failures.get(entry.getSpec());
+    		
+    		// without failures of single specs the whole shard failed, e.g. when interrupted
+    		if(cause == null && failure != null && failures.isEmpty()) {
+    			cause = failure;
+    		}
+    		
+    		if(cause != null) {
+    			entry.setFailed(true);
+    			entry.setError(String.valueOf(cause.getMessage()));
     		}
-    		catch(Exception e){
-    			LOGGER.log(Level.SEVERE, e.getMessage(),e);
+    	}
+    	
+    	try {
+    		Json.pretty().writeValue(new File(targetLocation, ShardSummary.getFileName(shard, shards)), summary);
+    	} catch (IOException e) {
+    		throw new RuntimeException(e);
+    	}
+    	
+    	LOGGER.info(summary.toString());
+    	
+    	if(failure != null) {
+    		throw failure;
+    	}
+    	
+    	LOGGER.exiting(LOGGER.getName(), "transformShard");
+    	return summary;
+    }
+    
+    /**
+     * Draws the definitions of all given specs in one diagram, collapsing
+     * structurally identical definitions into shared nodes.
+     * 
+     * @param specFiles
+     * @param output
+     * @param includeCardinality
+     * @param generateSvg
+     */
+    public void mergeSwaggers2Puml(List<String> specFiles,String output,boolean includeCardinality,boolean generateSvg){
+    	LOGGER.entering(LOGGER.getName(), "mergeSwaggers2Puml");
+    	
+    	File targetLocation = new File(output);
+    	
+    	if(!targetLocation.exists() || !targetLocation.isDirectory()) {
+    		throw new RuntimeException("Ouput Location is not valid");
+    	}
+    	
+    	Map<String, Swagger> swaggers = new LinkedHashMap<String, Swagger>();
+    	
+    	for(String specFile : specFiles) {
+    		Swagger swaggerObject = readSwagger(specFile);
+    		swaggers.put(getServiceName(swaggerObject, new File(specFile), swaggers), swaggerObject);
+    	}
+    	
+    	try{
+    		String pumlPath = new MergedPlantUMLCodegen(swaggers, targetLocation, includeCardinality).generatePuml();
+    		LOGGER.info("Sucessfully Create PUML !!!");
+    		
+    		if(generateSvg)
+    		{
+    			generateUmlDiagrams(pumlPath, targetLocation);
+    		}
+    	}
+    	catch(Exception e){
+    		LOGGER.log(Level.SEVERE, e.getMessage(),e);
+    		throw new RuntimeException(e);
+    	}
+    	
+    	LOGGER.exiting(LOGGER.getName(), "mergeSwaggers2Puml");
+    }
+    
+    /**
+     * Generates swagger-diff.puml (and its images) containing only the
+     * definitions and interfaces that changed between the two specs, plus their
+     * direct neighbours.
+     * 
+     * @param oldSpecFile
+     * @param newSpecFile
+     * @param output
+     * @param includeCardinality
+     * @param generateSvg
+     */
+    public void diffSwaggers2Puml(String oldSpecFile,String newSpecFile,String output,boolean includeCardinality,boolean generateSvg){
+    	LOGGER.entering(LOGGER.getName(), "diffSwaggers2Puml");
+    	
+    	File targetLocation = new File(output);
+    	
+    	if(!targetLocation.exists() || !targetLocation.isDirectory()) {
+    		throw new RuntimeException("Ouput Location is not valid");
+    	}
+    	
+    	Swagger oldSwagger = readSwagger(oldSpecFile);
+    	Swagger newSwagger = readSwagger(newSpecFile);
+    	
+    	try{
+    		SpecDiffCodegen diffCodegen = new SpecDiffCodegen(oldSwagger, newSwagger, targetLocation, includeCardinality);
+    		diffCodegen.setGroupOperationsByTag(groupOperationsByTag);
+    		String pumlPath = diffCodegen.generatePuml();
+    		LOGGER.info("Sucessfully Create PUML !!!");
+    		
+    		if(generateSvg)
+    		{
+    			generateUmlDiagrams(pumlPath, targetLocation);
+    		}
+    	}
+    	catch(Exception e){
+    		LOGGER.log(Level.SEVERE, e.getMessage(),e);
+    		throw new RuntimeException(e);
+    	}
+    	
+    	LOGGER.exiting(LOGGER.getName(), "diffSwaggers2Puml");
+    }
+    
+    /**
+     * 
+     * @param specFile
+     * @return
+     */
+    Swagger readSwagger(String specFile) {
+    	if(ArchiveSpecReader.isArchiveSpec(specFile)) {
+    		return readArchivedSwagger(specFile);
+    	}
+    	
+    	File swaggerSpecFile = new File(specFile);
+    	
+    	if(!swaggerSpecFile.exists() || swaggerSpecFile.isDirectory()) {
+    		throw new RuntimeException("Spec File is not valid --> " + specFile);
+    	}
+    	
+    	LOGGER.info("Processing File --> "+ specFile);
+    	return readSwaggerFile(swaggerSpecFile);
+    }
+    
+    /**
+     * Waits until the {@link #getAdmissionController()} lets the spec start.
+     * 
+     * @param specFile
+     * @return to be closed once the spec is done, null without admission
+     *         control
+     */
+    AdmissionController.Permit admit(File specFile) {
+    	return admit(specFile.getPath(), specFile.length());
+    }
+    
+    /**
+     * 
+     * @param specName
+     * @param specBytes
+     *            size of the spec before parsing, see {@link #getSpecBytes(String)}
+     * @return to be closed once the spec is done, null without admission
+     *         control
+     */
+    AdmissionController.Permit admit(String specName, long specBytes) {
+    	if(admissionController == null) {
+    		return null;
+    	}
+    	
+    	try {
+    		return admissionController.acquire(AdmissionController.estimateBytes(specBytes));
+    	} catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		throw new RuntimeException("Interrupted while waiting to transform " + specName, e);
+    	}
+    }
+    
+    /**
+     * 
+     * @param specBytes
+     * @param swagger
+     * @return estimate of the parsed spec, by its definitions
+     */
+    static long estimateBytes(long specBytes, Swagger swagger) {
+    	return AdmissionController.estimateBytes(specBytes, 
+    			swagger.getDefinitions() != null ? swagger.getDefinitions().size() : 0);
+    }
+    
+    /**
+     * 
+     * @param specFile
+     *            spec file or archive entry
+     * @return size of the spec, the uncompressed size of an archive entry
+     *         rather than of its whole archive; 0 when it can not be read,
+     *         which is reported once the spec is read
+     */
+    static long getSpecBytes(String specFile) {
+    	if(ArchiveSpecReader.isArchiveSpec(specFile)) {
+    		try {
+    			return ArchiveSpecReader.size(specFile);
+    		} catch (IOException e) {
+    			return 0;
+    		}
+    	}
+    	
+    	return new File(specFile).length();
+    }
+    
+    /**
+     * With a {@link #getReferenceCache()}, documents the spec references
+     * through $ref are taken from it; the spec is parsed once and the tree
+     * handed to the parser. Without, the parser resolves them itself.
+     * 
+     * @param specFile
+     * @return
+     */
+    private Swagger readSwaggerFile(File specFile) {
+    	if(referenceCache != null) {
+    		try {
+    			JsonNode resolved = new ExternalRefResolver(referenceCache).resolve(specFile);
+    			
+    			if(resolved != null) {
+    				return new SwaggerParser().read(resolved, true);
+    			}
+    		} catch (IOException e) {
     			throw new RuntimeException(e);
     		}
-    	}else{
-    		throw new RuntimeException("Spec File or Ouput Locations are not valid");
     	}
     	
-    	LOGGER.exiting(LOGGER.getName(), "transformSwagger2Puml");
+    	return new SwaggerParser().read(specFile.getAbsolutePath());
+    }
+    
+    /**
+     * 
+     * @param specFile
+     *            archive entry naming exactly one spec
+     * @return
+     */
+    private Swagger readArchivedSwagger(String specFile) {
+    	try {
+    		Map<String, String> specs = ArchiveSpecReader.read(specFile);
+    		
+    		if(specs.size() != 1) {
+    			throw new RuntimeException(specs.size() + " specs match " + specFile + ", expected one");
+    		}
+    		
+    		LOGGER.info("Processing File --> "+ specFile);
+    		Swagger swaggerObject = new SwaggerParser().parse(specs.values().iterator().next());
+    		
+    		if(swaggerObject == null) {
+    			throw new RuntimeException(specFile + " is not a valid Swagger Definition");
+    		}
+    		
+    		return swaggerObject;
+    	} catch (IOException e) {
+    		throw new RuntimeException(e);
+    	}
+    }
+    
+    /**
+     * Title of the spec, falling back to the file name, made unique among the
+     * services already collected.
+     * 
+     * @param swagger
+     * @param specFile
+     * @param services
+     * @return
+     */
+    private String getServiceName(Swagger swagger, File specFile, Map<String, Swagger> services) {
+    	String serviceName = swagger.getInfo() != null ? swagger.getInfo().getTitle() : null;
+    	
+    	if(serviceName == null || serviceName.trim().isEmpty()) {
+    		serviceName = specFile.getName().replaceFirst("\\.[^.]*$", "");
+    	}
+    	
+    	String uniqueName = serviceName;
+    	for(int i = 2; services.containsKey(uniqueName); i++) {
+    		uniqueName = serviceName + " " + i;
+    	}
+    	
+    	return uniqueName;
+    }
+    
+    /**
+     * 
+     * @param step
+     * @param start
+     */
+    private void logElapsed(String step, long start) {
+    	if(profile) {
+    		LOGGER.info(step + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    	}
+    }
+    
+    /**
+     * 
+     * @return
+     * @throws IOException
+     */
+    private Swagger readSwaggerFromStdin() {
+    	try {
+    		Swagger swaggerObject = new SwaggerParser().parse(IOUtils.toString(System.in, StandardCharsets.UTF_8));
+    		
+    		if(swaggerObject == null) {
+    			throw new RuntimeException("Spec read from stdin is not a valid Swagger Definition");
+    		}
+    		
+    		return swaggerObject;
+    	} catch (IOException e) {
+    		throw new RuntimeException(e);
+    	}
+    }
+    
+    /**
+     * Writes the image in the first requested format, or the PUML when no image
+     * is requested, to stdout. The PUML is streamed while it is generated, the
+     * image once rendered.
+     * 
+     * @param codegen
+     * @param sink
+     * @param generateSvg
+     * @throws Exception
+     */
+    private void streamToStdout(PlantUMLCodegen codegen, OutputSink sink, boolean generateSvg) throws Exception {
+    	if(!generateSvg) {
+    		try (OutputSink.Entry entry = sink.open(PlantUMLCodegen.PUML_FILE)) {
+    			Writer writer = entry.newWriter();
+    			codegen.generatePuml(writer);
+    			writer.flush();
+    			entry.commit();
+    		}
+    		LOGGER.info("Sucessfully Streamed PUML !!!");
+    		return;
+    	}
+    	
+    	final StringWriter puml = new StringWriter();
+    	codegen.generatePuml(puml);
+    	LOGGER.info("Sucessfully Create PUML !!!");
+    	
+    	if(formats.size() > 1) {
+    		LOGGER.warning("Only " + formats.get(0) + " is written to stdout");
+    	}
+    	
+    	runWithWatchdog(STANDARD_STREAM, () -> {
+    		try (OutputSink.Entry entry = sink.open("swagger" + formats.get(0).getExtension())) {
+    			new SourceStringReader(puml.toString()).outputImage(entry, new FileFormatOption(formats.get(0).getFileFormat()));
+    			entry.commit();
+    		}
+    		return null;
+    	});
     }
     
     /**
@@ -77,9 +1263,171 @@ public class PlantUMLGenerator
     	net.sourceforge.plantuml.Run.main(new String[]{"-tsvg","-o",targetLocation.getAbsolutePath(),"-I",pumlLocation});
     }
 
-    private void generateUmlDiagramNonThread(String plantUmlFilePath, File targetOutputFile) throws Exception {
-			SourceFileReader sourceFileReader = new SourceFileReader(new File(plantUmlFilePath));
-			sourceFileReader.setFileFormatOption(new FileFormatOption(FileFormat.SVG));
-			List<GeneratedImage> list = sourceFileReader.getGeneratedImages();
-		}
-}
\ No newline at end of file
+    /**
+     * Renders all requested formats concurrently from a single read of the
+     * PUML, on a pool bounded by the number of formats and processors. Renders
+     * still running after {@link #renderTimeoutMillis} are cancelled.
+     * 
+     * @param plantUmlFilePath
+     * @param targetLocation
+     * @throws Exception
+     */
+    void generateUmlDiagrams(String plantUmlFilePath, File targetLocation) throws Exception {
+    	final File pumlFile = new File(plantUmlFilePath).getAbsoluteFile();
+    	final String puml = new String(Files.readAllBytes(pumlFile.toPath()), StandardCharsets.UTF_8);
+    	String baseName = pumlFile.getName().replaceFirst("\\.puml$", "");
+    	int poolSize = Math.max(1, Math.min(formats.size(), Runtime.getRuntime().availableProcessors()));
+    	ExecutorService pool = Executors.newFixedThreadPool(poolSize, runnable -> {
+    		Thread thread = new Thread(runnable, "swagger2puml-render");
+    		thread.setDaemon(true);
+    		return thread;
+    	});
+    	Map<DiagramFormat, Future<Long>> renders = new LinkedHashMap<DiagramFormat, Future<Long>>();
+    	long start = System.nanoTime();
+    	
+    	try {
+    		for (final DiagramFormat format : formats) {
+    			final File image = new File(targetLocation, baseName + format.getExtension());
+    			renders.put(format, pool.submit(() -> renderImage(puml, pumlFile.getParentFile(), format, image)));
+    		}
+    		
+    		long sequentialMillis = 0;
+    		
+    		for (Map.Entry<DiagramFormat, Future<Long>> render : renders.entrySet()) {
+    			long elapsedMillis = awaitRender(render.getValue(), start, plantUmlFilePath + " as " + render.getKey());
+    			sequentialMillis += elapsedMillis;
+    			
+    			if (profile) {
+    				LOGGER.info("Rendered " + render.getKey() + " in " + elapsedMillis + " ms");
+    			}
+    		}
+    		
+    		if (profile) {
+    			long wallMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    			LOGGER.info(String.format("Rendered %d formats in %d ms on %d threads, %d ms back to back (%.1fx speedup)",
+    					formats.size(), wallMillis, poolSize, sequentialMillis, (double) sequentialMillis / wallMillis));
+    		}
+    	} finally {
+    		pool.shutdownNow();
+    	}
+    }
+    
+    /**
+     * 
+     * @param puml
+     * @param currentDir
+     *            directory includes are resolved against
+     * @param format
+     * @param image
+     * @return render time in millis
+     * @throws IOException
+     */
+    private long renderImage(String puml, File currentDir, DiagramFormat format, File image) throws IOException {
+    	long start = System.nanoTime();
+    	
+    	try (OutputSink.Entry entry = new DirectorySink(image.getParentFile()).open(image.getName())) {
+    		new SourceStringReader(puml, currentDir).outputImage(entry, new FileFormatOption(format.getFileFormat()));
+    		entry.commit();
+    	}
+    	
+    	if (format == DiagramFormat.SVG && tileSize > 0) {
+    		File index = new SvgTiler(tileSize).tile(image, image.getParentFile(), image.getName().replaceFirst("\\.svg$", ""));
+    		LOGGER.info("Sucessfully Created Tiles, open " + index);
+    	}
+    	
+    	if (format == DiagramFormat.SVG && (minifySvg || svgz)) {
+    		postProcessSvg(image);
+    	}
+    	
+    	return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+    
+    /**
+     * Minifies and/or compresses the rendered SVG. The result is written next to
+     * it and moved in place, so a reader never sees a partial file.
+     * 
+     * @param image
+     * @throws IOException
+     */
+    private void postProcessSvg(File image) throws IOException {
+    	File target = svgz ? new File(image.getParentFile(), image.getName().replaceFirst("\\.svg$", "") + ".svgz") : image;
+    	File temp = File.createTempFile(image.getName(), ".tmp", image.getParentFile());
+    	
+    	try {
+    		try (OutputStream os = svgz ? new GZIPOutputStream(new FileOutputStream(temp), 8192)
+    				: new BufferedOutputStream(new FileOutputStream(temp))) {
+    			if (minifySvg) {
+    				new SvgMinifier(svgPrecision).minify(image, os);
+    			} else {
+    				Files.copy(image.toPath(), os);
+    			}
+    		}
+    		
+    		Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    		
+    		if (svgz) {
+    			Files.delete(image.toPath());
+    		}
+    	} finally {
+    		Files.deleteIfExists(temp.toPath());
+    	}
+    	
+    	if (profile) {
+    		LOGGER.info("Post processed " + target + " to " + target.length() + " bytes");
+    	}
+    }
+    
+    /**
+     * Waits for the render until {@link #renderTimeoutMillis} after start.
+     * 
+     * @param render
+     * @param start
+     * @param diagramName
+     * @return
+     * @throws Exception
+     */
+    private <T> T awaitRender(Future<T> render, long start, String diagramName) throws Exception {
+    	try {
+    		if (renderTimeoutMillis <= 0) {
+    			return render.get();
+    		}
+    		
+    		long remainingMillis = renderTimeoutMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    		return render.get(Math.max(0, remainingMillis), TimeUnit.MILLISECONDS);
+    	} catch (TimeoutException e) {
+    		render.cancel(true);
+    		String message = "Rendering of " + diagramName + " exceeded the deadline of " + renderTimeoutMillis
+    				+ " ms and was cancelled";
+    		LOGGER.severe(message);
+    		throw new TimeoutException(message);
+    	} catch (ExecutionException e) {
+    		throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    	}
+    }
+    
+    /**
+     * Runs the render on a separate thread when a timeout is set.
+     * 
+     * @param diagramName
+     * @param render
+     * @throws Exception
+     */
+    private void runWithWatchdog(String diagramName, Callable<Void> render) throws Exception {
+    	if (renderTimeoutMillis <= 0) {
+    		render.call();
+    		return;
+    	}
+    	
+    	ExecutorService watchdog = Executors.newSingleThreadExecutor(runnable -> {
+    		Thread thread = new Thread(runnable, "swagger2puml-render");
+    		thread.setDaemon(true);
+    		return thread;
+    	});
+    	
+    	try {
+    		awaitRender(watchdog.submit(render), System.nanoTime(), diagramName);
+    	} finally {
+    		watchdog.shutdownNow();
+    	}
+    }
+}
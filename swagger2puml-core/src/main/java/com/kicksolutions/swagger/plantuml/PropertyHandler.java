@@ -0,0 +1,32 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.util.Map;
+
+import com.kicksolutions.swagger.plantuml.vo.ClassMembers;
+
+import io.swagger.models.Model;
+import io.swagger.models.properties.Property;
+
+/**
+ * Converts a property of a definition into a class member, see
+ * {@link PlantUMLCodegen#registerPropertyHandler(Class, PropertyHandler)}.
+ * 
+ * @author MSANTOSH
+ *
+ * @param <P>
+ */
+public interface PropertyHandler<P extends Property> {
+
+	/**
+	 * 
+	 * @param property
+	 * @param name
+	 *            name of the member
+	 * @param owner
+	 *            definition declaring the property, may be null
+	 * @param models
+	 *            all definitions of the spec
+	 * @return
+	 */
+	ClassMembers toClassMember(P property, String name, Model owner, Map<String, Model> models);
+}
@@ -0,0 +1,182 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.swagger.parser.util.DeserializationUtils;
+
+/**
+ * Parsed documents referenced through $ref by the specs of a run, e.g. a
+ * common/errors.yaml shared by every service. A document is parsed once and
+ * handed to every spec referencing it, until its modification time or size
+ * changes. The least recently used documents are dropped beyond
+ * {@link #getMaxDocuments()}. Share one instance only among the specs of one
+ * run, a long lived process should not keep it.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class ReferencedDocumentCache {
+
+	public static final int DEFAULT_MAX_DOCUMENTS = 256;
+
+	private final int maxDocuments;
+	private final Map<String, Document> documents;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Keeps up to {@link #DEFAULT_MAX_DOCUMENTS} documents.
+	 */
+	public ReferencedDocumentCache() {
+		this(DEFAULT_MAX_DOCUMENTS);
+	}
+
+	/**
+	 *
+	 * @param maxDocuments
+	 *            documents kept, the least recently used are dropped beyond
+	 */
+	public ReferencedDocumentCache(final int maxDocuments) {
+		if (maxDocuments < 1) {
+			throw new IllegalArgumentException("At least one document must be kept --> " + maxDocuments);
+		}
+
+		this.maxDocuments = maxDocuments;
+		this.documents = new LinkedHashMap<String, Document>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Document> eldest) {
+				if (size() > maxDocuments) {
+					evictions.incrementAndGet();
+					return true;
+				}
+
+				return false;
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @param file
+	 * @return the parsed document, shared with other callers and so not to be
+	 *         modified
+	 * @throws IOException
+	 */
+	public JsonNode getDocument(File file) throws IOException {
+		final File canonicalFile = file.getCanonicalFile();
+		final long lastModified = canonicalFile.lastModified();
+		final long length = canonicalFile.length();
+
+		Document document;
+
+		synchronized (documents) {
+			document = documents.get(canonicalFile.getPath());
+		}
+
+		if (document != null && document.lastModified == lastModified && document.length == length) {
+			hits.incrementAndGet();
+			return document.tree;
+		}
+
+		if (!canonicalFile.isFile()) {
+			synchronized (documents) {
+				documents.remove(canonicalFile.getPath());
+			}
+			throw new IOException("Referenced document " + canonicalFile + " does not exist");
+		}
+
+		misses.incrementAndGet();
+
+		String content = new String(Files.readAllBytes(canonicalFile.toPath()), StandardCharsets.UTF_8);
+		JsonNode tree = DeserializationUtils.deserializeIntoTree(content, canonicalFile.getPath());
+
+		if (tree == null) {
+			throw new IOException(canonicalFile + " is neither json nor yaml");
+		}
+
+		synchronized (documents) {
+			documents.put(canonicalFile.getPath(), new Document(lastModified, length, tree));
+		}
+		return tree;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 *
+	 * @return documents dropped as least recently used
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	public int getMaxDocuments() {
+		return maxDocuments;
+	}
+
+	/**
+	 *
+	 * @return documents currently cached
+	 */
+	public int getSize() {
+		synchronized (documents) {
+			return documents.size();
+		}
+	}
+
+	/**
+	 *
+	 * @return share of lookups answered without parsing, 0 without lookups
+	 */
+	public double getHitRatio() {
+		long lookups = hits.get() + misses.get();
+		return lookups == 0 ? 0 : (double) hits.get() / lookups;
+	}
+
+	/**
+	 * Drops the cached documents and resets the statistics.
+	 */
+	public void clear() {
+		synchronized (documents) {
+			documents.clear();
+		}
+		hits.set(0);
+		misses.set(0);
+		evictions.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return "Referenced documents: " + getSize() + " of " + maxDocuments + " cached, " + hits.get() + " hits, "
+				+ misses.get() + " misses, " + evictions.get() + " evicted";
+	}
+
+	private static class Document {
+		private final long lastModified;
+		private final long length;
+		private final JsonNode tree;
+
+		private Document(long lastModified, long length, JsonNode tree) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.tree = tree;
+		}
+	}
+}
@@ -0,0 +1,335 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import com.kicksolutions.swagger.plantuml.vo.ClassDiagram;
+import com.kicksolutions.swagger.plantuml.vo.ClassRelation;
+import com.kicksolutions.swagger.plantuml.vo.InterfaceDiagram;
+
+/**
+ * Removes edges from the relation graph that add little to the diagram but
+ * cost Graphviz routing time:
+ * <ul>
+ * <li>extension and inheritance edges implied by a longer chain of the same
+ * kind (transitive reduction, reachability is kept)</li>
+ * <li>edges a class shares with one of its ancestors</li>
+ * <li>error edges, which are bundled through a single node when several
+ * interfaces throw the same error classes</li>
+ * </ul>
+ *
+ * @author MSANTOSH
+ *
+ */
+public class RelationGraphSimplifier {
+
+	private static final Logger LOGGER = Logger.getLogger(RelationGraphSimplifier.class.getName());
+
+	private static final String ERROR_BUNDLE = "Errors";
+
+	private int transitiveEdges = 0;
+	private int inheritedEdges = 0;
+	private int bundledEdges = 0;
+	private String errorBundle;
+
+	public RelationGraphSimplifier() {
+		super();
+	}
+
+	/**
+	 *
+	 * @param relations
+	 * @param classDiagrams
+	 * @param interfaceDiagrams
+	 * @return the simplified relations, the given list is left untouched
+	 */
+	public List<ClassRelation> simplify(List<ClassRelation> relations, List<ClassDiagram> classDiagrams,
+			List<InterfaceDiagram> interfaceDiagrams) {
+		List<ClassRelation> simplified = new ArrayList<ClassRelation>(relations);
+
+		transitiveEdges = reduce(simplified, RelationKind.INHERITANCE) + reduce(simplified, RelationKind.EXTENSION);
+		inheritedEdges = removeInherited(simplified);
+		simplified = bundleErrors(simplified, classDiagrams, interfaceDiagrams);
+
+		LOGGER.info("Simplified relations from " + relations.size() + " to " + simplified.size() + " edges, "
+				+ transitiveEdges + " transitive, " + inheritedEdges + " inherited, " + bundledEdges
+				+ " bundled into " + (errorBundle != null ? errorBundle : "no error node"));
+
+		return simplified;
+	}
+
+	/**
+	 *
+	 * @return edges removed by the last {@link #simplify(List, List, List)},
+	 *         net of the edges added for the error node
+	 */
+	public int getRemovedEdges() {
+		return transitiveEdges + inheritedEdges + bundledEdges;
+	}
+
+	public int getTransitiveEdges() {
+		return transitiveEdges;
+	}
+
+	public int getInheritedEdges() {
+		return inheritedEdges;
+	}
+
+	public int getBundledEdges() {
+		return bundledEdges;
+	}
+
+	/**
+	 *
+	 * @return name of the node error edges are bundled through, null when not
+	 *         bundled
+	 */
+	public String getErrorBundle() {
+		return errorBundle;
+	}
+
+	/**
+	 * Removes each edge whose target is still reachable from its source
+	 * through other edges of the same kind. Edges are only removed while an
+	 * alternative path exists, so cycles are handled as well.
+	 *
+	 * @param relations
+	 * @param kind
+	 * @return removed edges
+	 */
+	private int reduce(List<ClassRelation> relations, RelationKind kind) {
+		Map<String, Set<String>> graph = new LinkedHashMap<String, Set<String>>();
+
+		for (ClassRelation relation : relations) {
+			if (kind.matches(relation)) {
+				successors(graph, relation.getSourceClass()).add(relation.getTargetClass());
+			}
+		}
+
+		int removed = 0;
+
+		for (int i = relations.size() - 1; i >= 0; i--) {
+			ClassRelation relation = relations.get(i);
+
+			if (kind.matches(relation) && !relation.getSourceClass().equals(relation.getTargetClass())
+					&& isReachableWithout(graph, relation.getSourceClass(), relation.getTargetClass())) {
+				graph.get(relation.getSourceClass()).remove(relation.getTargetClass());
+				relations.remove(i);
+				removed++;
+			}
+		}
+
+		return removed;
+	}
+
+	/**
+	 *
+	 * @param graph
+	 * @param source
+	 * @param target
+	 * @return whether target is reachable from source without the direct edge
+	 */
+	private boolean isReachableWithout(Map<String, Set<String>> graph, String source, String target) {
+		Set<String> visited = new HashSet<String>();
+		Deque<String> pending = new ArrayDeque<String>();
+
+		for (String successor : successors(graph, source)) {
+			if (!successor.equals(target)) {
+				pending.add(successor);
+			}
+		}
+
+		visited.add(source);
+
+		while (!pending.isEmpty()) {
+			String node = pending.poll();
+
+			if (node.equals(target)) {
+				return true;
+			}
+
+			if (visited.add(node)) {
+				pending.addAll(successors(graph, node));
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Removes the edges of a class that one of its ancestors already has to
+	 * the same target with the same kind.
+	 *
+	 * @param relations
+	 * @return removed edges
+	 */
+	private int removeInherited(List<ClassRelation> relations) {
+		Map<String, Set<String>> parents = new LinkedHashMap<String, Set<String>>();
+		Set<String> edges = new HashSet<String>();
+
+		for (ClassRelation relation : relations) {
+			if (relation.isInheritance()) {
+				successors(parents, relation.getSourceClass()).add(relation.getTargetClass());
+			} else {
+				edges.add(edgeKey(relation.getSourceClass(), relation));
+			}
+		}
+
+		if (parents.isEmpty()) {
+			return 0;
+		}
+
+		int removed = 0;
+
+		for (int i = relations.size() - 1; i >= 0; i--) {
+			ClassRelation relation = relations.get(i);
+
+			if (!relation.isInheritance() && isInherited(parents, edges, relation)) {
+				relations.remove(i);
+				removed++;
+			}
+		}
+
+		return removed;
+	}
+
+	private boolean isInherited(Map<String, Set<String>> parents, Set<String> edges, ClassRelation relation) {
+		Set<String> visited = new HashSet<String>();
+		Deque<String> pending = new ArrayDeque<String>(successors(parents, relation.getSourceClass()));
+
+		while (!pending.isEmpty()) {
+			String ancestor = pending.poll();
+
+			if (!visited.add(ancestor) || ancestor.equals(relation.getSourceClass())) {
+				continue;
+			}
+
+			if (edges.contains(edgeKey(ancestor, relation))) {
+				return true;
+			}
+
+			pending.addAll(successors(parents, ancestor));
+		}
+
+		return false;
+	}
+
+	/**
+	 * Routes the edges from interfaces to their error classes through one
+	 * node, when that takes fewer edges than drawing them directly.
+	 *
+	 * @param relations
+	 * @param classDiagrams
+	 * @param interfaceDiagrams
+	 * @return
+	 */
+	private List<ClassRelation> bundleErrors(List<ClassRelation> relations, List<ClassDiagram> classDiagrams,
+			List<InterfaceDiagram> interfaceDiagrams) {
+		Map<String, Set<String>> errorClasses = new LinkedHashMap<String, Set<String>>();
+
+		for (InterfaceDiagram interfaceDiagram : interfaceDiagrams) {
+			if (interfaceDiagram.getErrorClasses() != null) {
+				successors(errorClasses, interfaceDiagram.getInterfaceName())
+						.addAll(interfaceDiagram.getErrorClasses());
+			}
+		}
+
+		List<ClassRelation> kept = new ArrayList<ClassRelation>();
+		Set<String> sources = new LinkedHashSet<String>();
+		Set<String> targets = new LinkedHashSet<String>();
+		int errorEdges = 0;
+
+		for (ClassRelation relation : relations) {
+			if (isErrorRelation(errorClasses, relation)) {
+				sources.add(relation.getSourceClass());
+				targets.add(relation.getTargetClass());
+				errorEdges++;
+			} else {
+				kept.add(relation);
+			}
+		}
+
+		errorBundle = null;
+		bundledEdges = 0;
+
+		if (errorEdges <= sources.size() + targets.size()) {
+			return relations;
+		}
+
+		errorBundle = getUniqueName(classDiagrams, interfaceDiagrams);
+
+		for (String source : sources) {
+			kept.add(new ClassRelation(errorBundle, true, false, null, source));
+		}
+
+		for (String target : targets) {
+			kept.add(new ClassRelation(target, true, false, null, errorBundle));
+		}
+
+		bundledEdges = errorEdges - sources.size() - targets.size();
+		return kept;
+	}
+
+	private boolean isErrorRelation(Map<String, Set<String>> errorClasses, ClassRelation relation) {
+		Set<String> interfaceErrors = errorClasses.get(relation.getSourceClass());
+		return relation.isExtension() && interfaceErrors != null && interfaceErrors.contains(relation.getTargetClass());
+	}
+
+	private String getUniqueName(List<ClassDiagram> classDiagrams, List<InterfaceDiagram> interfaceDiagrams) {
+		Set<String> names = new HashSet<String>();
+
+		for (ClassDiagram classDiagram : classDiagrams) {
+			names.add(classDiagram.getClassName());
+		}
+
+		for (InterfaceDiagram interfaceDiagram : interfaceDiagrams) {
+			names.add(interfaceDiagram.getInterfaceName());
+		}
+
+		String name = ERROR_BUNDLE;
+		for (int i = 2; names.contains(name); i++) {
+			name = ERROR_BUNDLE + i;
+		}
+
+		return name;
+	}
+
+	private static Set<String> successors(Map<String, Set<String>> graph, String node) {
+		Set<String> successors = graph.get(node);
+
+		if (successors == null) {
+			successors = new LinkedHashSet<String>();
+			graph.put(node, successors);
+		}
+
+		return successors;
+	}
+
+	private static String edgeKey(String source, ClassRelation relation) {
+		return new StringBuilder().append(source).append("|").append(relation.getTargetClass()).append('|')
+				.append(relation.isExtension()).append('|').append(relation.isComposition()).toString();
+	}
+
+	/**
+	 * Edge kinds taking part in the transitive reduction.
+	 */
+	private enum RelationKind {
+		INHERITANCE, EXTENSION;
+
+		boolean matches(ClassRelation relation) {
+			if (relation.getSourceClass() == null || relation.getTargetClass() == null) {
+				return false;
+			}
+
+			return this == INHERITANCE ? relation.isInheritance() : relation.isExtension();
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.util.List;
+
+import com.kicksolutions.swagger.plantuml.vo.ClassDiagram;
+import com.kicksolutions.swagger.plantuml.vo.ClassRelation;
+import com.kicksolutions.swagger.plantuml.vo.InterfaceDiagram;
+import com.kicksolutions.swagger.plantuml.vo.RenderCostEstimate;
+
+/**
+ * Predicts the time Graphviz needs to lay out a diagram from the node, edge and
+ * member counts of the codegen model. The weights are coarse and only meant to
+ * tell small diagrams from pathological ones.
+ * 
+ * @author MSANTOSH
+ *
+ */
+public class RenderCostEstimator {
+
+	private static final double NODE_COST_MILLIS = 2.0;
+	private static final double EDGE_COST_MILLIS = 1.5;
+	private static final double MEMBER_COST_MILLIS = 0.05;
+	private static final double POLYLINE_EDGE_FACTOR = 0.6;
+
+	public RenderCostEstimator() {
+		super();
+	}
+
+	/**
+	 * 
+	 * @param classDiagrams
+	 * @param interfaceDiagrams
+	 * @param relations
+	 * @return
+	 */
+	public RenderCostEstimate estimate(List<ClassDiagram> classDiagrams, List<InterfaceDiagram> interfaceDiagrams,
+			List<ClassRelation> relations) {
+		int members = 0;
+		int enumMembers = 0;
+
+		for (ClassDiagram classDiagram : classDiagrams) {
+			int fields = classDiagram.getFields() != null ? classDiagram.getFields().size() : 0;
+			members += fields;
+
+			if (!classDiagram.isClass()) {
+				enumMembers += fields;
+			}
+		}
+
+		for (InterfaceDiagram interfaceDiagram : interfaceDiagrams) {
+			members += interfaceDiagram.getMethods() != null ? interfaceDiagram.getMethods().size() : 0;
+		}
+
+		return new RenderCostEstimate(classDiagrams.size() + interfaceDiagrams.size(), relations.size(), members,
+				enumMembers);
+	}
+
+	/**
+	 * Crossing minimisation in dot grows faster than linear with the number of
+	 * edges, hence the logarithmic factor on the edge term.
+	 * 
+	 * @param estimate
+	 * @param degradation
+	 * @return
+	 */
+	public long estimateMillis(RenderCostEstimate estimate, RenderDegradation degradation) {
+		int members = estimate.getMembers();
+
+		if (degradation.includes(RenderDegradation.HIDE_MEMBERS)) {
+			members = 0;
+		} else if (degradation.includes(RenderDegradation.COLLAPSE_ENUMS)) {
+			members -= estimate.getEnumMembers();
+		}
+
+		double edgeCost = EDGE_COST_MILLIS * estimate.getEdges() * (Math.log(estimate.getEdges() + 2) / Math.log(2));
+
+		if (degradation.includes(RenderDegradation.POLYLINE_EDGES)) {
+			edgeCost *= POLYLINE_EDGE_FACTOR;
+		}
+
+		return Math.round(NODE_COST_MILLIS * estimate.getNodes() + edgeCost + MEMBER_COST_MILLIS * members);
+	}
+
+	/**
+	 * Returns the first degradation whose estimate fits the budget, or the
+	 * strongest one when none does.
+	 * 
+	 * @param estimate
+	 * @param budgetMillis
+	 * @return
+	 */
+	public RenderDegradation selectDegradation(RenderCostEstimate estimate, long budgetMillis) {
+		RenderDegradation[] degradations = RenderDegradation.values();
+
+		for (RenderDegradation degradation : degradations) {
+			if (estimateMillis(estimate, degradation) <= budgetMillis) {
+				return degradation;
+			}
+		}
+
+		return degradations[degradations.length - 1];
+	}
+}
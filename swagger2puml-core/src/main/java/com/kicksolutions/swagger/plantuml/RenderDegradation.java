@@ -0,0 +1,26 @@
+package com.kicksolutions.swagger.plantuml;
+
+/**
+ * Steps applied, in order, to a diagram whose estimated render time exceeds the
+ * configured budget. Each step includes all the previous ones.
+ * 
+ * @author MSANTOSH
+ *
+ */
+public enum RenderDegradation {
+
+	/** Diagram is rendered as is */
+	NONE,
+	/** Enum values are hidden */
+	COLLAPSE_ENUMS,
+	/** All class and interface members are hidden */
+	HIDE_MEMBERS,
+	/** Edges are routed as polylines instead of splines */
+	POLYLINE_EDGES,
+	/** Layout is done in process by Smetana instead of the external dot */
+	SMETANA_LAYOUT;
+
+	public boolean includes(RenderDegradation other) {
+		return ordinal() >= other.ordinal();
+	}
+}
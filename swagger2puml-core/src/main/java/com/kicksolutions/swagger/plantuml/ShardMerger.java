@@ -0,0 +1,265 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+
+import com.kicksolutions.swagger.plantuml.vo.ShardEntry;
+import com.kicksolutions.swagger.plantuml.vo.ShardSummary;
+
+import io.swagger.util.Json;
+
+/**
+ * Combines the outputs of the shards of a batch, see
+ * {@link PlantUMLGenerator#transformShard(List, int, int, String, boolean, boolean, boolean)},
+ * into one directory with an index.json and index.html of all specs. Every
+ * shard must be present exactly once, all shards must have been given the
+ * same specs and every spec and directory must be listed by exactly one
+ * shard; failed specs are listed, not fatal. The target must be
+ * empty or one of the shard outputs, so no leftovers mix into the merge.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class ShardMerger {
+
+	private static final Logger LOGGER = Logger.getLogger(ShardMerger.class.getName());
+
+	public static final String INDEX_FILE = "index.json";
+	public static final String HTML_INDEX_FILE = "index.html";
+
+	private static final Pattern SUMMARY_FILE = Pattern.compile("shard-\\d+-of-\\d+\\.json");
+
+	public ShardMerger() {
+		super();
+	}
+
+	/**
+	 *
+	 * @param shardOutputs
+	 *            output directories of the shards, e.g. CI artifacts
+	 *            downloaded side by side; may include the target location
+	 * @param targetLocation
+	 * @return the merged index
+	 * @throws IOException
+	 */
+	public ShardSummary merge(List<File> shardOutputs, File targetLocation) throws IOException {
+		if (!targetLocation.isDirectory() && !targetLocation.mkdirs()) {
+			throw new IOException("Unable to create " + targetLocation);
+		}
+
+		String[] leftovers = targetLocation.list();
+
+		if (leftovers != null && leftovers.length > 0 && !isShardOutput(shardOutputs, targetLocation)) {
+			throw new IOException("Target " + targetLocation + " is neither empty nor one of the shard outputs");
+		}
+
+		Map<Integer, ShardSummary> summaries = new TreeMap<Integer, ShardSummary>();
+		Map<Integer, File> sources = new TreeMap<Integer, File>();
+		int shards = 0;
+
+		for (File shardOutput : shardOutputs) {
+			File[] summaryFiles = shardOutput.listFiles((directory, name) -> SUMMARY_FILE.matcher(name).matches());
+
+			if (summaryFiles == null) {
+				throw new IOException("Shard output " + shardOutput + " is not a directory");
+			}
+
+			for (File summaryFile : summaryFiles) {
+				ShardSummary summary = Json.mapper().readValue(summaryFile, ShardSummary.class);
+				File previous = sources.put(summary.getShard(), shardOutput);
+
+				if (shards != 0 && summary.getShards() != shards) {
+					throw new IOException(summaryFile + " is one of " + summary.getShards() + " shards, expected "
+							+ shards);
+				}
+
+				if (previous != null && !previous.getCanonicalFile().equals(shardOutput.getCanonicalFile())) {
+					throw new IOException("Shard " + summary.getShard() + " found in " + previous + " and "
+							+ shardOutput);
+				}
+
+				shards = summary.getShards();
+				summaries.put(summary.getShard(), summary);
+			}
+		}
+
+		if (shards == 0) {
+			throw new IOException("No shard summaries found in " + shardOutputs);
+		}
+
+		TreeSet<Integer> missing = new TreeSet<Integer>();
+		for (int shard = 1; shard <= shards; shard++) {
+			if (!summaries.containsKey(shard)) {
+				missing.add(shard);
+			}
+		}
+
+		if (!missing.isEmpty()) {
+			throw new IOException("Missing shards " + missing + " of " + shards);
+		}
+
+		ShardSummary first = summaries.values().iterator().next();
+
+		for (ShardSummary summary : summaries.values()) {
+			if (summary.getSpecsDigest() == null) {
+				throw new IOException("Shard " + summary.getShard() + " does not list the specs of the batch");
+			}
+
+			if (!summary.getSpecsDigest().equals(first.getSpecsDigest())) {
+				throw new IOException("Shards " + first.getShard() + " and " + summary.getShard()
+						+ " were given different specs");
+			}
+		}
+
+		ShardSummary index = new ShardSummary(0, shards);
+		index.setSpecs(first.getSpecs());
+		index.setSpecsDigest(first.getSpecsDigest());
+		Map<String, ShardEntry> specs = new HashMap<String, ShardEntry>();
+		Map<String, ShardEntry> directories = new HashMap<String, ShardEntry>();
+
+		for (ShardSummary summary : summaries.values()) {
+			for (ShardEntry entry : summary.getEntries()) {
+				ShardEntry previous = specs.put(entry.getSpec(), entry);
+
+				if (previous != null) {
+					throw new IOException("Spec " + entry.getSpec() + " is listed by shards " + previous.getShard()
+							+ " and " + entry.getShard());
+				}
+
+				previous = entry.getDirectory() == null ? null : directories.put(entry.getDirectory(), entry);
+
+				if (previous != null) {
+					throw new IOException("Directory " + entry.getDirectory() + " is written by " + previous.getSpec()
+							+ " and " + entry.getSpec());
+				}
+			}
+		}
+
+		Set<String> transformed = new HashSet<String>();
+		for (String spec : specs.keySet()) {
+			transformed.add(ShardPlanner.normalize(spec));
+		}
+
+		TreeSet<String> untransformed = new TreeSet<String>();
+		for (String spec : first.getSpecs()) {
+			if (!transformed.contains(ShardPlanner.normalize(spec))) {
+				untransformed.add(spec);
+			}
+		}
+
+		if (!untransformed.isEmpty()) {
+			throw new IOException("Specs " + untransformed + " were transformed by no shard");
+		}
+
+		for (ShardSummary summary : summaries.values()) {
+			File source = sources.get(summary.getShard());
+			copy(source, targetLocation, ShardSummary.getFileName(summary.getShard(), shards));
+
+			for (ShardEntry entry : summary.getEntries()) {
+				copy(source, targetLocation, entry.getDirectory());
+				index.getEntries().add(entry);
+				index.setCost(index.getCost() + entry.getCost());
+			}
+		}
+
+		Collections.sort(index.getEntries(), Comparator.comparing(ShardEntry::getSpec));
+
+		Json.pretty().writeValue(new File(targetLocation, INDEX_FILE), index);
+		writeHtmlIndex(new File(targetLocation, HTML_INDEX_FILE), index, targetLocation);
+
+		LOGGER.info(index.toString());
+		return index;
+	}
+
+	private boolean isShardOutput(List<File> shardOutputs, File targetLocation) throws IOException {
+		for (File shardOutput : shardOutputs) {
+			if (shardOutput.getCanonicalFile().equals(targetLocation.getCanonicalFile())) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Copies a file or directory of a shard output, unless it already is in
+	 * the target location.
+	 */
+	private void copy(File shardOutput, File targetLocation, String name) throws IOException {
+		File source = new File(shardOutput, name);
+		File target = new File(targetLocation, name);
+
+		if (!source.exists() || source.getCanonicalFile().equals(target.getCanonicalFile())) {
+			return;
+		}
+
+		if (source.isDirectory()) {
+			FileUtils.copyDirectory(source, target);
+		} else {
+			FileUtils.copyFile(source, target);
+		}
+	}
+
+	/**
+	 * A row per spec linking the diagrams found in its directory.
+	 */
+	private void writeHtmlIndex(File file, ShardSummary index, File targetLocation) throws IOException {
+		List<String> extensions = new ArrayList<String>();
+		extensions.add(".puml");
+		for (DiagramFormat format : DiagramFormat.values()) {
+			extensions.add(format.getExtension());
+		}
+
+		try (Writer writer = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(file)),
+				StandardCharsets.UTF_8)) {
+			writer.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n<title>swagger2puml</title>\n");
+			writer.write("<style>\nbody { font-family: sans-serif; }\ntd, th { padding: 2px 8px; text-align: left; }\n");
+			writer.write(".failed { color: #b00; }\n</style>\n</head>\n<body>\n");
+			writer.write("<p>" + SvgTiler.escapeHtml(index.toString()) + "</p>\n<table>\n");
+			writer.write("<tr><th>Spec</th><th>Shard</th><th>Diagrams</th></tr>\n");
+
+			for (ShardEntry entry : index.getEntries()) {
+				writer.write(entry.isFailed() ? "<tr class=\"failed\">" : "<tr>");
+				writer.write("<td>" + SvgTiler.escapeHtml(entry.getSpec()) + "</td><td>" + entry.getShard() + "</td><td>");
+
+				if (entry.isFailed()) {
+					writer.write("failed: " + SvgTiler.escapeHtml(String.valueOf(entry.getError())));
+				} else {
+					String pumlName = PlantUMLCodegen.PUML_FILE.replaceFirst("\\.puml$", "");
+
+					for (String extension : extensions) {
+						String link = entry.getDirectory() + "/" + pumlName + extension;
+
+						if (new File(targetLocation, link).isFile()) {
+							writer.write("<a href=\"" + SvgTiler.escapeHtml(link) + "\">" + extension.substring(1)
+									+ "</a> ");
+						}
+					}
+				}
+
+				writer.write("</td></tr>\n");
+			}
+
+			writer.write("</table>\n</body>\n</html>\n");
+		}
+	}
+}
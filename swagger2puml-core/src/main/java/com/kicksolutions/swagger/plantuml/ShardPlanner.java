@@ -0,0 +1,264 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Splits specs into shards, so that several machines each transform a part
+ * of a batch without talking to each other. Every machine computes the same
+ * assignment from the same spec list: specs are taken from the most to the
+ * least costly, ties ordered by a hash of their path, and each goes to the
+ * shard with the least cost so far. Costs count line endings as one byte, so
+ * checkouts with CRLF and LF line endings agree.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class ShardPlanner {
+
+	/** Cost of any spec, parsing and rendering aside from its size */
+	private static final long BASE_COST = 4096;
+
+	private final int shards;
+
+	/**
+	 *
+	 * @param shards
+	 */
+	public ShardPlanner(int shards) {
+		if (shards < 1) {
+			throw new IllegalArgumentException("At least one shard is required --> " + shards);
+		}
+
+		this.shards = shards;
+	}
+
+	/**
+	 *
+	 * @param shard
+	 *            i/n, the i-th of n shards counting from 1
+	 * @return i and n
+	 */
+	public static int[] parse(String shard) {
+		String[] parts = shard.trim().split("/");
+
+		try {
+			if (parts.length == 2) {
+				int index = Integer.parseInt(parts[0].trim());
+				int count = Integer.parseInt(parts[1].trim());
+
+				if (count >= 1 && index >= 1 && index <= count) {
+					return new int[] { index, count };
+				}
+			}
+		} catch (NumberFormatException e) {
+			// reported below
+		}
+
+		throw new IllegalArgumentException("Invalid shard " + shard + ", expected i/n with 1 <= i <= n");
+	}
+
+	/**
+	 * Replaces directories by the yaml and json files beneath them, in path
+	 * order.
+	 *
+	 * @param specFiles
+	 * @return
+	 */
+	public static List<String> expand(List<String> specFiles) {
+		List<String> expanded = new ArrayList<String>();
+
+		for (String specFile : specFiles) {
+			File file = new File(specFile);
+
+			if (!file.isDirectory()) {
+				expanded.add(specFile);
+				continue;
+			}
+
+			try (Stream<Path> files = Files.walk(file.toPath())) {
+				expanded.addAll(files.filter(Files::isRegularFile)
+						.map(path -> file.toPath().relativize(path).toString().replace('\\', '/'))
+						.filter(path -> path.matches("(?i).*\\.(ya?ml|json)$")).sorted()
+						.map(path -> specFile.replaceFirst("[/\\\\]+$", "") + "/" + path)
+						.collect(Collectors.toList()));
+			} catch (IOException e) {
+				throw new RuntimeException("Unable to list " + specFile, e);
+			}
+		}
+
+		return expanded;
+	}
+
+	/**
+	 *
+	 * @param specFile
+	 * @return size of the spec, or of its archive entry, with \r\n counted as
+	 *         one byte, plus a base cost
+	 */
+	public static long getCost(String specFile) {
+		try {
+			if (ArchiveSpecReader.isArchiveSpec(specFile)) {
+				long[] bytes = new long[1];
+				ArchiveSpecReader.read(specFile, (entry, path, count) -> {
+					try (InputStream in = Files.newInputStream(path)) {
+						bytes[0] += countBytes(in);
+					}
+				});
+				return BASE_COST + bytes[0];
+			}
+
+			try (InputStream in = new FileInputStream(specFile)) {
+				return BASE_COST + countBytes(in);
+			}
+		} catch (IOException e) {
+			// reported once the spec is read
+			return BASE_COST;
+		}
+	}
+
+	/**
+	 *
+	 * @param specFiles
+	 * @return cost of each spec, see {@link #getCost(String)}
+	 */
+	public static long[] getCosts(List<String> specFiles) {
+		long[] costs = new long[specFiles.size()];
+
+		for (int i = 0; i < specFiles.size(); i++) {
+			costs[i] = getCost(specFiles.get(i));
+		}
+
+		return costs;
+	}
+
+	/**
+	 *
+	 * @param specFiles
+	 * @return digest of the spec paths, whatever the path separator, to check
+	 *         that every shard was given the same specs
+	 */
+	public static String getDigest(List<String> specFiles) {
+		StringBuilder paths = new StringBuilder();
+
+		for (String specFile : specFiles) {
+			paths.append(normalize(specFile)).append('\n');
+		}
+
+		return StructuralFingerprint.digest(paths.toString());
+	}
+
+	/**
+	 *
+	 * @param specFiles
+	 * @return shard of each spec, from 1
+	 */
+	public int[] assign(List<String> specFiles) {
+		return assign(specFiles, getCosts(specFiles));
+	}
+
+	/**
+	 *
+	 * @param specFiles
+	 * @param costs
+	 *            of each spec, see {@link #getCosts(List)}
+	 * @return shard of each spec, from 1
+	 */
+	public int[] assign(List<String> specFiles, final long[] costs) {
+		final long[] hashes = new long[specFiles.size()];
+		List<Integer> order = new ArrayList<Integer>();
+
+		for (int i = 0; i < specFiles.size(); i++) {
+			hashes[i] = hash(specFiles.get(i));
+			order.add(i);
+		}
+
+		Collections.sort(order, Comparator.<Integer>comparingLong(i -> -costs[i]).thenComparingLong(i -> hashes[i])
+				.thenComparing(i -> normalize(specFiles.get(i))));
+
+		long[] loads = new long[shards];
+		int[] assignment = new int[specFiles.size()];
+
+		for (int i : order) {
+			int lightest = 0;
+
+			for (int shard = 1; shard < shards; shard++) {
+				if (loads[shard] < loads[lightest]) {
+					lightest = shard;
+				}
+			}
+
+			loads[lightest] += costs[i];
+			assignment[i] = lightest + 1;
+		}
+
+		return assignment;
+	}
+
+	/**
+	 *
+	 * @param specFiles
+	 * @param shard
+	 *            from 1
+	 * @return the specs of the shard, in the given order
+	 */
+	public List<String> select(List<String> specFiles, int shard) {
+		int[] assignment = assign(specFiles);
+		List<String> selected = new ArrayList<String>();
+
+		for (int i = 0; i < specFiles.size(); i++) {
+			if (assignment[i] == shard) {
+				selected.add(specFiles.get(i));
+			}
+		}
+
+		return selected;
+	}
+
+	public int getShards() {
+		return shards;
+	}
+
+	/**
+	 * Same on every machine, whatever the path separator.
+	 */
+	private static long hash(String specFile) {
+		CRC32 crc = new CRC32();
+		crc.update(normalize(specFile).getBytes(StandardCharsets.UTF_8));
+		return crc.getValue();
+	}
+
+	static String normalize(String specFile) {
+		return specFile.replace('\\', '/');
+	}
+
+	private static long countBytes(InputStream in) throws IOException {
+		byte[] buffer = new byte[8192];
+		long bytes = 0;
+		boolean carriageReturn = false;
+
+		for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+			for (int i = 0; i < read; i++) {
+				if (!carriageReturn || buffer[i] != '\n') {
+					bytes++;
+				}
+
+				carriageReturn = buffer[i] == '\r';
+			}
+		}
+
+		return bytes;
+	}
+}
@@ -0,0 +1,364 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.Mustache;
+import com.github.mustachejava.MustacheFactory;
+import com.kicksolutions.swagger.plantuml.vo.ClassDiagram;
+import com.kicksolutions.swagger.plantuml.vo.ClassRelation;
+import com.kicksolutions.swagger.plantuml.vo.InterfaceDiagram;
+
+import io.swagger.models.Model;
+import io.swagger.models.Swagger;
+
+/**
+ * Generates a diagram of what changed between two versions of a spec: added,
+ * removed and changed definitions and interfaces, their direct neighbours and
+ * the relations between them. Elements are matched by name and compared by
+ * {@link StructuralFingerprint}, covering the definitions they reference, and
+ * an interface by all operations sharing its name whether or not they are
+ * grouped by tag. Relations are indexed by source once, so the comparison is
+ * linear in the size of both specs and the relations between them.
+ * 
+ * @author MSANTOSH
+ *
+ */
+public class SpecDiffCodegen {
+
+	private static final Logger LOGGER = Logger.getLogger(SpecDiffCodegen.class.getName());
+
+	private static final String ADDED_COLOR = "Lime";
+	private static final String REMOVED_COLOR = "Tomato";
+	private static final String CHANGED_COLOR = "Gold";
+	private static final String NEIGHBOUR_COLOR = "WhiteSmoke";
+	private static final String ADDED_RELATION_COLOR = "Green";
+	private static final String REMOVED_RELATION_COLOR = "Red";
+	private static final String DIFF_PUML_FILE = "swagger-diff.puml";
+
+	private Swagger oldSwagger;
+	private Swagger newSwagger;
+	private File targetLocation;
+	private boolean includeCardinality = true;
+	private boolean groupOperationsByTag = false;
+
+	public SpecDiffCodegen(Swagger oldSwagger, Swagger newSwagger, File targetLocation, boolean includeCardinality) {
+		this.oldSwagger = oldSwagger;
+		this.newSwagger = newSwagger;
+		this.targetLocation = targetLocation;
+		this.includeCardinality = includeCardinality;
+	}
+
+	public boolean isGroupOperationsByTag() {
+		return groupOperationsByTag;
+	}
+
+	/**
+	 * Compares one interface per tag instead of one per path, see
+	 * {@link PlantUMLCodegen#setGroupOperationsByTag(boolean)}
+	 * 
+	 * @param groupOperationsByTag
+	 */
+	public void setGroupOperationsByTag(boolean groupOperationsByTag) {
+		this.groupOperationsByTag = groupOperationsByTag;
+	}
+
+	/**
+	 * 
+	 */
+	public String generatePuml() throws IOException, IllegalAccessException {
+		LOGGER.entering(LOGGER.getName(), "generatePuml");
+
+		Map<String, Object> additionalProperties = preprocessSwaggers();
+
+		MustacheFactory mf = new DefaultMustacheFactory();
+		Mustache mustache = mf.compile("puml-diff.mustache");
+		String pumlPath = new File(targetLocation, DIFF_PUML_FILE).getAbsolutePath();
+
+		try (OutputSink sink = new DirectorySink(targetLocation);
+				OutputSink.Entry entry = sink.open(DIFF_PUML_FILE)) {
+			Writer writer = entry.newWriter();
+			mustache.execute(writer, additionalProperties);
+			writer.flush();
+			entry.commit();
+
+			LOGGER.log(Level.FINEST, "Sucessfully Written Puml File @ " + pumlPath);
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			LOGGER.log(Level.SEVERE, e.getMessage(), e);
+			throw new IllegalAccessException(e.getMessage());
+		}
+
+		LOGGER.exiting(LOGGER.getName(), "generatePuml");
+		return pumlPath;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> preprocessSwaggers() {
+		LOGGER.entering(LOGGER.getName(), "preprocessSwaggers");
+
+		Map<String, Object> oldModel = newCodegen(oldSwagger).preprocessSwagger(oldSwagger);
+		Map<String, Object> newModel = newCodegen(newSwagger).preprocessSwagger(newSwagger);
+
+		Map<String, ClassDiagram> oldClasses = indexClasses((List<ClassDiagram>) oldModel.get("classDiagrams"));
+		Map<String, ClassDiagram> newClasses = indexClasses((List<ClassDiagram>) newModel.get("classDiagrams"));
+		Map<String, List<InterfaceDiagram>> oldInterfaces = indexInterfaces(
+				(List<InterfaceDiagram>) oldModel.get("interfaceDiagrams"));
+		Map<String, List<InterfaceDiagram>> newInterfaces = indexInterfaces(
+				(List<InterfaceDiagram>) newModel.get("interfaceDiagrams"));
+
+		Map<String, ClassRelation> oldRelations = indexRelations((List<ClassRelation>) oldModel.get("entityRelations"));
+		Map<String, ClassRelation> newRelations = indexRelations((List<ClassRelation>) newModel.get("entityRelations"));
+		Map<String, String> oldFingerprints = getFingerprints(oldSwagger, oldClasses, oldInterfaces, oldRelations);
+		Map<String, String> newFingerprints = getFingerprints(newSwagger, newClasses, newInterfaces, newRelations);
+
+		// name -> color of every element that changed
+		Map<String, String> changes = new LinkedHashMap<String, String>();
+
+		for (String className : newClasses.keySet()) {
+			if (!oldClasses.containsKey(className)) {
+				changes.put(className, ADDED_COLOR);
+			} else if (!oldFingerprints.get(className).equals(newFingerprints.get(className))) {
+				changes.put(className, CHANGED_COLOR);
+			}
+		}
+
+		for (String interfaceName : newInterfaces.keySet()) {
+			if (!oldInterfaces.containsKey(interfaceName)) {
+				changes.put(interfaceName, ADDED_COLOR);
+			} else if (!oldFingerprints.get(interfaceName).equals(newFingerprints.get(interfaceName))) {
+				changes.put(interfaceName, CHANGED_COLOR);
+			}
+		}
+
+		for (String className : oldClasses.keySet()) {
+			if (!newClasses.containsKey(className)) {
+				changes.put(className, REMOVED_COLOR);
+			}
+		}
+
+		for (String interfaceName : oldInterfaces.keySet()) {
+			if (!newInterfaces.containsKey(interfaceName)) {
+				changes.put(interfaceName, REMOVED_COLOR);
+			}
+		}
+
+		// changed elements and their direct neighbours
+		Set<String> shown = new LinkedHashSet<String>(changes.keySet());
+		addNeighbours(shown, changes, newRelations);
+		addNeighbours(shown, changes, oldRelations);
+
+		List<ClassDiagram> classDiagrams = new ArrayList<ClassDiagram>();
+		List<InterfaceDiagram> interfaceDiagrams = new ArrayList<InterfaceDiagram>();
+
+		for (String name : shown) {
+			String color = changes.containsKey(name) ? changes.get(name) : NEIGHBOUR_COLOR;
+
+			if (newClasses.containsKey(name) || oldClasses.containsKey(name)) {
+				ClassDiagram classDiagram = newClasses.containsKey(name) ? newClasses.get(name) : oldClasses.get(name);
+				classDiagram.setColor(color);
+				classDiagrams.add(classDiagram);
+			} else if (newInterfaces.containsKey(name) || oldInterfaces.containsKey(name)) {
+				for (InterfaceDiagram interfaceDiagram : newInterfaces.containsKey(name) ? newInterfaces.get(name)
+						: oldInterfaces.get(name)) {
+					interfaceDiagram.setColor(color);
+					interfaceDiagrams.add(interfaceDiagram);
+				}
+			}
+		}
+
+		List<ClassRelation> relations = new ArrayList<ClassRelation>();
+
+		for (Map.Entry<String, ClassRelation> entry : newRelations.entrySet()) {
+			ClassRelation relation = entry.getValue();
+
+			if (shown.contains(relation.getSourceClass()) && shown.contains(relation.getTargetClass())) {
+				if (!oldRelations.containsKey(entry.getKey())) {
+					relation.setColor(ADDED_RELATION_COLOR);
+				}
+				relations.add(relation);
+			}
+		}
+
+		for (Map.Entry<String, ClassRelation> entry : oldRelations.entrySet()) {
+			ClassRelation relation = entry.getValue();
+
+			if (!newRelations.containsKey(entry.getKey()) && shown.contains(relation.getSourceClass())
+					&& shown.contains(relation.getTargetClass())) {
+				relation.setColor(REMOVED_RELATION_COLOR);
+				relations.add(relation);
+			}
+		}
+
+		LOGGER.info("Diff has " + changes.size() + " changed elements and " + (shown.size() - changes.size())
+				+ " neighbours");
+
+		Map<String, Object> additionalProperties = new TreeMap<String, Object>();
+		additionalProperties.put("oldVersion", oldSwagger.getInfo().getVersion());
+		additionalProperties.put("newVersion", newSwagger.getInfo().getVersion());
+		additionalProperties.put("title", newSwagger.getInfo().getTitle());
+		additionalProperties.put("classDiagrams", classDiagrams);
+		additionalProperties.put("interfaceDiagrams", interfaceDiagrams);
+		additionalProperties.put("entityRelations", relations);
+
+		LOGGER.exiting(LOGGER.getName(), "preprocessSwaggers");
+		return additionalProperties;
+	}
+
+	/**
+	 * 
+	 * @param swagger
+	 * @return
+	 */
+	private PlantUMLCodegen newCodegen(Swagger swagger) {
+		PlantUMLCodegen codegen = new PlantUMLCodegen(swagger, targetLocation, false, includeCardinality);
+		codegen.setGroupOperationsByTag(groupOperationsByTag);
+		return codegen;
+	}
+
+	/**
+	 * Fingerprints of the classes, covering the structure of the definitions
+	 * they reference, and of the interfaces, covering all their operations and
+	 * the classes they relate to.
+	 * 
+	 * @param swagger
+	 * @param classes
+	 * @param interfaces
+	 * @param relations
+	 * @return fingerprint by element name
+	 */
+	private Map<String, String> getFingerprints(Swagger swagger, Map<String, ClassDiagram> classes,
+			Map<String, List<InterfaceDiagram>> interfaces, Map<String, ClassRelation> relations) {
+		Map<String, Model> definitions = swagger.getDefinitions() != null ? swagger.getDefinitions()
+				: Collections.<String, Model>emptyMap();
+		Map<String, String> canonicalModels = new HashMap<String, String>();
+		Map<String, String> fingerprints = new HashMap<String, String>();
+
+		for (ClassDiagram classDiagram : classes.values()) {
+			String className = classDiagram.getClassName();
+			fingerprints.put(className, definitions.containsKey(className)
+					? StructuralFingerprint.ofStructure(className, definitions, canonicalModels)
+					: StructuralFingerprint.of(classDiagram));
+		}
+
+		Map<String, List<String>> targetsBySource = new HashMap<String, List<String>>();
+
+		for (ClassRelation relation : relations.values()) {
+			List<String> targets = targetsBySource.get(relation.getSourceClass());
+
+			if (targets == null) {
+				targets = new ArrayList<String>();
+				targetsBySource.put(relation.getSourceClass(), targets);
+			}
+
+			targets.add(relation.getTargetClass());
+		}
+
+		for (Map.Entry<String, List<InterfaceDiagram>> entry : interfaces.entrySet()) {
+			List<String> operations = new ArrayList<String>();
+			List<String> related = new ArrayList<String>();
+
+			for (InterfaceDiagram interfaceDiagram : entry.getValue()) {
+				operations.add(StructuralFingerprint.of(interfaceDiagram));
+			}
+
+			if (targetsBySource.containsKey(entry.getKey())) {
+				for (String target : targetsBySource.get(entry.getKey())) {
+					if (fingerprints.containsKey(target)) {
+						related.add(fingerprints.get(target));
+					}
+				}
+			}
+
+			Collections.sort(operations);
+			Collections.sort(related);
+			fingerprints.put(entry.getKey(), StructuralFingerprint.digest(operations.toString() + related));
+		}
+
+		return fingerprints;
+	}
+
+	/**
+	 * 
+	 * @param shown
+	 * @param changes
+	 * @param relations
+	 */
+	private void addNeighbours(Set<String> shown, Map<String, String> changes, Map<String, ClassRelation> relations) {
+		for (ClassRelation relation : relations.values()) {
+			if (changes.containsKey(relation.getSourceClass())) {
+				shown.add(relation.getTargetClass());
+			}
+
+			if (changes.containsKey(relation.getTargetClass())) {
+				shown.add(relation.getSourceClass());
+			}
+		}
+	}
+
+	private Map<String, ClassDiagram> indexClasses(List<ClassDiagram> classDiagrams) {
+		Map<String, ClassDiagram> classes = new LinkedHashMap<String, ClassDiagram>();
+
+		for (ClassDiagram classDiagram : classDiagrams) {
+			classes.put(classDiagram.getClassName(), classDiagram);
+		}
+
+		return classes;
+	}
+
+	/**
+	 * Operations not grouped by tag are drawn as one interface each, sharing
+	 * the name of their tag; all of them are kept under that name.
+	 * 
+	 * @param interfaceDiagrams
+	 * @return interfaces by name, in the order drawn
+	 */
+	private Map<String, List<InterfaceDiagram>> indexInterfaces(List<InterfaceDiagram> interfaceDiagrams) {
+		Map<String, List<InterfaceDiagram>> interfaces = new LinkedHashMap<String, List<InterfaceDiagram>>();
+
+		for (InterfaceDiagram interfaceDiagram : interfaceDiagrams) {
+			List<InterfaceDiagram> operations = interfaces.get(interfaceDiagram.getInterfaceName());
+
+			if (operations == null) {
+				operations = new ArrayList<InterfaceDiagram>();
+				interfaces.put(interfaceDiagram.getInterfaceName(), operations);
+			}
+
+			operations.add(interfaceDiagram);
+		}
+
+		return interfaces;
+	}
+
+	private Map<String, ClassRelation> indexRelations(List<ClassRelation> relations) {
+		Map<String, ClassRelation> index = new LinkedHashMap<String, ClassRelation>();
+
+		for (ClassRelation relation : relations) {
+			index.put(new StringBuilder().append(relation.getSourceClass()).append('|')
+					.append(relation.getTargetClass()).append('|').append(relation.isExtension()).append('|')
+					.append(relation.isComposition()).append('|').append(relation.isInheritance()).append('|')
+					.append(relation.getCardinality()).toString(),
+					relation);
+		}
+
+		return index;
+	}
+}
@@ -0,0 +1,35 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+
+/**
+ * Streams every entry to stdout, one after the other, without closing it.
+ * Bytes already streamed cannot be taken back, an entry closed without
+ * commit is flushed as far as it got.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class StdoutSink implements OutputSink {
+
+	public StdoutSink() {
+		super();
+	}
+
+	@Override
+	public Entry open(String name) throws IOException {
+		return new Entry(new BufferedOutputStream(System.out)) {
+			@Override
+			protected void finish(boolean commit) throws IOException {
+				// stdout belongs to the process
+				flush();
+			}
+		};
+	}
+
+	@Override
+	public void close() throws IOException {
+		System.out.flush();
+	}
+}
@@ -0,0 +1,318 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import com.kicksolutions.swagger.plantuml.vo.ClassDiagram;
+import com.kicksolutions.swagger.plantuml.vo.ClassMembers;
+import com.kicksolutions.swagger.plantuml.vo.InterfaceDiagram;
+import com.kicksolutions.swagger.plantuml.vo.MethodDefinitions;
+
+import io.swagger.models.Model;
+import io.swagger.util.Json;
+
+/**
+ * Computes a digest of the structure of a diagram element, independent of the
+ * order in which its members were declared. Two definitions with the same
+ * fingerprint render identically.
+ * 
+ * @author MSANTOSH
+ *
+ */
+public final class StructuralFingerprint {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private static final Pattern DEFINITION_REF = Pattern.compile("\"#/definitions/([^\"]+)\"");
+
+	/** Keywords of a schema that document it without changing its structure */
+	private static final Set<String> DESCRIPTIVE_KEYWORDS = new HashSet<String>(
+			Arrays.asList("description", "example", "title", "externalDocs", "xml", "default"));
+
+	/** Keywords of a schema whose values are a set, in whatever order given */
+	private static final Set<String> UNORDERED_KEYWORDS = new HashSet<String>(Arrays.asList("enum", "required"));
+
+	private StructuralFingerprint() {
+		super();
+	}
+
+	/**
+	 * 
+	 * @param classDiagram
+	 * @return
+	 */
+	public static String of(ClassDiagram classDiagram) {
+		List<String> members = new ArrayList<String>();
+
+		if (classDiagram.getFields() != null) {
+			for (ClassMembers member : classDiagram.getFields()) {
+				members.add(new StringBuilder().append(member.getName()).append('|').append(member.getDataType())
+						.append('|').append(member.getClassName()).append('|').append(member.getCardinality())
+						.toString());
+			}
+		}
+
+		Collections.sort(members);
+
+		StringBuilder canonical = new StringBuilder().append(classDiagram.isClass()).append('|')
+				.append(classDiagram.getSuperClass());
+
+		for (String member : members) {
+			canonical.append('\n').append(member);
+		}
+
+		return digest(canonical.toString());
+	}
+
+	/**
+	 * 
+	 * @param interfaceDiagram
+	 * @return
+	 */
+	public static String of(InterfaceDiagram interfaceDiagram) {
+		List<String> methods = new ArrayList<String>();
+
+		if (interfaceDiagram.getMethods() != null) {
+			for (MethodDefinitions method : interfaceDiagram.getMethods()) {
+				methods.add(method.getMethodDefinition() + ':' + method.getReturnType());
+			}
+		}
+
+		if (interfaceDiagram.getErrorClasses() != null) {
+			for (String errorClass : interfaceDiagram.getErrorClasses()) {
+				methods.add("throws " + errorClass);
+			}
+		}
+
+		Collections.sort(methods);
+
+		StringBuilder canonical = new StringBuilder();
+
+		for (String method : methods) {
+			canonical.append(method).append('\n');
+		}
+
+		return digest(canonical.toString());
+	}
+
+	/**
+	 * Fingerprint of a definition as written in the spec, covering every
+	 * definition it references directly or transitively, since those shape the
+	 * generated class as well.
+	 * 
+	 * @param definitionName
+	 * @param definitions
+	 * @param serializedDefinitions
+	 *            definitions already serialized, filled while computing
+	 * @return
+	 */
+	public static String of(String definitionName, Map<String, Model> definitions,
+			Map<String, String> serializedDefinitions) {
+		Set<String> referenced = new TreeSet<String>();
+		Deque<String> pending = new ArrayDeque<String>();
+		pending.push(definitionName);
+
+		while (!pending.isEmpty()) {
+			String name = pending.pop();
+
+			if (!referenced.add(name)) {
+				continue;
+			}
+
+			Matcher matcher = DEFINITION_REF.matcher(serialize(name, definitions, serializedDefinitions));
+
+			while (matcher.find()) {
+				if (definitions.containsKey(matcher.group(1))) {
+					pending.push(matcher.group(1));
+				}
+			}
+		}
+
+		StringBuilder canonical = new StringBuilder().append(definitionName);
+
+		for (String name : referenced) {
+			canonical.append('\n').append(name).append('=').append(serializedDefinitions.get(name));
+		}
+
+		return digest(canonical.toString());
+	}
+
+	/**
+	 * Fingerprint of the structure of a definition, covering every definition
+	 * it references directly or transitively: property names and types,
+	 * required flags, enums and references, whatever their order in the spec.
+	 * Descriptions, examples, titles and vendor extensions are left out, so
+	 * definitions differing in documentation only share a fingerprint.
+	 * 
+	 * @param definitionName
+	 * @param definitions
+	 * @param canonicalDefinitions
+	 *            canonical forms of the definitions already seen, filled while
+	 *            computing
+	 * @return
+	 */
+	public static String ofStructure(String definitionName, Map<String, Model> definitions,
+			Map<String, String> canonicalDefinitions) {
+		Set<String> referenced = new TreeSet<String>();
+		Deque<String> pending = new ArrayDeque<String>();
+		pending.push(definitionName);
+
+		while (!pending.isEmpty()) {
+			String name = pending.pop();
+
+			if (!referenced.add(name)) {
+				continue;
+			}
+
+			Matcher matcher = DEFINITION_REF.matcher(canonicalize(name, definitions, canonicalDefinitions));
+
+			while (matcher.find()) {
+				if (definitions.containsKey(matcher.group(1))) {
+					pending.push(matcher.group(1));
+				}
+			}
+		}
+
+		StringBuilder canonical = new StringBuilder().append(definitionName);
+
+		for (String name : referenced) {
+			canonical.append('\n').append(name).append('=').append(canonicalDefinitions.get(name));
+		}
+
+		return digest(canonical.toString());
+	}
+
+	private static String canonicalize(String name, Map<String, Model> definitions,
+			Map<String, String> canonicalDefinitions) {
+		String canonical = canonicalDefinitions.get(name);
+
+		if (canonical == null) {
+			StringBuilder builder = new StringBuilder();
+			canonicalizeSchema(Json.mapper().valueToTree(definitions.get(name)), builder);
+			canonical = builder.toString();
+			canonicalDefinitions.put(name, canonical);
+		}
+
+		return canonical;
+	}
+
+	/**
+	 * Keywords in name order without the descriptive ones, properties by name
+	 * and unordered keywords sorted. References stay as written, so
+	 * {@link #DEFINITION_REF} finds them.
+	 */
+	private static void canonicalizeSchema(JsonNode schema, StringBuilder canonical) {
+		if (!schema.isObject()) {
+			canonical.append(schema.toString());
+			return;
+		}
+
+		List<String> keywords = new ArrayList<String>();
+
+		for (Iterator<String> names = schema.fieldNames(); names.hasNext();) {
+			String keyword = names.next();
+
+			if (!DESCRIPTIVE_KEYWORDS.contains(keyword) && !keyword.startsWith("x-")) {
+				keywords.add(keyword);
+			}
+		}
+
+		Collections.sort(keywords);
+		canonical.append('{');
+
+		for (String keyword : keywords) {
+			JsonNode value = schema.get(keyword);
+			canonical.append(keyword).append(':');
+
+			if ("properties".equals(keyword) && value.isObject()) {
+				List<String> properties = new ArrayList<String>();
+				value.fieldNames().forEachRemaining(properties::add);
+				Collections.sort(properties);
+				canonical.append('{');
+
+				for (String property : properties) {
+					canonical.append(property).append(':');
+					canonicalizeSchema(value.get(property), canonical);
+					canonical.append(',');
+				}
+
+				canonical.append('}');
+			} else if (value.isArray()) {
+				List<String> items = new ArrayList<String>();
+
+				for (JsonNode item : value) {
+					StringBuilder canonicalItem = new StringBuilder();
+					canonicalizeSchema(item, canonicalItem);
+					items.add(canonicalItem.toString());
+				}
+
+				if (UNORDERED_KEYWORDS.contains(keyword)) {
+					Collections.sort(items);
+				}
+
+				canonical.append(items);
+			} else {
+				canonicalizeSchema(value, canonical);
+			}
+
+			canonical.append(',');
+		}
+
+		canonical.append('}');
+	}
+
+	private static String serialize(String name, Map<String, Model> definitions,
+			Map<String, String> serializedDefinitions) {
+		String json = serializedDefinitions.get(name);
+
+		if (json == null) {
+			try {
+				json = Json.mapper().writeValueAsString(definitions.get(name));
+			} catch (JsonProcessingException e) {
+				throw new UncheckedIOException(e);
+			}
+			serializedDefinitions.put(name, json);
+		}
+
+		return json;
+	}
+
+	/**
+	 * 
+	 * @param text
+	 * @return
+	 */
+	public static String digest(String text) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+			char[] hex = new char[hash.length * 2];
+
+			for (int i = 0; i < hash.length; i++) {
+				hex[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+				hex[i * 2 + 1] = HEX[hash[i] & 0xF];
+			}
+
+			return new String(hex);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,383 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Streams a rendered SVG through StAX to make it smaller: whitespace between
+ * elements and comments are dropped, styles repeated on several elements are
+ * hoisted into CSS classes and coordinates are rounded to a fixed number of
+ * decimals.
+ * <p>
+ * The input is read twice, once to find the repeated styles and once to write
+ * the result, so memory stays bounded by {@link #MAX_STYLES} whatever the size
+ * of the SVG.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class SvgMinifier {
+
+	/**
+	 * Distinct styles tracked while counting. Styles first seen after the limit
+	 * is reached stay inline.
+	 */
+	static final int MAX_STYLES = 4096;
+
+	private static final Pattern DECIMAL = Pattern.compile("-?\\d*\\.\\d+");
+
+	private static final Set<String> GEOMETRY_ATTRIBUTES = new HashSet<String>(Arrays.asList("x", "y", "x1", "y1",
+			"x2", "y2", "cx", "cy", "r", "rx", "ry", "dx", "dy", "width", "height", "points", "d", "textLength"));
+
+	/**
+	 * Presentation attributes that have a CSS property of the same name and are
+	 * hoisted together with the style attribute.
+	 */
+	private static final String[] STYLE_ATTRIBUTES = { "fill", "stroke", "stroke-width", "stroke-dasharray",
+			"font-family", "font-size", "font-style", "font-weight", "text-decoration" };
+
+	private static final Set<String> HOISTED_ATTRIBUTES = new HashSet<String>(Arrays.asList(STYLE_ATTRIBUTES));
+
+	private int precision = 2;
+
+	public SvgMinifier() {
+		super();
+	}
+
+	/**
+	 *
+	 * @param precision
+	 *            decimals kept in coordinates, negative to leave them as rendered
+	 */
+	public SvgMinifier(int precision) {
+		this.precision = precision;
+	}
+
+	/**
+	 *
+	 * @param svg
+	 * @param out
+	 *            receives the minified SVG, left open
+	 * @throws IOException
+	 */
+	public void minify(File svg, OutputStream out) throws IOException {
+		try {
+			Map<String, Integer> styleCounts = countStyles(svg);
+			Map<String, String> styleClasses = new LinkedHashMap<String, String>();
+
+			for (Map.Entry<String, Integer> style : styleCounts.entrySet()) {
+				if (style.getValue() > 1) {
+					styleClasses.put(style.getKey(), "s" + Integer.toString(styleClasses.size(), Character.MAX_RADIX));
+				}
+			}
+
+			write(svg, out, styleClasses);
+		} catch (XMLStreamException e) {
+			throw new IOException("Unable to minify " + svg + " : " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * First pass, counts how often each style occurs.
+	 *
+	 * @param svg
+	 * @return
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	private Map<String, Integer> countStyles(File svg) throws IOException, XMLStreamException {
+		Map<String, Integer> styleCounts = new LinkedHashMap<String, Integer>();
+
+		try (InputStream in = new BufferedInputStream(new FileInputStream(svg))) {
+			XMLStreamReader reader = newInputFactory().createXMLStreamReader(in);
+
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+					String style = getStyle(reader);
+					Integer count = styleCounts.get(style);
+
+					if (count != null) {
+						styleCounts.put(style, count + 1);
+					} else if (style != null && styleCounts.size() < MAX_STYLES) {
+						styleCounts.put(style, 1);
+					}
+				}
+			}
+
+			reader.close();
+		}
+
+		return styleCounts;
+	}
+
+	/**
+	 * Second pass, writes the minified SVG.
+	 *
+	 * @param svg
+	 * @param out
+	 * @param styleClasses
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	private void write(File svg, OutputStream out, Map<String, String> styleClasses)
+			throws IOException, XMLStreamException {
+		try (InputStream in = new BufferedInputStream(new FileInputStream(svg))) {
+			XMLStreamReader reader = newInputFactory().createXMLStreamReader(in);
+			XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+			// the last start element is held back until we know whether it is empty
+			PendingElement pending = null;
+			boolean root = true;
+			int textDepth = 0;
+
+			writer.writeStartDocument("UTF-8", "1.0");
+
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					if (pending != null) {
+						pending.write(writer, false);
+						root = writeStyleSheet(writer, styleClasses, root);
+					}
+
+					pending = new PendingElement(getName(reader.getPrefix(), reader.getLocalName()),
+							getAttributes(reader, styleClasses));
+
+					if (textDepth > 0 || "text".equals(pending.name)) {
+						textDepth++;
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					if (pending != null) {
+						pending.write(writer, true);
+						pending = null;
+					} else {
+						writer.writeEndElement();
+					}
+
+					if (textDepth > 0) {
+						textDepth--;
+					}
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.SPACE:
+				case XMLStreamConstants.CDATA:
+					if (textDepth == 0 && reader.isWhiteSpace()) {
+						break;
+					}
+
+					if (pending != null) {
+						pending.write(writer, false);
+						pending = null;
+						root = writeStyleSheet(writer, styleClasses, root);
+					}
+
+					if (reader.getEventType() == XMLStreamConstants.CDATA) {
+						writer.writeCData(reader.getText());
+					} else {
+						writer.writeCharacters(reader.getText());
+					}
+					break;
+				default:
+					// comments, processing instructions and the DTD are dropped
+					break;
+				}
+			}
+
+			writer.writeEndDocument();
+			writer.flush();
+			reader.close();
+		}
+	}
+
+	/**
+	 *
+	 * @param reader
+	 * @param styleClasses
+	 * @return name value pairs of the attributes to write
+	 */
+	private List<String> getAttributes(XMLStreamReader reader, Map<String, String> styleClasses) {
+		List<String> attributes = new ArrayList<String>(reader.getAttributeCount() * 2 + 2);
+		String styleClass = styleClasses.get(getStyle(reader));
+		String existingClass = null;
+
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String name = getName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+			String value = reader.getAttributeValue(i);
+
+			if ("class".equals(name)) {
+				existingClass = value;
+			} else if (styleClass == null || !("style".equals(name) || HOISTED_ATTRIBUTES.contains(name))) {
+				attributes.add(name);
+				attributes.add(GEOMETRY_ATTRIBUTES.contains(name) ? round(value) : value);
+			}
+		}
+
+		if (styleClass != null) {
+			attributes.add("class");
+			attributes.add(existingClass == null ? styleClass : existingClass + " " + styleClass);
+		} else if (existingClass != null) {
+			attributes.add("class");
+			attributes.add(existingClass);
+		}
+
+		return attributes;
+	}
+
+	/**
+	 * Writes the style sheet as first child of the root element.
+	 *
+	 * @param writer
+	 * @param styleClasses
+	 * @param root
+	 *            whether the element just opened is the root
+	 * @return false, the root has been seen
+	 * @throws XMLStreamException
+	 */
+	private boolean writeStyleSheet(XMLStreamWriter writer, Map<String, String> styleClasses, boolean root)
+			throws XMLStreamException {
+		if (!root || styleClasses.isEmpty()) {
+			return false;
+		}
+
+		StringBuilder css = new StringBuilder();
+
+		for (Map.Entry<String, String> styleClass : styleClasses.entrySet()) {
+			css.append('.').append(styleClass.getValue()).append('{').append(styleClass.getKey()).append('}');
+		}
+
+		writer.writeStartElement("defs");
+		writer.writeStartElement("style");
+		writer.writeAttribute("type", "text/css");
+		writer.writeCData(css.toString());
+		writer.writeEndElement();
+		writer.writeEndElement();
+		return false;
+	}
+
+	/**
+	 * Style of the current element as CSS declarations, built from its style
+	 * attribute and the presentation attributes that can be hoisted.
+	 *
+	 * @param reader
+	 * @return the declarations or null if the element has no style, or one that
+	 *         is unsafe to move into a style sheet
+	 */
+	private String getStyle(XMLStreamReader reader) {
+		StringBuilder style = new StringBuilder();
+
+		for (String attribute : STYLE_ATTRIBUTES) {
+			String value = reader.getAttributeValue(null, attribute);
+
+			if (value != null) {
+				if ("font-size".equals(attribute) && value.matches("[\\d.]+")) {
+					value = value + "px";
+				}
+				style.append(attribute).append(':').append(value).append(';');
+			}
+		}
+
+		String inlineStyle = reader.getAttributeValue(null, "style");
+
+		if (inlineStyle != null) {
+			for (String declaration : inlineStyle.split(";")) {
+				int colon = declaration.indexOf(':');
+
+				if (colon > 0) {
+					style.append(declaration.substring(0, colon).trim()).append(':')
+							.append(declaration.substring(colon + 1).trim()).append(';');
+				}
+			}
+		}
+
+		if (style.length() == 0 || style.indexOf("{") >= 0 || style.indexOf("}") >= 0
+				|| style.indexOf("]]>") >= 0) {
+			return null;
+		}
+
+		return style.toString();
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @return
+	 */
+	private String round(String value) {
+		if (precision < 0) {
+			return value;
+		}
+
+		Matcher matcher = DECIMAL.matcher(value);
+		StringBuffer rounded = new StringBuffer(value.length());
+
+		while (matcher.find()) {
+			BigDecimal number = new BigDecimal(matcher.group()).setScale(precision, RoundingMode.HALF_UP);
+			String text = number.signum() == 0 ? "0" : number.stripTrailingZeros().toPlainString();
+			matcher.appendReplacement(rounded, text);
+		}
+
+		matcher.appendTail(rounded);
+		return rounded.toString();
+	}
+
+	private static String getName(String prefix, String localName) {
+		return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+	}
+
+	private static XMLInputFactory newInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		// keeps xmlns declarations and prefixes as they are written
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	}
+
+	/**
+	 * Start element read but not yet written.
+	 */
+	private static class PendingElement {
+		private final String name;
+		private final List<String> attributes;
+
+		PendingElement(String name, List<String> attributes) {
+			this.name = name;
+			this.attributes = attributes;
+		}
+
+		void write(XMLStreamWriter writer, boolean empty) throws XMLStreamException {
+			if (empty) {
+				writer.writeEmptyElement(name);
+			} else {
+				writer.writeStartElement(name);
+			}
+
+			for (int i = 0; i < attributes.size(); i += 2) {
+				writer.writeAttribute(attributes.get(i), attributes.get(i + 1));
+			}
+		}
+	}
+}
@@ -0,0 +1,571 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Splits a rendered SVG into a grid of smaller SVG tiles plus an HTML index
+ * that loads the tiles lazily while the diagram is panned.
+ * <p>
+ * The SVG is streamed once per band of tile rows, so that no more than
+ * {@link #DEFAULT_MAX_OPEN_TILES} tiles are written at a time. Every shape is
+ * routed to the tiles its bounding box touches, containers and definitions go
+ * to all tiles, so each tile stays a vector image holding only what it shows. Tiles and index are written
+ * through a {@link DirectorySink}, so a tile is only replaced once complete.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class SvgTiler {
+
+	/**
+	 * Room around a shape for strokes and shadows.
+	 */
+	private static final double MARGIN = 8;
+
+	private static final double DEFAULT_FONT_SIZE = 14;
+
+	private static final Pattern PATH_TOKEN = Pattern.compile("[A-Za-z]|-?(?:\\d+\\.?\\d*|\\.\\d+)(?:[eE][-+]?\\d+)?");
+
+	private static final Set<String> CONTAINERS = new HashSet<String>(Arrays.asList("g", "a", "switch"));
+
+	/**
+	 * Tiles written at a time, each holds a file and a buffer.
+	 */
+	public static final int DEFAULT_MAX_OPEN_TILES = 64;
+
+	private int tileSize;
+	private int maxOpenTiles = DEFAULT_MAX_OPEN_TILES;
+
+	/**
+	 *
+	 * @param tileSize
+	 *            width and height of a tile in pixels
+	 */
+	public SvgTiler(int tileSize) {
+		if (tileSize <= 0) {
+			throw new IllegalArgumentException("Tile size must be positive");
+		}
+		this.tileSize = tileSize;
+	}
+
+	/**
+	 * Writes tiles/&lt;baseName&gt;_&lt;row&gt;_&lt;column&gt;.svg and
+	 * &lt;baseName&gt;.html into the target location.
+	 *
+	 * @param svg
+	 * @param targetLocation
+	 * @param baseName
+	 * @return the HTML index
+	 * @throws IOException
+	 */
+	public File tile(File svg, File targetLocation, String baseName) throws IOException {
+		Grid grid = new Grid(new DirectorySink(targetLocation), baseName);
+		int firstRow = 0;
+
+		do {
+			tileBand(svg, grid, firstRow);
+			firstRow += grid.bandRows;
+		} while (firstRow < grid.rows);
+
+		writeIndex(grid.sink, grid, baseName);
+		return new File(targetLocation, baseName + ".html");
+	}
+
+	/**
+	 * Streams the SVG into the tiles of the band starting at the row, the
+	 * first band also sizes the grid.
+	 *
+	 * @param svg
+	 * @param grid
+	 * @param firstRow
+	 * @throws IOException
+	 */
+	private void tileBand(File svg, Grid grid, int firstRow) throws IOException {
+		boolean started = false;
+		boolean complete = false;
+
+		try (InputStream in = new BufferedInputStream(new FileInputStream(svg))) {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+			factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+			XMLStreamReader reader = factory.createXMLStreamReader(in);
+			// tiles each open element was written to, null for all tiles
+			LinkedList<BitSet> routes = new LinkedList<BitSet>();
+
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					String name = getName(reader.getPrefix(), reader.getLocalName());
+
+					if (!started) {
+						grid.open(reader, firstRow);
+						started = true;
+						routes.push(null);
+						break;
+					}
+
+					BitSet route = routes.peek();
+
+					if (route == null && !CONTAINERS.contains(name) && !"defs".equals(name)) {
+						route = grid.getTiles(getBounds(reader, name));
+					}
+
+					grid.writeStartElement(route, reader, name);
+					routes.push(route);
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					BitSet closed = routes.pop();
+
+					if (!routes.isEmpty()) {
+						grid.writeEndElement(closed);
+					}
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+					if (started && !routes.isEmpty() && (routes.peek() != null || !reader.isWhiteSpace())) {
+						grid.writeCharacters(routes.peek(), reader.getText());
+					}
+					break;
+				default:
+					break;
+				}
+			}
+
+			reader.close();
+			complete = true;
+		} catch (XMLStreamException e) {
+			throw new IOException("Unable to tile " + svg + " : " + e.getMessage(), e);
+		} finally {
+			grid.close(complete);
+		}
+
+		if (!started) {
+			throw new IOException(svg + " has no root element");
+		}
+	}
+
+	/**
+	 *
+	 * @param sink
+	 * @param grid
+	 * @param baseName
+	 * @throws IOException
+	 */
+	private void writeIndex(OutputSink sink, Grid grid, String baseName) throws IOException {
+		try (OutputSink.Entry entry = sink.open(baseName + ".html")) {
+			Writer writer = entry.newWriter();
+			writer.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n<title>");
+			writer.write(escapeHtml(baseName));
+			writer.write("</title>\n<style>\n");
+			writer.write("html, body { margin: 0; height: 100%; }\n");
+			writer.write("#diagram { width: 100%; height: 100%; overflow: auto; }\n");
+			writer.write("#tiles { display: grid; grid-template-columns: repeat(" + grid.columns + ", " + tileSize
+					+ "px); grid-auto-rows: " + tileSize + "px; }\n");
+			writer.write("#tiles img { display: block; width: " + tileSize + "px; height: " + tileSize + "px; }\n");
+			writer.write("</style>\n</head>\n<body>\n<div id=\"diagram\"><div id=\"tiles\">\n");
+
+			for (int row = 0; row < grid.rows; row++) {
+				for (int column = 0; column < grid.columns; column++) {
+					writer.write("<img loading=\"lazy\" alt=\"\" data-src=\"tiles/" + escapeHtml(grid.getTileName(row, column))
+							+ "\">\n");
+				}
+			}
+
+			writer.write("</div></div>\n<script>\n");
+			writer.write("var tiles = document.querySelectorAll('#tiles img');\n");
+			writer.write("function load(img) { if (!img.src) { img.src = img.getAttribute('data-src'); } }\n");
+			writer.write("if ('IntersectionObserver' in window) {\n");
+			writer.write("  var observer = new IntersectionObserver(function (entries) {\n");
+			writer.write("    entries.forEach(function (entry) { if (entry.isIntersecting) { load(entry.target); observer.unobserve(entry.target); } });\n");
+			writer.write("  }, { root: document.getElementById('diagram'), rootMargin: '" + tileSize + "px' });\n");
+			writer.write("  tiles.forEach(function (img) { observer.observe(img); });\n");
+			writer.write("} else {\n  tiles.forEach(load);\n}\n");
+			writer.write("</script>\n</body>\n</html>\n");
+			writer.flush();
+			entry.commit();
+		}
+	}
+
+	/**
+	 * Bounding box of a shape as minX, minY, maxX, maxY.
+	 *
+	 * @param reader
+	 * @param name
+	 * @return the box or null if the shape has no geometry we understand
+	 */
+	private double[] getBounds(XMLStreamReader reader, String name) {
+		double[] bounds = { Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE };
+
+		if ("text".equals(name)) {
+			double x = getNumber(reader, "x", 0);
+			double y = getNumber(reader, "y", 0);
+			double fontSize = getNumber(reader, "font-size", DEFAULT_FONT_SIZE);
+			include(bounds, x, y - fontSize);
+			include(bounds, x + getNumber(reader, "textLength", fontSize), y + fontSize / 2);
+		} else if ("ellipse".equals(name) || "circle".equals(name)) {
+			double cx = getNumber(reader, "cx", 0);
+			double cy = getNumber(reader, "cy", 0);
+			double rx = getNumber(reader, "rx", getNumber(reader, "r", 0));
+			double ry = getNumber(reader, "ry", getNumber(reader, "r", 0));
+			include(bounds, cx - rx, cy - ry);
+			include(bounds, cx + rx, cy + ry);
+		} else if ("line".equals(name)) {
+			include(bounds, getNumber(reader, "x1", 0), getNumber(reader, "y1", 0));
+			include(bounds, getNumber(reader, "x2", 0), getNumber(reader, "y2", 0));
+		} else if (reader.getAttributeValue(null, "points") != null) {
+			includePoints(bounds, reader.getAttributeValue(null, "points"));
+		} else if (reader.getAttributeValue(null, "d") != null) {
+			includePath(bounds, reader.getAttributeValue(null, "d"));
+		} else if (reader.getAttributeValue(null, "x") != null || reader.getAttributeValue(null, "y") != null) {
+			double x = getNumber(reader, "x", 0);
+			double y = getNumber(reader, "y", 0);
+			include(bounds, x, y);
+			include(bounds, x + getNumber(reader, "width", 0), y + getNumber(reader, "height", 0));
+		}
+
+		return bounds[0] <= bounds[2] ? bounds : null;
+	}
+
+	private void includePoints(double[] bounds, String points) {
+		String[] coordinates = points.trim().split("[\\s,]+");
+
+		for (int i = 0; i + 1 < coordinates.length; i += 2) {
+			include(bounds, Double.parseDouble(coordinates[i]), Double.parseDouble(coordinates[i + 1]));
+		}
+	}
+
+	/**
+	 * Includes the end and control points of all path segments, which always
+	 * contain the curve.
+	 *
+	 * @param bounds
+	 * @param path
+	 */
+	private void includePath(double[] bounds, String path) {
+		Matcher matcher = PATH_TOKEN.matcher(path);
+		List<Double> arguments = new ArrayList<Double>();
+		char command = 0;
+		double[] current = { 0, 0 };
+		double[] start = { 0, 0 };
+
+		while (true) {
+			boolean found = matcher.find();
+
+			if (!found || Character.isLetter(matcher.group().charAt(0))) {
+				if (command != 0) {
+					applyPathCommand(bounds, command, arguments, current, start);
+				}
+
+				if (!found) {
+					break;
+				}
+
+				command = matcher.group().charAt(0);
+				arguments.clear();
+			} else {
+				arguments.add(Double.parseDouble(matcher.group()));
+			}
+		}
+	}
+
+	private void applyPathCommand(double[] bounds, char command, List<Double> arguments, double[] current,
+			double[] start) {
+		boolean relative = Character.isLowerCase(command);
+		char type = Character.toUpperCase(command);
+
+		if (type == 'Z') {
+			current[0] = start[0];
+			current[1] = start[1];
+			return;
+		}
+
+		int stride = type == 'H' || type == 'V' ? 1 : type == 'A' ? 7 : type == 'C' ? 6 : type == 'Q' || type == 'S' ? 4 : 2;
+
+		for (int i = 0; i + stride <= arguments.size(); i += stride) {
+			double baseX = relative ? current[0] : 0;
+			double baseY = relative ? current[1] : 0;
+
+			if (type == 'H') {
+				current[0] = baseX + arguments.get(i);
+			} else if (type == 'V') {
+				current[1] = baseY + arguments.get(i);
+			} else {
+				if (type != 'A') {
+					// control points
+					for (int j = i; j + 2 < i + stride; j += 2) {
+						include(bounds, baseX + arguments.get(j), baseY + arguments.get(j + 1));
+					}
+				}
+				current[0] = baseX + arguments.get(i + stride - 2);
+				current[1] = baseY + arguments.get(i + stride - 1);
+			}
+
+			include(bounds, current[0], current[1]);
+
+			if (type == 'M' && i == 0) {
+				start[0] = current[0];
+				start[1] = current[1];
+			}
+		}
+	}
+
+	private static void include(double[] bounds, double x, double y) {
+		bounds[0] = Math.min(bounds[0], x);
+		bounds[1] = Math.min(bounds[1], y);
+		bounds[2] = Math.max(bounds[2], x);
+		bounds[3] = Math.max(bounds[3], y);
+	}
+
+	private static double getNumber(XMLStreamReader reader, String attribute, double defaultValue) {
+		String value = reader.getAttributeValue(null, attribute);
+
+		if (value == null) {
+			return defaultValue;
+		}
+
+		try {
+			return Double.parseDouble(value.trim().replaceFirst("px$", ""));
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	private static String getName(String prefix, String localName) {
+		return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+	}
+
+	private static String format(double number) {
+		return number == Math.rint(number) ? Long.toString((long) number) : Double.toString(number);
+	}
+
+	/**
+	 *
+	 * @param maxOpenTiles
+	 *            tiles written at a time, the SVG is streamed again for every
+	 *            band of rows that fits
+	 */
+	public void setMaxOpenTiles(int maxOpenTiles) {
+		this.maxOpenTiles = Math.max(1, maxOpenTiles);
+	}
+
+	static String escapeHtml(String text) {
+		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+
+	/**
+	 * Cells of the tiles, with writers open for the rows of the current band.
+	 */
+	private class Grid {
+		private final OutputSink sink;
+		private final String baseName;
+		private double minX;
+		private double minY;
+		private int rows;
+		private int columns;
+		private int bandRows;
+		private int firstTile;
+		private int endTile;
+		private OutputSink.Entry[] outputs;
+		private XMLStreamWriter[] writers;
+
+		Grid(OutputSink sink, String baseName) {
+			this.sink = sink;
+			this.baseName = baseName;
+		}
+
+		/**
+		 * Opens the tiles of the band starting at the row.
+		 *
+		 * @param root
+		 * @param firstRow
+		 * @throws IOException
+		 * @throws XMLStreamException
+		 */
+		void open(XMLStreamReader root, int firstRow) throws IOException, XMLStreamException {
+			if (writers == null) {
+				resize(root);
+			}
+
+			int lastRow = Math.min(rows, firstRow + bandRows);
+			this.firstTile = firstRow * columns;
+			this.endTile = lastRow * columns;
+
+			XMLOutputFactory factory = XMLOutputFactory.newInstance();
+
+			for (int row = firstRow; row < lastRow; row++) {
+				for (int column = 0; column < columns; column++) {
+					int tile = row * columns + column;
+					outputs[tile] = sink.open("tiles/" + getTileName(row, column));
+					XMLStreamWriter writer = factory.createXMLStreamWriter(outputs[tile], "UTF-8");
+					writers[tile] = writer;
+
+					writer.writeStartDocument("UTF-8", "1.0");
+					writer.writeStartElement("svg");
+
+					for (int i = 0; i < root.getAttributeCount(); i++) {
+						String name = getName(root.getAttributePrefix(i), root.getAttributeLocalName(i));
+
+						if (!Arrays.asList("width", "height", "viewBox", "style").contains(name)) {
+							writer.writeAttribute(name, root.getAttributeValue(i));
+						}
+					}
+
+					writer.writeAttribute("width", tileSize + "px");
+					writer.writeAttribute("height", tileSize + "px");
+					writer.writeAttribute("viewBox", format(minX + column * tileSize) + " "
+							+ format(minY + row * tileSize) + " " + tileSize + " " + tileSize);
+				}
+			}
+		}
+
+		private void resize(XMLStreamReader root) {
+			double width = getNumber(root, "width", 0);
+			double height = getNumber(root, "height", 0);
+			double x = 0;
+			double y = 0;
+			String viewBox = root.getAttributeValue(null, "viewBox");
+
+			if (viewBox != null) {
+				String[] box = viewBox.trim().split("[\\s,]+");
+				x = Double.parseDouble(box[0]);
+				y = Double.parseDouble(box[1]);
+				width = Double.parseDouble(box[2]);
+				height = Double.parseDouble(box[3]);
+			}
+
+			this.minX = x;
+			this.minY = y;
+			this.rows = Math.max(1, (int) Math.ceil(height / tileSize));
+			this.columns = Math.max(1, (int) Math.ceil(width / tileSize));
+			this.bandRows = Math.max(1, maxOpenTiles / columns);
+			this.outputs = new OutputSink.Entry[rows * columns];
+			this.writers = new XMLStreamWriter[rows * columns];
+		}
+
+		String getTileName(int row, int column) {
+			return baseName + "_" + row + "_" + column + ".svg";
+		}
+
+		/**
+		 *
+		 * @param bounds
+		 * @return tiles the box touches, null for all tiles
+		 */
+		BitSet getTiles(double[] bounds) {
+			if (bounds == null) {
+				return null;
+			}
+
+			int firstColumn = clamp((int) Math.floor((bounds[0] - MARGIN - minX) / tileSize), columns);
+			int lastColumn = clamp((int) Math.floor((bounds[2] + MARGIN - minX) / tileSize), columns);
+			int firstRow = clamp((int) Math.floor((bounds[1] - MARGIN - minY) / tileSize), rows);
+			int lastRow = clamp((int) Math.floor((bounds[3] + MARGIN - minY) / tileSize), rows);
+			BitSet tiles = new BitSet(rows * columns);
+
+			for (int row = firstRow; row <= lastRow; row++) {
+				tiles.set(row * columns + firstColumn, row * columns + lastColumn + 1);
+			}
+
+			return tiles;
+		}
+
+		void writeStartElement(BitSet route, XMLStreamReader reader, String name) throws XMLStreamException {
+			for (int tile = next(route, 0); tile >= 0; tile = next(route, tile + 1)) {
+				writers[tile].writeStartElement(name);
+
+				for (int i = 0; i < reader.getAttributeCount(); i++) {
+					writers[tile].writeAttribute(getName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+							reader.getAttributeValue(i));
+				}
+			}
+		}
+
+		void writeEndElement(BitSet route) throws XMLStreamException {
+			for (int tile = next(route, 0); tile >= 0; tile = next(route, tile + 1)) {
+				writers[tile].writeEndElement();
+			}
+		}
+
+		void writeCharacters(BitSet route, String text) throws XMLStreamException {
+			for (int tile = next(route, 0); tile >= 0; tile = next(route, tile + 1)) {
+				writers[tile].writeCharacters(text);
+			}
+		}
+
+		/**
+		 * Closes the tiles of the current band.
+		 *
+		 * @param commit
+		 *            false to discard them
+		 * @throws IOException
+		 */
+		void close(boolean commit) throws IOException {
+			IOException failure = null;
+
+			for (int tile = firstTile; tile < endTile; tile++) {
+				try {
+					if (writers[tile] != null && commit) {
+						writers[tile].writeEndDocument();
+						writers[tile].close();
+						outputs[tile].commit();
+					}
+				} catch (XMLStreamException e) {
+					failure = new IOException(e.getMessage(), e);
+				} finally {
+					if (outputs[tile] != null) {
+						outputs[tile].close();
+					}
+					outputs[tile] = null;
+					writers[tile] = null;
+				}
+			}
+
+			firstTile = endTile;
+
+			if (failure != null) {
+				throw failure;
+			}
+		}
+
+		/**
+		 * Next tile of the route within the current band.
+		 */
+		private int next(BitSet route, int from) {
+			from = Math.max(from, firstTile);
+
+			if (route == null) {
+				return from < endTile ? from : -1;
+			}
+
+			int tile = route.nextSetBit(from);
+			return tile < endTile ? tile : -1;
+		}
+
+		private int clamp(int index, int size) {
+			return Math.max(0, Math.min(size - 1, index));
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps classes of the swagger-models hierarchy to the handler converting them.
+ * A class without a handler of its own uses the handler of its nearest
+ * registered supertype. That lookup is done once per concrete class, so
+ * dispatching in the codegen loops is a single map read.
+ * 
+ * @author MSANTOSH
+ *
+ * @param <T>
+ *            root of the handled hierarchy, e.g. Property
+ * @param <H>
+ *            handler type
+ */
+public class TypeHandlerRegistry<T, H> {
+
+	private static final Object NO_HANDLER = new Object();
+
+	private final Map<Class<?>, H> handlers = new HashMap<Class<?>, H>();
+	private final Map<Class<?>, Object> resolvedHandlers = new ConcurrentHashMap<Class<?>, Object>();
+
+	public TypeHandlerRegistry() {
+		super();
+	}
+
+	/**
+	 * Registers the handler for the type and its subclasses without a handler
+	 * of their own, replacing any handler registered for the type before.
+	 * 
+	 * @param type
+	 * @param handler
+	 */
+	public synchronized void register(Class<? extends T> type, H handler) {
+		handlers.put(type, handler);
+		resolvedHandlers.clear();
+	}
+
+	/**
+	 * 
+	 * @param type
+	 * @return handler of the type, or null if neither the type nor any of its
+	 *         supertypes has one
+	 */
+	@SuppressWarnings("unchecked")
+	public H get(Class<?> type) {
+		Object handler = resolvedHandlers.get(type);
+
+		if (handler == null) {
+			handler = resolve(type);
+			resolvedHandlers.put(type, handler);
+		}
+
+		return handler == NO_HANDLER ? null : (H) handler;
+	}
+
+	/**
+	 * Nearest superclass with a handler, then the nearest interface, since
+	 * hierarchies like Property are rooted in an interface.
+	 * 
+	 * @param type
+	 * @return
+	 */
+	private synchronized Object resolve(Class<?> type) {
+		Deque<Class<?>> interfaces = new ArrayDeque<Class<?>>();
+
+		for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+			H handler = handlers.get(current);
+
+			if (handler != null) {
+				return handler;
+			}
+
+			interfaces.addAll(Arrays.asList(current.getInterfaces()));
+		}
+
+		while (!interfaces.isEmpty()) {
+			Class<?> current = interfaces.poll();
+			H handler = handlers.get(current);
+
+			if (handler != null) {
+				return handler;
+			}
+
+			interfaces.addAll(Arrays.asList(current.getInterfaces()));
+		}
+
+		return NO_HANDLER;
+	}
+}
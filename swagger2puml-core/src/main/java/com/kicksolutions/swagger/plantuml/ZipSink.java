@@ -0,0 +1,133 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes all entries into a single zip archive. The archive is built in a
+ * temp file next to the target and moved in place when the sink is closed.
+ * Entries are buffered until committed, so several can be written
+ * concurrently.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class ZipSink implements OutputSink {
+
+	private final File archive;
+	private final Path temp;
+	private final ZipOutputStream zip;
+	private final Set<String> names = new HashSet<String>();
+	private boolean closed = false;
+
+	/**
+	 *
+	 * @param archive
+	 *            its directory must exist
+	 * @throws IOException
+	 */
+	public ZipSink(File archive) throws IOException {
+		File directory = archive.getAbsoluteFile().getParentFile();
+
+		if (directory == null || !directory.isDirectory()) {
+			throw new IOException("Directory of " + archive + " does not exist");
+		}
+
+		this.archive = archive;
+		this.temp = Files.createTempFile(directory.toPath(), archive.getName(), ".tmp");
+		this.zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(temp.toFile()), 65536));
+	}
+
+	/**
+	 *
+	 * @param output
+	 * @return whether the output names a zip archive
+	 */
+	public static boolean isZipLocation(String output) {
+		return output != null && output.toLowerCase().endsWith(".zip");
+	}
+
+	@Override
+	public Entry open(final String name) throws IOException {
+		if (closed) {
+			throw new IOException(archive + " is already closed");
+		}
+
+		final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+		return new Entry(content) {
+			@Override
+			protected void finish(boolean commit) throws IOException {
+				if (commit) {
+					putEntry(name, content);
+				}
+			}
+		};
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+
+		try {
+			zip.close();
+
+			try {
+				Files.move(temp, archive.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Drops the archive being built, an existing archive is left as it was.
+	 */
+	@Override
+	public synchronized void abort() {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+
+		try {
+			zip.close();
+		} catch (IOException e) {
+			// the archive is dropped anyway
+		}
+
+		temp.toFile().delete();
+	}
+
+	private synchronized void putEntry(String name, ByteArrayOutputStream content) throws IOException {
+		if (closed) {
+			throw new IOException(archive + " is already closed");
+		}
+
+		if (!names.add(name)) {
+			throw new IOException("Entry " + name + " is written twice to " + archive);
+		}
+
+		zip.putNextEntry(new ZipEntry(name));
+		content.writeTo(zip);
+		zip.closeEntry();
+	}
+}
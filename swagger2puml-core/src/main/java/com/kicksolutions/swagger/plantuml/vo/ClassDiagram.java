@@ -26,6 +26,7 @@ public class ClassDiagram {
 		this.isClass = isClass;
 		this.superClass=superClass;
 	}
+	private String color;
 
 	public ClassDiagram(){
 		super();
@@ -79,9 +80,22 @@ public class ClassDiagram {
 		this.superClass = superClass;
 	}
 
+	public String getColor() {
+		return color;
+	}
+
+	/**
+	 * Optional PlantUML color used to highlight the element, e.g. in diffs
+	 * 
+	 * @param color
+	 */
+	public void setColor(String color) {
+		this.color = color;
+	}
+
 	@Override
 	public String toString() {
 		return "ClassDiagram [className=" + className + ", isClass=" + isClass + ", description=" + description
-				+ ", fields=" + fields + ", childClass=" + childClass + ", superClass=" + superClass + "]";
+				+ ", fields=" + fields + ", childClass=" + childClass + ", superClass=" + superClass + ", color=" + color + "]";
 	}
 }
\ No newline at end of file
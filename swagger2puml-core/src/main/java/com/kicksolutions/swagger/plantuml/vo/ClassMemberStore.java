@@ -0,0 +1,156 @@
+package com.kicksolutions.swagger.plantuml.vo;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Column oriented store for the members of all classes of a run. Names, data
+ * types and class names are interned once and referenced by id from primitive
+ * arrays, so a member costs a few ints instead of a {@link ClassMembers}
+ * object with four string references. Classes read their members through
+ * {@link #append(List)} views, which materialize {@link ClassMembers} on
+ * access only.
+ * 
+ * @author MSANTOSH
+ *
+ */
+public class ClassMemberStore {
+
+	private static final int NO_VALUE = -1;
+	private static final int INITIAL_CAPACITY = 256;
+
+	private final List<String> strings = new ArrayList<String>();
+	private final Map<String, Integer> stringIds = new HashMap<String, Integer>();
+	private final List<String> cardinalities = new ArrayList<String>();
+
+	private int[] names = new int[INITIAL_CAPACITY];
+	private int[] dataTypes = new int[INITIAL_CAPACITY];
+	private int[] classNames = new int[INITIAL_CAPACITY];
+	private byte[] cardinalityCodes = new byte[INITIAL_CAPACITY];
+	private int size;
+
+	public ClassMemberStore() {
+		super();
+	}
+
+	/**
+	 * Copies the given members into the store.
+	 * 
+	 * @param members
+	 * @return read only view over the stored members
+	 */
+	public List<ClassMembers> append(List<ClassMembers> members) {
+		int offset = size;
+		ensureCapacity(size + members.size());
+
+		for (ClassMembers member : members) {
+			names[size] = intern(member.getName());
+			dataTypes[size] = intern(member.getDataType());
+			classNames[size] = intern(member.getClassName());
+			cardinalityCodes[size] = cardinalityCode(member.getCardinality());
+			size++;
+		}
+
+		return new MembersView(offset, members.size());
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int distinctStrings() {
+		return strings.size();
+	}
+
+	/**
+	 * 
+	 * @param index
+	 * @return
+	 */
+	private ClassMembers get(int index) {
+		return new ClassMembers(lookup(dataTypes[index]), lookup(names[index]), lookup(classNames[index]),
+				cardinalityCodes[index] == NO_VALUE ? null : cardinalities.get(cardinalityCodes[index]));
+	}
+
+	private int intern(String value) {
+		if (value == null) {
+			return NO_VALUE;
+		}
+
+		Integer id = stringIds.get(value);
+
+		if (id == null) {
+			id = strings.size();
+			strings.add(value);
+			stringIds.put(value, id);
+		}
+
+		return id;
+	}
+
+	private String lookup(int id) {
+		return id == NO_VALUE ? null : strings.get(id);
+	}
+
+	private byte cardinalityCode(String cardinality) {
+		if (cardinality == null) {
+			return NO_VALUE;
+		}
+
+		int code = cardinalities.indexOf(cardinality);
+
+		if (code < 0) {
+			if (cardinalities.size() == Byte.MAX_VALUE) {
+				throw new IllegalStateException("Too many distinct cardinalities");
+			}
+
+			code = cardinalities.size();
+			cardinalities.add(cardinality);
+		}
+
+		return (byte) code;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > names.length) {
+			int newCapacity = Math.max(capacity, names.length * 2);
+			names = Arrays.copyOf(names, newCapacity);
+			dataTypes = Arrays.copyOf(dataTypes, newCapacity);
+			classNames = Arrays.copyOf(classNames, newCapacity);
+			cardinalityCodes = Arrays.copyOf(cardinalityCodes, newCapacity);
+		}
+	}
+
+	/**
+	 * Members of one class, stored contiguously.
+	 */
+	private class MembersView extends AbstractList<ClassMembers> implements RandomAccess {
+
+		private final int offset;
+		private final int length;
+
+		MembersView(int offset, int length) {
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public ClassMembers get(int index) {
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+			}
+
+			return ClassMemberStore.this.get(offset + index);
+		}
+
+		@Override
+		public int size() {
+			return length;
+		}
+	}
+}
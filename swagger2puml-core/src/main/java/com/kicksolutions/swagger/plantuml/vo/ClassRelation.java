@@ -12,6 +12,7 @@ public class ClassRelation {
 	private String targetClass;
 	private boolean isExtension;
 	private boolean isComposition;
+	private boolean isInheritance;
 	private String cardinality;
 	private String sourceClass;
 	
@@ -27,6 +28,7 @@ public class ClassRelation {
 		this.cardinality = cardinality;
 		this.sourceClass = sourceClass;
 	}
+	private String color;
 
 	public String getTargetClass() {
 		return targetClass;
@@ -52,6 +54,19 @@ public class ClassRelation {
 		this.isComposition = isComposition;
 	}
 
+	public boolean isInheritance() {
+		return isInheritance;
+	}
+
+	/**
+	 * Source extends target, drawn when inherited members are not flattened
+	 * 
+	 * @param isInheritance
+	 */
+	public void setInheritance(boolean isInheritance) {
+		this.isInheritance = isInheritance;
+	}
+
 	public String getCardinality() {
 		return cardinality;
 	}
@@ -68,9 +83,23 @@ public class ClassRelation {
 		this.sourceClass = sourceClass;
 	}
 
+	public String getColor() {
+		return color;
+	}
+
+	/**
+	 * Optional PlantUML color used to highlight the element, e.g. in diffs
+	 * 
+	 * @param color
+	 */
+	public void setColor(String color) {
+		this.color = color;
+	}
+
 	@Override
 	public String toString() {
 		return "ClassRelation [targetClass=" + targetClass + ", isExtension=" + isExtension + ", isComposition="
-				+ isComposition + ", cardinality=" + cardinality + ", sourceClass=" + sourceClass + "]";
+				+ isComposition + ", isInheritance=" + isInheritance + ", cardinality=" + cardinality + ", sourceClass=" + sourceClass + ", color=" + color
+				+ "]";
 	}
 }
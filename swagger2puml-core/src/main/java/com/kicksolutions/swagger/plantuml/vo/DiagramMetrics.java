@@ -0,0 +1,236 @@
+package com.kicksolutions.swagger.plantuml.vo;
+
+/**
+ * Graph metrics of a diagram, written next to it as swagger-metrics.json so
+ * that big specs can be told apart before they are rendered.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class DiagramMetrics {
+
+	private String title;
+	private String version;
+	private int nodes;
+	private int classes;
+	private int enums;
+	private int interfaces;
+	private int edges;
+	private int compositionEdges;
+	private int extensionEdges;
+	private int inheritanceEdges;
+	private int members;
+	private int maxMembers;
+	private int maxInheritanceDepth;
+	private int maxFanIn;
+	private String maxFanInNode;
+	private int maxFanOut;
+	private String maxFanOutNode;
+	private int components;
+	private int largestComponent;
+	private int isolatedNodes;
+	private long estimatedRenderMillis;
+
+	public DiagramMetrics() {
+		super();
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	public void setVersion(String version) {
+		this.version = version;
+	}
+
+	/**
+	 *
+	 * @return classes, enums, interfaces and nodes only known from edges
+	 */
+	public int getNodes() {
+		return nodes;
+	}
+
+	public void setNodes(int nodes) {
+		this.nodes = nodes;
+	}
+
+	public int getClasses() {
+		return classes;
+	}
+
+	public void setClasses(int classes) {
+		this.classes = classes;
+	}
+
+	public int getEnums() {
+		return enums;
+	}
+
+	public void setEnums(int enums) {
+		this.enums = enums;
+	}
+
+	public int getInterfaces() {
+		return interfaces;
+	}
+
+	public void setInterfaces(int interfaces) {
+		this.interfaces = interfaces;
+	}
+
+	public int getEdges() {
+		return edges;
+	}
+
+	public void setEdges(int edges) {
+		this.edges = edges;
+	}
+
+	public int getCompositionEdges() {
+		return compositionEdges;
+	}
+
+	public void setCompositionEdges(int compositionEdges) {
+		this.compositionEdges = compositionEdges;
+	}
+
+	public int getExtensionEdges() {
+		return extensionEdges;
+	}
+
+	public void setExtensionEdges(int extensionEdges) {
+		this.extensionEdges = extensionEdges;
+	}
+
+	public int getInheritanceEdges() {
+		return inheritanceEdges;
+	}
+
+	public void setInheritanceEdges(int inheritanceEdges) {
+		this.inheritanceEdges = inheritanceEdges;
+	}
+
+	/**
+	 *
+	 * @return fields of all classes and enums plus methods of all interfaces
+	 */
+	public int getMembers() {
+		return members;
+	}
+
+	public void setMembers(int members) {
+		this.members = members;
+	}
+
+	/**
+	 *
+	 * @return members of the largest node
+	 */
+	public int getMaxMembers() {
+		return maxMembers;
+	}
+
+	public void setMaxMembers(int maxMembers) {
+		this.maxMembers = maxMembers;
+	}
+
+	/**
+	 *
+	 * @return longest chain of allOf parents, 0 without inheritance
+	 */
+	public int getMaxInheritanceDepth() {
+		return maxInheritanceDepth;
+	}
+
+	public void setMaxInheritanceDepth(int maxInheritanceDepth) {
+		this.maxInheritanceDepth = maxInheritanceDepth;
+	}
+
+	public int getMaxFanIn() {
+		return maxFanIn;
+	}
+
+	public void setMaxFanIn(int maxFanIn) {
+		this.maxFanIn = maxFanIn;
+	}
+
+	public String getMaxFanInNode() {
+		return maxFanInNode;
+	}
+
+	public void setMaxFanInNode(String maxFanInNode) {
+		this.maxFanInNode = maxFanInNode;
+	}
+
+	public int getMaxFanOut() {
+		return maxFanOut;
+	}
+
+	public void setMaxFanOut(int maxFanOut) {
+		this.maxFanOut = maxFanOut;
+	}
+
+	public String getMaxFanOutNode() {
+		return maxFanOutNode;
+	}
+
+	public void setMaxFanOutNode(String maxFanOutNode) {
+		this.maxFanOutNode = maxFanOutNode;
+	}
+
+	/**
+	 *
+	 * @return connected components, edges taken as undirected
+	 */
+	public int getComponents() {
+		return components;
+	}
+
+	public void setComponents(int components) {
+		this.components = components;
+	}
+
+	/**
+	 *
+	 * @return nodes of the largest connected component
+	 */
+	public int getLargestComponent() {
+		return largestComponent;
+	}
+
+	public void setLargestComponent(int largestComponent) {
+		this.largestComponent = largestComponent;
+	}
+
+	public int getIsolatedNodes() {
+		return isolatedNodes;
+	}
+
+	public void setIsolatedNodes(int isolatedNodes) {
+		this.isolatedNodes = isolatedNodes;
+	}
+
+	public long getEstimatedRenderMillis() {
+		return estimatedRenderMillis;
+	}
+
+	public void setEstimatedRenderMillis(long estimatedRenderMillis) {
+		this.estimatedRenderMillis = estimatedRenderMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "DiagramMetrics [nodes=" + nodes + ", edges=" + edges + ", members=" + members
+				+ ", maxInheritanceDepth=" + maxInheritanceDepth + ", maxFanIn=" + maxFanIn + ", maxFanOut="
+				+ maxFanOut + ", components=" + components + ", largestComponent=" + largestComponent + "]";
+	}
+}
@@ -13,6 +13,7 @@ public class InterfaceDiagram {
 	private List<MethodDefinitions> methods;
 	private List<ClassRelation> childClass;
 	private List<String> errorClasses;
+	private String color;
 
 	public InterfaceDiagram() {
 		super();
@@ -59,9 +60,22 @@ public class InterfaceDiagram {
 		this.errorClasses = errorClasses;
 	}
 
+	public String getColor() {
+		return color;
+	}
+
+	/**
+	 * Optional PlantUML color used to highlight the element, e.g. in diffs
+	 * 
+	 * @param color
+	 */
+	public void setColor(String color) {
+		this.color = color;
+	}
+
 	@Override
 	public String toString() {
 		return "InterfaceDiagram [interfaceName=" + interfaceName + ", methods=" + methods + ", childClass="
-				+ childClass + ", errorClasses=" + errorClasses + "]";
+				+ childClass + ", errorClasses=" + errorClasses + ", color=" + color + "]";
 	}
 }
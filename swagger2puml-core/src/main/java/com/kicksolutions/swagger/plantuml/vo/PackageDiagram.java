@@ -0,0 +1,45 @@
+package com.kicksolutions.swagger.plantuml.vo;
+
+import java.util.List;
+
+/**
+ * 
+ * @author MSANTOSH
+ *
+ */
+public class PackageDiagram {
+
+	private String packageName;
+	private List<ClassDiagram> classDiagrams;
+
+	public PackageDiagram() {
+		super();
+	}
+
+	public PackageDiagram(String packageName, List<ClassDiagram> classDiagrams) {
+		super();
+		this.packageName = packageName;
+		this.classDiagrams = classDiagrams;
+	}
+
+	public String getPackageName() {
+		return packageName;
+	}
+
+	public void setPackageName(String packageName) {
+		this.packageName = packageName;
+	}
+
+	public List<ClassDiagram> getClassDiagrams() {
+		return classDiagrams;
+	}
+
+	public void setClassDiagrams(List<ClassDiagram> classDiagrams) {
+		this.classDiagrams = classDiagrams;
+	}
+
+	@Override
+	public String toString() {
+		return "PackageDiagram [packageName=" + packageName + ", classDiagrams=" + classDiagrams + "]";
+	}
+}
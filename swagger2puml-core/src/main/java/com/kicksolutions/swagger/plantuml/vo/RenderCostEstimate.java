@@ -0,0 +1,65 @@
+package com.kicksolutions.swagger.plantuml.vo;
+
+/**
+ * Size of a diagram as seen by the layout engine, used to predict render time.
+ * 
+ * @author MSANTOSH
+ *
+ */
+public class RenderCostEstimate {
+
+	private int nodes;
+	private int edges;
+	private int members;
+	private int enumMembers;
+
+	public RenderCostEstimate() {
+		super();
+	}
+
+	public RenderCostEstimate(int nodes, int edges, int members, int enumMembers) {
+		super();
+		this.nodes = nodes;
+		this.edges = edges;
+		this.members = members;
+		this.enumMembers = enumMembers;
+	}
+
+	public int getNodes() {
+		return nodes;
+	}
+
+	public void setNodes(int nodes) {
+		this.nodes = nodes;
+	}
+
+	public int getEdges() {
+		return edges;
+	}
+
+	public void setEdges(int edges) {
+		this.edges = edges;
+	}
+
+	public int getMembers() {
+		return members;
+	}
+
+	public void setMembers(int members) {
+		this.members = members;
+	}
+
+	public int getEnumMembers() {
+		return enumMembers;
+	}
+
+	public void setEnumMembers(int enumMembers) {
+		this.enumMembers = enumMembers;
+	}
+
+	@Override
+	public String toString() {
+		return "RenderCostEstimate [nodes=" + nodes + ", edges=" + edges + ", members=" + members + ", enumMembers="
+				+ enumMembers + "]";
+	}
+}
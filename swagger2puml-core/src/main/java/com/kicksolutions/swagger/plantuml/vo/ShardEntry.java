@@ -0,0 +1,99 @@
+package com.kicksolutions.swagger.plantuml.vo;
+
+/**
+ * One spec of a shard and where its diagrams were written.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class ShardEntry {
+
+	private String spec;
+	private String directory;
+	private int shard;
+	private long cost;
+	private boolean failed;
+	private String error;
+
+	public ShardEntry() {
+		super();
+	}
+
+	public ShardEntry(String spec, String directory, int shard, long cost) {
+		super();
+		this.spec = spec;
+		this.directory = directory;
+		this.shard = shard;
+		this.cost = cost;
+	}
+
+	/**
+	 *
+	 * @return path of the spec as given
+	 */
+	public String getSpec() {
+		return spec;
+	}
+
+	public void setSpec(String spec) {
+		this.spec = spec;
+	}
+
+	/**
+	 *
+	 * @return directory of the diagrams, relative to the output
+	 */
+	public String getDirectory() {
+		return directory;
+	}
+
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 *
+	 * @return shard, from 1
+	 */
+	public int getShard() {
+		return shard;
+	}
+
+	public void setShard(int shard) {
+		this.shard = shard;
+	}
+
+	/**
+	 *
+	 * @return estimated cost the shards were balanced by
+	 */
+	public long getCost() {
+		return cost;
+	}
+
+	public void setCost(long cost) {
+		this.cost = cost;
+	}
+
+	public boolean isFailed() {
+		return failed;
+	}
+
+	public void setFailed(boolean failed) {
+		this.failed = failed;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	@Override
+	public String toString() {
+		return "ShardEntry [spec=" + spec + ", directory=" + directory + ", shard=" + shard + ", failed=" + failed
+				+ "]";
+	}
+}
@@ -0,0 +1,117 @@
+package com.kicksolutions.swagger.plantuml.vo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Specs transformed by one shard of a batch run, written next to their
+ * diagrams so the outputs of all shards can be merged into one index.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class ShardSummary {
+
+	private int shard;
+	private int shards;
+	private long cost;
+	private List<String> specs = new ArrayList<String>();
+	private String specsDigest;
+	private List<ShardEntry> entries = new ArrayList<ShardEntry>();
+
+	public ShardSummary() {
+		super();
+	}
+
+	public ShardSummary(int shard, int shards) {
+		super();
+		this.shard = shard;
+		this.shards = shards;
+	}
+
+	/**
+	 *
+	 * @param shard
+	 * @param shards
+	 * @return name of the summary file of the shard
+	 */
+	public static String getFileName(int shard, int shards) {
+		return "shard-" + shard + "-of-" + shards + ".json";
+	}
+
+	/**
+	 *
+	 * @return shard, from 1, 0 for the merged index of all shards
+	 */
+	public int getShard() {
+		return shard;
+	}
+
+	public void setShard(int shard) {
+		this.shard = shard;
+	}
+
+	public int getShards() {
+		return shards;
+	}
+
+	public void setShards(int shards) {
+		this.shards = shards;
+	}
+
+	/**
+	 *
+	 * @return estimated cost of all entries
+	 */
+	public long getCost() {
+		return cost;
+	}
+
+	public void setCost(long cost) {
+		this.cost = cost;
+	}
+
+	/**
+	 *
+	 * @return every spec of the batch, not only those of this shard
+	 */
+	public List<String> getSpecs() {
+		return specs;
+	}
+
+	public void setSpecs(List<String> specs) {
+		this.specs = specs;
+	}
+
+	/**
+	 *
+	 * @return digest of {@link #getSpecs()}, the same for every shard of the
+	 *         batch
+	 */
+	public String getSpecsDigest() {
+		return specsDigest;
+	}
+
+	public void setSpecsDigest(String specsDigest) {
+		this.specsDigest = specsDigest;
+	}
+
+	public List<ShardEntry> getEntries() {
+		return entries;
+	}
+
+	public void setEntries(List<ShardEntry> entries) {
+		this.entries = entries;
+	}
+
+	@Override
+	public String toString() {
+		int failed = 0;
+		for (ShardEntry entry : entries) {
+			failed += entry.isFailed() ? 1 : 0;
+		}
+
+		return (shard == 0 ? "All " + shards + " shards" : "Shard " + shard + " of " + shards) + ": "
+				+ entries.size() + " specs, " + failed + " failed, cost " + cost;
+	}
+}
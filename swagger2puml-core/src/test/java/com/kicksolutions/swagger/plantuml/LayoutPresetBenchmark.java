@@ -0,0 +1,120 @@
+package com.kicksolutions.swagger.plantuml;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.swagger.util.Json;
+
+/**
+ * Times the transformation of synthetic specs, render included, with each
+ * {@link LayoutPreset}. Rendering needs Graphviz as the CLI does.
+ *
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * com.kicksolutions.swagger.plantuml.LayoutPresetBenchmark [definitions,...] [runs]
+ */
+public class LayoutPresetBenchmark {
+
+  private static final int PROPERTIES_PER_DEFINITION = 8;
+  private static final int DEFINITIONS_PER_TAG = 10;
+  private static final String[] TYPES = {"string", "integer", "boolean", "number"};
+
+  public static void main(String[] args) throws Exception {
+    List<Integer> sizes = new ArrayList<>();
+    for (String size : (args.length > 0 ? args[0] : "50,150,300").split(",")) {
+      sizes.add(Integer.parseInt(size.trim()));
+    }
+    int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+    Logger.getLogger("com.kicksolutions").setLevel(Level.WARNING);
+    File workDir = Files.createTempDirectory("layout-preset-benchmark").toFile();
+
+    try {
+      System.out.printf("%-12s %-9s %10s %10s %10s%n", "definitions", "preset", "median ms", "min ms", "puml KB");
+
+      for (int definitions : sizes) {
+        File specFile = new File(workDir, "synthetic-" + definitions + ".json");
+        Json.pretty().writeValue(specFile, buildSpec(definitions));
+
+        for (LayoutPreset preset : LayoutPreset.values()) {
+          PlantUMLGenerator generator = new PlantUMLGenerator();
+          generator.setLayoutPreset(preset);
+          File outputDir = new File(workDir, definitions + "-" + preset);
+          outputDir.mkdirs();
+
+          // warm up class loading and the JIT before timing
+          generator.transformSwagger2Puml(specFile.getAbsolutePath(), outputDir.getAbsolutePath(), false, true, true);
+
+          List<Long> millis = new ArrayList<>();
+          for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            generator.transformSwagger2Puml(specFile.getAbsolutePath(), outputDir.getAbsolutePath(), false, true, true);
+            millis.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+          }
+          Collections.sort(millis);
+
+          System.out.printf("%-12d %-9s %10d %10d %10d%n", definitions, preset.name().toLowerCase(),
+              millis.get(millis.size() / 2), millis.get(0), new File(outputDir, PlantUMLCodegen.PUML_FILE).length() / 1024);
+        }
+      }
+    } finally {
+      FileUtils.deleteQuietly(workDir);
+    }
+  }
+
+  /**
+   * Definitions referencing a few earlier ones and arrays of others, and a GET
+   * and a POST per definition tagged in groups, so the graph has fan-in,
+   * chains and an interface per operation.
+   */
+  private static ObjectNode buildSpec(int definitions) {
+    Random random = new Random(definitions);
+    ObjectNode spec = Json.mapper().createObjectNode();
+    spec.put("swagger", "2.0");
+    spec.putObject("info").put("title", "Synthetic " + definitions).put("version", "1.0.0");
+
+    ObjectNode models = spec.putObject("definitions");
+    for (int i = 0; i < definitions; i++) {
+      ObjectNode properties = models.putObject("Model" + i).put("type", "object").putObject("properties");
+
+      for (int p = 0; p < PROPERTIES_PER_DEFINITION; p++) {
+        ObjectNode property = properties.putObject("property" + p);
+
+        if (i > 0 && p == 0) {
+          property.put("$ref", "#/definitions/Model" + random.nextInt(i));
+        } else if (i > 0 && p == 1 && random.nextBoolean()) {
+          property.put("type", "array").putObject("items").put("$ref", "#/definitions/Model" + random.nextInt(i));
+        } else {
+          property.put("type", TYPES[random.nextInt(TYPES.length)]);
+        }
+      }
+    }
+
+    ObjectNode paths = spec.putObject("paths");
+    for (int i = 0; i < definitions; i++) {
+      String tag = "tag" + (i / DEFINITIONS_PER_TAG);
+      ObjectNode path = paths.putObject("/models" + i);
+
+      for (String method : Arrays.asList("get", "post")) {
+        ObjectNode operation = path.putObject(method);
+        operation.putArray("tags").add(tag);
+        operation.put("operationId", method + "Model" + i);
+        operation.putObject("responses").putObject("200").put("description", "ok").putObject("schema")
+            .put("$ref", "#/definitions/Model" + i);
+      }
+    }
+
+    return spec;
+  }
+}
@@ -1,12 +1,54 @@
 package com.kicksolutions.swagger.plantuml;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import com.kicksolutions.swagger.plantuml.vo.ClassMembers;
+import com.kicksolutions.swagger.plantuml.vo.ShardEntry;
+import com.kicksolutions.swagger.plantuml.vo.ShardSummary;
+
+import io.swagger.models.properties.DateTimeProperty;
+import io.swagger.util.Json;
+import net.sourceforge.plantuml.SourceStringReader;
+import net.sourceforge.plantuml.core.Diagram;
+import net.sourceforge.plantuml.cucadiagram.CucaDiagram;
+
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class PlantUMLGeneratorTest {
@@ -61,4 +103,790 @@ class PlantUMLGeneratorTest {
     assertFalse(FileUtils.readFileToString(plantUmlFile).contains(stringToFind), "Expect that invalid response "
         + "realtion will NOT be generated");
   }
-}
\ No newline at end of file
+
+  @Test
+  @DisplayName("Petstore test with operations grouped by tag")
+  void test_generatePetStorePlantUml_groupedByTag(@TempDir File outputDir) throws Exception {
+    String specFile = "src/test/resources/petstore/swagger.yaml";
+    PlantUMLGenerator groupingGenerator = new PlantUMLGenerator();
+    groupingGenerator.setGroupOperationsByTag(true);
+
+    groupingGenerator.transformSwagger2Puml(specFile, outputDir.getAbsolutePath(), false, true, false);
+
+    String plantUml = FileUtils.readFileToString(new File(outputDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertEquals(1, countOccurrences(plantUml, "interface PetApi "), "Expect a single interface per tag");
+    assertTrue(plantUml.contains("addPet("), "Expect methods of the tag to be merged");
+    assertTrue(plantUml.contains("deletePet("), "Expect methods of the tag to be merged");
+  }
+
+  @Test
+  @DisplayName("Petstore test degraded to fit the render budget")
+  void test_generatePetStorePlantUml_withRenderBudget(@TempDir File outputDir) throws Exception {
+    String specFile = "src/test/resources/petstore/swagger.yaml";
+    PlantUMLGenerator budgetGenerator = new PlantUMLGenerator();
+    budgetGenerator.setRenderBudgetMillis(1);
+
+    budgetGenerator.transformSwagger2Puml(specFile, outputDir.getAbsolutePath(), false, true, false);
+
+    String plantUml = FileUtils.readFileToString(new File(outputDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertTrue(plantUml.contains("hide members"), "Expect members to be hidden");
+    assertTrue(plantUml.contains("!pragma graphviz_dot jdot"), "Expect layout to switch to Smetana");
+  }
+
+  @Test
+  @DisplayName("Merged diagram of two petstore specs sharing models")
+  void test_mergePetStorePlantUml(@TempDir File outputDir) throws Exception {
+    generator.mergeSwaggers2Puml(Arrays.asList("src/test/resources/petstore/swagger.yaml",
+        "src/test/resources/petstore_with_inheritance/swagger.yaml"), outputDir.getAbsolutePath(), true, false);
+
+    String plantUml = FileUtils.readFileToString(new File(outputDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertTrue(plantUml.contains("package \"Shared\""), "Expect identical models to be moved to the shared package");
+    assertEquals(1, countOccurrences(plantUml, " Order {"), "Expect identical models to be drawn once");
+  }
+
+  @Test
+  @DisplayName("Merged diagram of two petstore specs differing in a referenced model")
+  void test_mergePetStorePlantUml_changedReference(@TempDir File outputDir) throws Exception {
+    String spec = FileUtils.readFileToString(new File("src/test/resources/petstore/swagger.yaml"), StandardCharsets.UTF_8);
+    File changedSpec = new File(outputDir, "changed/swagger.yaml");
+    FileUtils.writeStringToFile(changedSpec, spec.replace("      name:\n        type: string\n    xml:\n      name: Category",
+        "      name:\n        type: string\n      description:\n        type: string\n    xml:\n      name: Category"), StandardCharsets.UTF_8);
+
+    generator.mergeSwaggers2Puml(Arrays.asList("src/test/resources/petstore/swagger.yaml", changedSpec.getPath()), outputDir.getAbsolutePath(), true, false);
+
+    String plantUml = FileUtils.readFileToString(new File(outputDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertEquals(1, countOccurrences(plantUml, " Order {"), "Expect identical models to be drawn once");
+    assertEquals(2, countOccurrences(plantUml, "Pet {"), "Expect models referencing a changed model to be drawn per spec");
+  }
+
+  @Test
+  @DisplayName("Merged diagram of two petstore specs differing in property order and documentation only")
+  void test_mergePetStorePlantUml_reorderedAndDocumented(@TempDir File outputDir) throws Exception {
+    String spec = FileUtils.readFileToString(new File("src/test/resources/petstore/swagger.yaml"), StandardCharsets.UTF_8);
+    String changed = spec
+        .replace("      id:\n        type: integer\n        format: int64\n      category:\n        $ref: '#/definitions/Category'\n",
+            "      category:\n        $ref: '#/definitions/Category'\n      id:\n        type: integer\n        format: int64\n")
+        .replace("      - name\n      - photoUrls\n", "      - photoUrls\n      - name\n")
+        .replace("        description: pet status in the store\n", "        description: status of the pet\n        x-origin: inventory\n");
+    assertFalse(changed.equals(spec), "Expect the spec to be changed");
+    File changedSpec = new File(outputDir, "changed/swagger.yaml");
+    FileUtils.writeStringToFile(changedSpec, changed, StandardCharsets.UTF_8);
+
+    generator.mergeSwaggers2Puml(Arrays.asList("src/test/resources/petstore/swagger.yaml", changedSpec.getPath()), outputDir.getAbsolutePath(), true, false);
+
+    String plantUml = FileUtils.readFileToString(new File(outputDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertEquals(1, countOccurrences(plantUml, "Pet {"), "Expect models differing in order and documentation only to be shared");
+  }
+
+  @Test
+  @DisplayName("Petstore test with one include file per class and interface")
+  void test_generatePetStorePlantUml_sharded(@TempDir File outputDir) throws Exception {
+    String specFile = "src/test/resources/petstore/swagger.yaml";
+    PlantUMLGenerator shardingGenerator = new PlantUMLGenerator();
+    shardingGenerator.setShardOutput(true);
+
+    shardingGenerator.transformSwagger2Puml(specFile, outputDir.getAbsolutePath(), false, true, false);
+
+    String plantUml = FileUtils.readFileToString(new File(outputDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertTrue(new File(outputDir, "classes/Pet.iuml").exists(), "Expect a shard per class");
+    assertTrue(new File(outputDir, "interfaces/PetApi.iuml").exists(), "Expect a shard per interface");
+    assertTrue(plantUml.contains("!include classes/Pet.iuml"), "Expect the root PUML to include the shards");
+    assertFalse(plantUml.contains("class  Pet {"), "Expect classes to live in their shard only");
+
+    File wholeDir = new File(outputDir, "whole");
+    wholeDir.mkdirs();
+    generator.transformSwagger2Puml(specFile, wholeDir.getAbsolutePath(), false, true, false);
+    Diagram sharded = new SourceStringReader(plantUml, outputDir).getBlocks().get(0).getDiagram();
+    Diagram whole = new SourceStringReader(FileUtils.readFileToString(new File(wholeDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8)).getBlocks().get(0).getDiagram();
+    assertTrue(sharded instanceof CucaDiagram, "Expect the root PUML to render through its includes");
+    assertEquals(((CucaDiagram) whole).getLeafsvalues().size(), ((CucaDiagram) sharded).getLeafsvalues().size(), "Expect the includes to hold every class and interface");
+  }
+
+  @Test
+  @DisplayName("Sharded output with colliding names and shards left from a previous run")
+  void test_generatePlantUml_shardedCollisions(@TempDir File outputDir) throws Exception {
+    File specFile = new File(outputDir, "spec.yaml");
+    FileUtils.writeStringToFile(specFile, "swagger: '2.0'\ninfo:\n  title: Collisions\n  version: '1'\npaths: {}\ndefinitions:\n"
+        + "  a/b:\n    type: object\n    properties:\n      id:\n        type: string\n"
+        + "  a_b:\n    type: object\n    properties:\n      name:\n        type: string\n", StandardCharsets.UTF_8);
+    File staleShard = new File(outputDir, "classes/Removed.iuml");
+    FileUtils.writeStringToFile(staleShard, "class Removed\n", StandardCharsets.UTF_8);
+    PlantUMLGenerator shardingGenerator = new PlantUMLGenerator();
+    shardingGenerator.setShardOutput(true);
+
+    shardingGenerator.transformSwagger2Puml(specFile.getPath(), outputDir.getAbsolutePath(), true, true, false);
+
+    String plantUml = FileUtils.readFileToString(new File(outputDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertTrue(plantUml.contains("!include classes/a_b.iuml") && plantUml.contains("!include classes/a_b_2.iuml"), "Expect colliding names to get distinct shards");
+    assertTrue(FileUtils.readFileToString(new File(outputDir, "classes/a_b_2.iuml"), StandardCharsets.UTF_8).contains("a_b"), "Expect each shard to hold its own class");
+    assertFalse(staleShard.exists(), "Expect shards of a previous run to be removed");
+  }
+
+  @Test
+  @DisplayName("Petstore test with columnar member store")
+  void test_generatePetStorePlantUml_compactMembers(@TempDir File outputDir) throws Exception {
+    String specFile = "src/test/resources/petstore_with_inheritance/swagger.yaml";
+    File compactDir = new File(outputDir, "compact");
+    compactDir.mkdirs();
+    PlantUMLGenerator compactGenerator = new PlantUMLGenerator();
+    compactGenerator.setCompactMembers(true);
+
+    generator.transformSwagger2Puml(specFile, outputDir.getAbsolutePath(), false, true, false);
+    compactGenerator.transformSwagger2Puml(specFile, compactDir.getAbsolutePath(), false, true, false);
+
+    assertEquals(FileUtils.readFileToString(new File(outputDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8),
+        FileUtils.readFileToString(new File(compactDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8),
+        "Expect the columnar store to render the same PUML");
+  }
+
+  @Test
+  @DisplayName("Petstore test streamed from stdin to stdout")
+  void test_generatePetStorePlantUml_fromStdinToStdout() throws Exception {
+    InputStream stdin = System.in;
+    PrintStream stdout = System.out;
+    ByteArrayOutputStream captured = new ByteArrayOutputStream();
+
+    try (InputStream spec = new FileInputStream("src/test/resources/petstore/swagger.yaml")) {
+      System.setIn(spec);
+      System.setOut(new PrintStream(captured, true, "UTF-8"));
+
+      generator.transformSwagger2Puml("-", "-", false, true, false);
+    } finally {
+      System.setIn(stdin);
+      System.setOut(stdout);
+    }
+
+    String plantUml = new String(captured.toByteArray(), StandardCharsets.UTF_8);
+    assertTrue(plantUml.startsWith("@startuml"), "Expect PlantUML to be written to stdout");
+    assertTrue(plantUml.contains("interface PetApi"), "Expect the whole diagram to be streamed");
+  }
+
+  @Test
+  @DisplayName("Petstore test rendered to several formats")
+  void test_generatePetStorePlantUml_multipleFormats(@TempDir File outputDir) {
+    String specFile = "src/test/resources/petstore/swagger.yaml";
+    PlantUMLGenerator formatsGenerator = new PlantUMLGenerator();
+    formatsGenerator.setFormats(DiagramFormat.parse("svg,png"));
+    // Smetana layout, so that the test does not depend on a local Graphviz
+    formatsGenerator.setRenderBudgetMillis(1);
+
+    formatsGenerator.transformSwagger2Puml(specFile, outputDir.getAbsolutePath(), false, true, true);
+
+    assertTrue(new File(outputDir, "swagger.svg").exists(), "Expect SVG to be rendered");
+    assertTrue(new File(outputDir, "swagger.png").exists(), "Expect PNG to be rendered");
+  }
+
+  @Test
+  @DisplayName("Diff of two petstore specs renders only the changed subgraph")
+  void test_diffPetStorePlantUml(@TempDir File outputDir) throws Exception {
+    generator.diffSwaggers2Puml("src/test/resources/petstore/swagger.yaml",
+        "src/test/resources/petstore_with_inheritance/swagger.yaml", outputDir.getAbsolutePath(), true, false);
+
+    String plantUml = FileUtils.readFileToString(new File(outputDir, "swagger-diff.puml"), StandardCharsets.UTF_8);
+    assertTrue(plantUml.contains(" Cat #Lime {"), "Expect added models to be highlighted");
+    assertTrue(plantUml.contains(" FluffyCat #Lime {"), "Expect added models to be highlighted");
+    assertFalse(plantUml.contains(" Order "), "Expect unrelated unchanged models to be left out");
+  }
+
+  @Test
+  @DisplayName("Diff of two petstore specs differing in a referenced model")
+  void test_diffPetStorePlantUml_changedReference(@TempDir File outputDir) throws Exception {
+    String spec = FileUtils.readFileToString(new File("src/test/resources/petstore/swagger.yaml"), StandardCharsets.UTF_8);
+    File changedSpec = new File(outputDir, "changed.yaml");
+    FileUtils.writeStringToFile(changedSpec, spec.replace("      name:\n        type: string\n    xml:\n      name: Category",
+        "      name:\n        type: string\n      description:\n        type: string\n    xml:\n      name: Category"), StandardCharsets.UTF_8);
+
+    generator.diffSwaggers2Puml("src/test/resources/petstore/swagger.yaml", changedSpec.getPath(), outputDir.getAbsolutePath(), true, false);
+
+    String plantUml = FileUtils.readFileToString(new File(outputDir, "swagger-diff.puml"), StandardCharsets.UTF_8);
+    assertTrue(plantUml.contains(" Category #Gold {"), "Expect the changed model to be highlighted");
+    assertTrue(plantUml.contains(" Pet #Gold {"), "Expect models referencing the changed model to be highlighted");
+    assertFalse(plantUml.contains(" Order "), "Expect unrelated unchanged models to be left out");
+  }
+
+  @Test
+  @DisplayName("Diff of two petstore specs differing in an operation that is not the last of its tag")
+  void test_diffPetStorePlantUml_changedOperation(@TempDir File outputDir) throws Exception {
+    String spec = FileUtils.readFileToString(new File("src/test/resources/petstore/swagger.yaml"), StandardCharsets.UTF_8);
+    File changedSpec = new File(outputDir, "changed.yaml");
+    FileUtils.writeStringToFile(changedSpec, spec.replace("operationId: addPet\n", "operationId: createPet\n")
+        .replace("        description: pet status in the store\n", "        description: status of the pet\n"), StandardCharsets.UTF_8);
+
+    generator.diffSwaggers2Puml("src/test/resources/petstore/swagger.yaml", changedSpec.getPath(), outputDir.getAbsolutePath(), true, false);
+
+    String plantUml = FileUtils.readFileToString(new File(outputDir, "swagger-diff.puml"), StandardCharsets.UTF_8);
+    assertTrue(plantUml.contains("interface PetApi #Gold {"), "Expect the interface of the renamed operation to be highlighted");
+    assertTrue(plantUml.contains("createPet("), "Expect every operation of the changed interface to be drawn");
+    assertTrue(plantUml.contains("uploadFile("), "Expect every operation of the changed interface to be drawn");
+    assertFalse(plantUml.contains(" Pet #Gold {"), "Expect a description only edit not to count as a change");
+    assertFalse(plantUml.contains("StoreApi"), "Expect unrelated unchanged interfaces to be left out");
+  }
+
+  @Test
+  @DisplayName("Petstore test with minified and compressed SVG")
+  void test_generatePetStorePlantUml_minifiedSvgz(@TempDir File outputDir) throws Exception {
+    PlantUMLGenerator minifyingGenerator = new PlantUMLGenerator();
+    minifyingGenerator.setMinifySvg(true);
+    minifyingGenerator.setSvgz(true);
+    minifyingGenerator.setRenderBudgetMillis(1);
+
+    minifyingGenerator.transformSwagger2Puml("src/test/resources/petstore/swagger.yaml", outputDir.getAbsolutePath(), false, true, true);
+
+    assertFalse(new File(outputDir, "swagger.svg").exists(), "Expect SVG to be replaced by SVGZ");
+    String svg;
+    try (InputStream in = new GZIPInputStream(new FileInputStream(new File(outputDir, "swagger.svgz")))) {
+      svg = IOUtils.toString(in, StandardCharsets.UTF_8);
+    }
+    assertTrue(svg.contains("<style type=\"text/css\">"), "Expect repeated styles to be hoisted into CSS classes");
+    assertFalse(svg.contains("<!--"), "Expect comments to be dropped");
+    assertFalse(svg.matches("(?s).*=\"[^\"]*\\d\\.\\d{3,}.*"), "Expect coordinates to be rounded");
+  }
+
+  @Test
+  @DisplayName("Petstore test split into lazily loaded tiles")
+  void test_generatePetStorePlantUml_tiled(@TempDir File outputDir) throws Exception {
+    PlantUMLGenerator tilingGenerator = new PlantUMLGenerator();
+    tilingGenerator.setTileSize(256);
+    tilingGenerator.setRenderBudgetMillis(1);
+
+    tilingGenerator.transformSwagger2Puml("src/test/resources/petstore/swagger.yaml", outputDir.getAbsolutePath(), false, true, true);
+
+    String index = FileUtils.readFileToString(new File(outputDir, "swagger.html"), StandardCharsets.UTF_8);
+    File[] tiles = new File(outputDir, "tiles").listFiles();
+    assertTrue(tiles != null && tiles.length > 1, "Expect the diagram to be split into several tiles");
+    assertEquals(tiles.length, countOccurrences(index, "loading=\"lazy\""), "Expect every tile to be loaded lazily");
+    for (File tile : tiles) {
+      assertTrue(tile.length() < new File(outputDir, "swagger.svg").length(), "Expect tiles to hold only part of the diagram");
+    }
+
+    File bandedDir = new File(outputDir, "banded");
+    bandedDir.mkdirs();
+    SvgTiler bandedTiler = new SvgTiler(256);
+    bandedTiler.setMaxOpenTiles(1);
+    bandedTiler.tile(new File(outputDir, "swagger.svg"), bandedDir, "swagger");
+    for (File tile : tiles) {
+      assertTrue(FileUtils.contentEquals(tile, new File(bandedDir, "tiles/" + tile.getName())), "Expect tiling one row at a time to write the same tiles");
+    }
+    assertEquals(tiles.length, new File(bandedDir, "tiles").list().length, "Expect no other files when tiling one row at a time");
+  }
+
+  @Test
+  @DisplayName("Petstore specs read from a zip archive without extracting")
+  void test_generatePetStorePlantUml_fromArchive(@TempDir File outputDir) throws Exception {
+    File archive = new File(outputDir, "specs.zip");
+    try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+      for (String spec : Arrays.asList("petstore", "petstore_with_inheritance")) {
+        zip.putNextEntry(new ZipEntry("api/" + spec + ".yaml"));
+        zip.write(FileUtils.readFileToByteArray(new File("src/test/resources/" + spec + "/swagger.yaml")));
+        zip.closeEntry();
+      }
+    }
+
+    generator.transformSwagger2Puml(archive.getAbsolutePath() + "!/api/*.yaml", outputDir.getAbsolutePath(), false, true, false);
+
+    assertTrue(new File(outputDir, "api/petstore/" + DEFAULT_PLANT_UML_FILENAME).exists(), "Expect one output directory per spec");
+    String plantUml = FileUtils.readFileToString(new File(outputDir, "api/petstore_with_inheritance/" + DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertTrue(plantUml.contains(" FluffyCat "), "Expect specs to be read from the archive");
+
+    // entries are admitted one at a time like any other spec
+    PlantUMLGenerator budgetGenerator = new PlantUMLGenerator();
+    AdmissionController heapBudget = new AdmissionController(1);
+    budgetGenerator.setAdmissionController(heapBudget);
+    budgetGenerator.transformSwagger2Puml(archive.getAbsolutePath() + "!/api/*.yaml", outputDir.getAbsolutePath(), false, true, false);
+
+    assertEquals(2, heapBudget.getAdmitted(), "Expect every archived spec to be admitted");
+    assertEquals(0, heapBudget.getInFlight(), "Expect every archived spec to be released");
+  }
+
+  @Test
+  @DisplayName("Specs of an archive are charged by their own size, not the archive's")
+  void test_archiveEntriesChargedBySize(@TempDir File outputDir) throws Exception {
+    File archive = new File(outputDir, "specs.zip");
+    byte[] spec = FileUtils.readFileToByteArray(new File("src/test/resources/petstore/swagger.yaml"));
+    byte[] padding = new byte[1024 * 1024];
+    new Random(42).nextBytes(padding);
+    try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+      zip.putNextEntry(new ZipEntry("api/petstore.yaml"));
+      zip.write(spec);
+      zip.closeEntry();
+      zip.putNextEntry(new ZipEntry("padding.bin"));
+      zip.write(padding);
+      zip.closeEntry();
+    }
+
+    String entry = archive.getAbsolutePath() + "!/api/petstore.yaml";
+    assertEquals(spec.length, PlantUMLGenerator.getSpecBytes(entry), "Expect the uncompressed size of the entry");
+    assertEquals(ShardPlanner.getCost("src/test/resources/petstore/swagger.yaml"), ShardPlanner.getCost(entry),
+        "Expect an archived spec to cost as much as the same spec on disk");
+
+    PlantUMLGenerator budgetGenerator = new PlantUMLGenerator();
+    AdmissionController heapBudget = new AdmissionController(Long.MAX_VALUE);
+    budgetGenerator.setAdmissionController(heapBudget);
+    budgetGenerator.transformSwaggers2Puml(Arrays.asList(entry, entry), outputDir.getAbsolutePath(), false, true, false);
+
+    assertEquals(2, heapBudget.getAdmitted(), "Expect every archived spec to be admitted");
+    assertTrue(heapBudget.getPeakInFlightBytes() < AdmissionController.estimateBytes(archive.length()),
+        "Expect the specs in flight to be estimated from their entries");
+  }
+
+  @Test
+  @DisplayName("One diagram per revision of the petstore spec")
+  void test_renderPetStoreHistory(@TempDir File outputDir) throws Exception {
+    generator.renderHistory(Arrays.asList("src/test/resources/petstore/swagger.yaml",
+        "src/test/resources/petstore_with_inheritance/swagger.yaml", "src/test/resources/petstore/swagger.yaml"),
+        null, ".", outputDir.getAbsolutePath(), false, true, false);
+
+    File[] revisions = outputDir.listFiles();
+    assertEquals(3, revisions == null ? 0 : revisions.length, "Expect one output directory per revision");
+    String first = FileUtils.readFileToString(new File(outputDir, "src_test_resources_petstore_swagger/" + DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    String second = FileUtils.readFileToString(new File(outputDir, "src_test_resources_petstore_with_inheritance_swagger/" + DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    String third = FileUtils.readFileToString(new File(outputDir, "src_test_resources_petstore_swagger~2/" + DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertTrue(second.contains(" FluffyCat "), "Expect each revision to be drawn from its own spec");
+    assertEquals(first, third, "Expect a repeated revision to reuse the earlier output");
+    assertThrows(IllegalArgumentException.class, () -> generator.renderHistory(Arrays.asList("", " "), null, ".",
+        outputDir.getAbsolutePath(), false, true, false), "Expect an empty revision list to be rejected");
+  }
+
+  @Test
+  @DisplayName("Revisions of the petstore spec differing only by version rendered with their own version")
+  void test_renderPetStoreHistory_versionsOnly(@TempDir File outputDir) throws Exception {
+    String spec = FileUtils.readFileToString(new File("src/test/resources/petstore/swagger.yaml"), StandardCharsets.UTF_8);
+    File first = new File(outputDir, "v1.yaml");
+    File second = new File(outputDir, "v2.yaml");
+    FileUtils.writeStringToFile(first, spec, StandardCharsets.UTF_8);
+    FileUtils.writeStringToFile(second, spec.replace("version: 1.0.0", "version: 2.0.0"), StandardCharsets.UTF_8);
+    File historyDir = new File(outputDir, "history");
+    historyDir.mkdirs();
+
+    generator.renderHistory(Arrays.asList(first.getPath(), second.getPath()), null, ".", historyDir.getAbsolutePath(), false, true, true);
+
+    File[] revisions = historyDir.listFiles();
+    assertEquals(2, revisions == null ? 0 : revisions.length, "Expect one output directory per revision");
+    for (File revision : revisions) {
+      String version = revision.getName().endsWith("v2") ? "2.0.0" : "1.0.0";
+      assertTrue(FileUtils.readFileToString(new File(revision, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8).contains(version), "Expect the PUML to note its own version");
+      assertTrue(new File(revision, "swagger.svg").isFile(), "Expect each revision to be rendered or to reuse an earlier render");
+    }
+  }
+
+  @Test
+  @DisplayName("Petstore test with map properties, header parameters and a custom handler")
+  void test_generatePetStorePlantUml_withMapsAndCustomHandler(@TempDir File outputDir) throws Exception {
+    PlantUMLGenerator customGenerator = new PlantUMLGenerator();
+    customGenerator.addCodegenCustomizer(codegen -> codegen.registerPropertyHandler(DateTimeProperty.class,
+        (property, name, owner, models) -> {
+          ClassMembers member = new ClassMembers();
+          member.setName(name);
+          member.setDataType("Instant");
+          return member;
+        }));
+
+    customGenerator.transformSwagger2Puml("src/test/resources/petstore_with_maps/swagger.yaml", outputDir.getAbsolutePath(), false, true, false);
+
+    String plantUml = FileUtils.readFileToString(new File(outputDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertTrue(plantUml.contains("petsByName <b>:Map[Pet]</b>"), "Expect map properties to be typed by their values");
+    assertTrue(plantUml.contains("Inventory  *-- \"1..*\"  Pet"), "Expect map values to be related");
+    assertTrue(plantUml.contains("getInventory(String X-Request-Id,String[] status)"), "Expect header parameters");
+    assertTrue(plantUml.contains("birthDate <b>:Instant</b>"), "Expect the registered handler to be used");
+  }
+
+  @Test
+  @DisplayName("Petstore specs written as a batch into one zip archive")
+  void test_generatePetStorePlantUml_toZipSink(@TempDir File outputDir) throws Exception {
+    File archive = new File(outputDir, "diagrams.zip");
+    try (OutputSink sink = new ZipSink(archive)) {
+      generator.transformSwagger2Puml("src/test/resources/petstore/swagger.yaml", sink, false, true, false);
+      assertFalse(archive.exists(), "Expect the archive to appear only once the sink is closed");
+    }
+
+    try (ZipFile zip = new ZipFile(archive)) {
+      assertTrue(zip.getEntry(DEFAULT_PLANT_UML_FILENAME) != null, "Expect the PUML in the archive");
+    }
+    assertEquals(1, outputDir.list().length, "Expect no temp files to be left behind");
+
+    InMemorySink memory = new InMemorySink();
+    generator.transformSwagger2Puml("src/test/resources/petstore_with_inheritance/swagger.yaml", memory, false, true, false);
+    assertTrue(memory.getContent(DEFAULT_PLANT_UML_FILENAME).contains(" FluffyCat "), "Expect the PUML in memory");
+  }
+
+  @Test
+  @DisplayName("Entries failing before their commit leave the previous output in place")
+  void test_outputSink_uncommittedEntryIsDiscarded(@TempDir File outputDir) throws Exception {
+    File puml = new File(outputDir, DEFAULT_PLANT_UML_FILENAME);
+    FileUtils.writeStringToFile(puml, "@startuml\n@enduml\n", StandardCharsets.UTF_8);
+    InMemorySink memory = new InMemorySink();
+
+    for (OutputSink sink : Arrays.asList(new DirectorySink(outputDir), memory)) {
+      assertThrows(IllegalStateException.class, () -> {
+        try (OutputSink.Entry entry = sink.open(DEFAULT_PLANT_UML_FILENAME)) {
+          entry.write("@startuml\nclass Partial".getBytes(StandardCharsets.UTF_8));
+          throw new IllegalStateException("template failed");
+        }
+      });
+    }
+
+    assertEquals("@startuml\n@enduml\n", FileUtils.readFileToString(puml, StandardCharsets.UTF_8), "Expect the PUML to be left as it was");
+    assertEquals(1, outputDir.list().length, "Expect no temp files to be left behind");
+    assertTrue(memory.getEntries().isEmpty(), "Expect no entry in memory");
+  }
+
+  @Test
+  @DisplayName("Wide enums and classes collapsed beyond the member limits")
+  void test_generatePetStorePlantUml_withMemberLimits(@TempDir File outputDir) throws Exception {
+    PlantUMLGenerator limitedGenerator = new PlantUMLGenerator();
+    limitedGenerator.setMaxEnumValues(2);
+    limitedGenerator.setMaxMembers(4);
+    File petstoreDir = new File(outputDir, "petstore");
+    petstoreDir.mkdirs();
+
+    limitedGenerator.transformSwagger2Puml("src/test/resources/petstore_with_maps/swagger.yaml", outputDir.getAbsolutePath(), false, true, false);
+    limitedGenerator.transformSwagger2Puml("src/test/resources/petstore/swagger.yaml", petstoreDir.getAbsolutePath(), false, true, false);
+
+    String plantUml = FileUtils.readFileToString(new File(outputDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertTrue(plantUml.contains("- GBP"), "Expect the first enum values");
+    assertFalse(plantUml.contains("- JPY"), "Expect enum values beyond the limit to be collapsed");
+    assertTrue(plantUml.contains("\u2026 3 more"), "Expect a marker counting the collapsed enum values");
+
+    String petstore = FileUtils.readFileToString(new File(petstoreDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertTrue(petstore.contains("\u2026 4 more"), "Expect the members of User beyond the limit to be collapsed");
+    assertFalse(petstore.contains("userStatus"), "Expect collapsed members to be left out");
+  }
+
+  @Test
+  @DisplayName("Petstore with inheritance drawn by reference instead of flattened")
+  void test_generatePetStorePlantUml_withInheritanceByReference(@TempDir File outputDir) throws Exception {
+    PlantUMLGenerator referenceGenerator = new PlantUMLGenerator();
+    referenceGenerator.setFlattenInheritance(false);
+
+    referenceGenerator.transformSwagger2Puml("src/test/resources/petstore_with_inheritance/swagger.yaml", outputDir.getAbsolutePath(), false, true, false);
+
+    String plantUml = FileUtils.readFileToString(new File(outputDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertTrue(plantUml.contains("FluffyCat  --|>   Cat"), "Expect an extends edge to the parent");
+    assertTrue(plantUml.contains("Cat  --|>   Pet"), "Expect an extends edge to the grandparent from the parent");
+    assertEquals(1, countOccurrences(plantUml, "photoUrls"), "Expect inherited members to be listed only by their declaring class");
+  }
+
+  @Test
+  @DisplayName("Relations simplified before layout")
+  void test_generatePetStorePlantUml_withSimplifiedRelations(@TempDir File outputDir) throws Exception {
+    PlantUMLGenerator simplifyingGenerator = new PlantUMLGenerator();
+    simplifyingGenerator.setFlattenInheritance(false);
+    simplifyingGenerator.setSimplifyRelations(true);
+
+    simplifyingGenerator.transformSwagger2Puml("src/test/resources/petstore_with_shared_errors/swagger.yaml", outputDir.getAbsolutePath(), false, true, false);
+
+    String plantUml = FileUtils.readFileToString(new File(outputDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertTrue(plantUml.contains("Dog  --|>   Pet"), "Expect the direct parent to be kept");
+    assertFalse(plantUml.contains("Dog  --|>   Animal"), "Expect the edge implied by the chain to be removed");
+    assertFalse(plantUml.contains("Dog  *--"), "Expect the edge shared with the parent to be removed");
+    assertTrue(plantUml.contains("circle Errors"), "Expect error edges to be bundled through one node");
+    assertEquals(2, countOccurrences(plantUml, "Errors -->"), "Expect one edge per error class");
+    assertFalse(plantUml.contains("PetsApi -->    Error "), "Expect no direct error edges");
+  }
+
+  @Test
+  @DisplayName("Several petstore specs transformed in a pipeline")
+  void test_generatePetStorePlantUml_inPipeline(@TempDir File outputDir) throws Exception {
+    PlantUMLGenerator pipelineGenerator = new PlantUMLGenerator();
+    pipelineGenerator.setCodegenThreads(2);
+    pipelineGenerator.setPipelineQueueCapacity(1);
+
+    BatchPipeline pipeline = pipelineGenerator.transformSwaggers2Puml(Arrays.asList("src/test/resources/petstore/swagger.yaml",
+        "src/test/resources/petstore_with_inheritance/swagger.yaml", "src/test/resources/petstore_with_maps/swagger.yaml"),
+        outputDir.getAbsolutePath(), false, true, false);
+
+    String plantUml = FileUtils.readFileToString(new File(outputDir, "petstore_with_inheritance_swagger/" + DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertTrue(plantUml.contains(" FluffyCat "), "Expect each spec in a directory named after it");
+    assertTrue(new File(outputDir, "petstore_swagger/" + DEFAULT_PLANT_UML_FILENAME).exists(), "Expect every spec to be transformed");
+    assertTrue(new File(outputDir, "petstore_with_maps_swagger/" + DEFAULT_PLANT_UML_FILENAME).exists(), "Expect every spec to be transformed");
+    assertEquals(Arrays.asList("parse", "codegen", "puml", "render"),
+        pipeline.getMetrics().stream().map(BatchPipeline.StageMetrics::getStage).collect(Collectors.toList()), "Expect metrics per stage");
+    assertEquals(3, pipeline.getMetrics().get(2).getItems(), "Expect every spec to pass the PUML stage");
+  }
+
+  @Test
+  @DisplayName("A pipeline ends with a failure when a stage throws an error")
+  void test_generatePetStorePlantUml_inPipelineWithError(@TempDir File outputDir) throws Exception {
+    PlantUMLGenerator overflowingGenerator = new PlantUMLGenerator() {
+      @Override
+      void generateUmlDiagrams(String plantUmlFilePath, File targetLocation) throws Exception {
+        if (targetLocation.getName().startsWith("petstore_with_maps")) {
+          throw new StackOverflowError("layout");
+        }
+      }
+    };
+    BatchPipeline pipeline = new BatchPipeline(overflowingGenerator, 1, 1, 1, 1);
+    List<String> specFiles = Arrays.asList("src/test/resources/petstore/swagger.yaml", "src/test/resources/petstore_with_maps/swagger.yaml");
+
+    assertTimeoutPreemptively(Duration.ofSeconds(60),
+        () -> assertThrows(RuntimeException.class, () -> pipeline.run(specFiles, outputDir, false, true, true)),
+        "Expect the run to end instead of waiting for the failed spec");
+    assertEquals(Collections.singleton("src/test/resources/petstore_with_maps/swagger.yaml"), pipeline.getFailures().keySet(),
+        "Expect the error to be recorded for its spec");
+    assertTrue(pipeline.getFailures().values().iterator().next().getCause() instanceof StackOverflowError, "Expect the error as the cause");
+  }
+
+  @Test
+  @DisplayName("Generate PlantUML for specs sharing externally referenced documents")
+  void test_generatePetStorePlantUml_withSharedReferenceCache(@TempDir File outputDir) throws Exception {
+    File specsDir = new File(outputDir, "specs");
+    FileUtils.copyDirectory(new File("src/test/resources/petstore_with_external_refs"), specsDir);
+
+    ReferencedDocumentCache cache = new ReferencedDocumentCache();
+    PlantUMLGenerator cachingGenerator = new PlantUMLGenerator();
+    cachingGenerator.setReferenceCache(cache);
+
+    File petsDir = new File(outputDir, "pets");
+    File ownersDir = new File(outputDir, "owners");
+    petsDir.mkdirs();
+    ownersDir.mkdirs();
+    cachingGenerator.transformSwagger2Puml(new File(specsDir, "pets/swagger.yaml").getAbsolutePath(), petsDir.getAbsolutePath(), false, true, false);
+    cachingGenerator.transformSwagger2Puml(new File(specsDir, "owners/swagger.yaml").getAbsolutePath(), ownersDir.getAbsolutePath(), false, true, false);
+
+    String plantUml = FileUtils.readFileToString(new File(ownersDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertTrue(plantUml.contains("class  Address {"), "Expect referenced definitions to be drawn");
+    assertTrue(plantUml.contains("Error  *-- \"0..*\"  ErrorDetail"), "Expect local references of a referenced document to be resolved");
+    assertEquals(2, cache.getMisses(), "Expect each shared document to be parsed once");
+    assertTrue(cache.getHits() >= 3, "Expect the second spec to reuse the parsed documents");
+
+    FileUtils.writeStringToFile(new File(specsDir, "common/types.yaml"), FileUtils.readFileToString(new File(specsDir, "common/types.yaml"),
+        StandardCharsets.UTF_8).replace("      city:", "      zip:\n        type: string\n      city:"), StandardCharsets.UTF_8);
+    cachingGenerator.transformSwagger2Puml(new File(specsDir, "owners/swagger.yaml").getAbsolutePath(), ownersDir.getAbsolutePath(), false, true, false);
+
+    plantUml = FileUtils.readFileToString(new File(ownersDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertTrue(plantUml.contains(" - zip <b>:String</b>"), "Expect a changed document to be parsed again");
+    assertEquals(3, cache.getMisses(), "Expect only the changed document to be parsed again");
+
+    ReferencedDocumentCache boundedCache = new ReferencedDocumentCache(1);
+    cachingGenerator.setReferenceCache(boundedCache);
+    cachingGenerator.transformSwagger2Puml(new File(specsDir, "owners/swagger.yaml").getAbsolutePath(), ownersDir.getAbsolutePath(), false, true, false);
+
+    assertEquals(1, boundedCache.getSize(), "Expect no more documents than the bound to be kept");
+    assertTrue(boundedCache.getEvictions() > 0, "Expect the least recently used document to be dropped");
+    assertNull(new PlantUMLGenerator().getReferenceCache(), "Expect the parser to resolve references unless a cache is set");
+  }
+
+  @Test
+  @DisplayName("Generate PlantUML asynchronously on a caller supplied executor")
+  void test_generatePetStorePlantUml_async() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    try {
+      AsyncPlantUMLGenerator asyncGenerator = new AsyncPlantUMLGenerator(new PlantUMLGenerator(), executor);
+      AsyncPlantUMLGenerator.DiagramResult result = asyncGenerator
+          .transformSwagger2Puml("src/test/resources/petstore/swagger.yaml", false, true, false).get(60, TimeUnit.SECONDS);
+
+      assertTrue(result.getPuml().contains("class  Pet {"), "Expect the PUML in the result");
+      assertNull(result.getSvg(), "Expect no SVG when not rendered");
+
+      CountDownLatch blocked = new CountDownLatch(1);
+      executor.execute(() -> {
+        try {
+          blocked.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+
+      InMemorySink sink = new InMemorySink();
+      CompletableFuture<Void> cancelled = asyncGenerator.transformSwagger2Puml("src/test/resources/petstore/swagger.yaml", sink, false, true, false);
+      assertTrue(cancelled.cancel(true), "Expect a queued transformation to be cancellable");
+      blocked.countDown();
+
+      executor.submit(() -> null).get(60, TimeUnit.SECONDS);
+      assertTrue(sink.getEntries().isEmpty(), "Expect a cancelled transformation not to run");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  @DisplayName("Cancelling an asynchronous transformation while it renders interrupts it and aborts the sink")
+  void test_generatePetStorePlantUml_asyncCancelWhileRendering() throws Exception {
+    CountDownLatch rendering = new CountDownLatch(1);
+    AtomicBoolean interrupted = new AtomicBoolean();
+    PlantUMLGenerator blockingGenerator = new PlantUMLGenerator() {
+      @Override
+      void generateUmlDiagrams(String plantUmlFilePath, File targetLocation) throws Exception {
+        rendering.countDown();
+        try {
+          new CountDownLatch(1).await(60, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          interrupted.set(true);
+          throw e;
+        }
+      }
+    };
+
+    CountDownLatch aborted = new CountDownLatch(1);
+    InMemorySink sink = new InMemorySink() {
+      @Override
+      public void abort() {
+        super.abort();
+        aborted.countDown();
+      }
+    };
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    try {
+      AsyncPlantUMLGenerator asyncGenerator = new AsyncPlantUMLGenerator(blockingGenerator, executor);
+      CompletableFuture<Void> cancelled = asyncGenerator.transformSwagger2Puml("src/test/resources/petstore/swagger.yaml", sink, false, true, true);
+
+      assertTrue(rendering.await(60, TimeUnit.SECONDS), "Expect the transformation to reach the render");
+      assertTrue(cancelled.cancel(true), "Expect a running transformation to be cancellable");
+      assertTrue(aborted.await(60, TimeUnit.SECONDS), "Expect the sink to be aborted");
+      assertTrue(interrupted.get(), "Expect the render to be interrupted");
+      assertTrue(sink.getEntries().isEmpty(), "Expect nothing of the cancelled transformation in the sink");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  @DisplayName("Generate PlantUML with a graph metrics sidecar")
+  void test_generatePetStorePlantUml_withMetrics(@TempDir File outputDir) throws Exception {
+    PlantUMLGenerator metricsGenerator = new PlantUMLGenerator();
+    metricsGenerator.setWriteMetrics(true);
+    metricsGenerator.setFlattenInheritance(false);
+    metricsGenerator.transformSwagger2Puml("src/test/resources/petstore_with_inheritance/swagger.yaml", outputDir.getAbsolutePath(), false, true, false);
+
+    JsonNode metrics = Json.mapper().readTree(new File(outputDir, PlantUMLCodegen.METRICS_FILE));
+    assertEquals(metrics.get("classes").asInt() + metrics.get("enums").asInt() + metrics.get("interfaces").asInt(), metrics.get("nodes").asInt(),
+        "Expect every class and interface to be a node");
+    assertEquals(4, metrics.get("interfaces").asInt(), "Expect operations of an interface to count as one node");
+    assertEquals(2, metrics.get("maxInheritanceDepth").asInt(), "Expect FluffyCat extends Cat extends Pet");
+    assertEquals(2, metrics.get("inheritanceEdges").asInt(), "Expect allOf parents drawn as edges to be counted");
+    assertTrue(metrics.get("largestComponent").asInt() <= metrics.get("nodes").asInt(), "Expect the largest component within the nodes");
+    assertTrue(metrics.get("components").asInt() >= 1, "Expect the connected components to be counted");
+    assertEquals("Swagger Petstore", metrics.get("title").asText(), "Expect the title of the spec");
+  }
+
+  @Test
+  @DisplayName("Specs admitted while their estimated heap fits the budget")
+  void test_generatePetStorePlantUml_withHeapBudget(@TempDir File outputDir) throws Exception {
+    AdmissionController controller = new AdmissionController(100);
+    AdmissionController.Permit first = controller.acquire(60);
+    CompletableFuture<AdmissionController.Permit> second = CompletableFuture.supplyAsync(() -> {
+      try {
+        return controller.acquire(60);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    });
+
+    Thread.sleep(100);
+    assertFalse(second.isDone(), "Expect a spec not fitting the budget to wait");
+    first.close();
+    second.get(10, TimeUnit.SECONDS).close();
+    assertEquals(1, controller.getWaited(), "Expect the queued spec to be reported");
+    assertEquals(0, controller.getInFlightBytes(), "Expect closed permits to give the heap back");
+
+    // one byte budget: each spec runs alone
+    PlantUMLGenerator budgetGenerator = new PlantUMLGenerator();
+    AdmissionController heapBudget = new AdmissionController(1);
+    budgetGenerator.setAdmissionController(heapBudget);
+    budgetGenerator.transformSwaggers2Puml(Arrays.asList("src/test/resources/petstore/swagger.yaml",
+        "src/test/resources/petstore_with_inheritance/swagger.yaml", "src/test/resources/petstore_with_maps/swagger.yaml"),
+        outputDir.getAbsolutePath(), false, true, false);
+
+    assertTrue(new File(outputDir, "petstore_with_maps_swagger/" + DEFAULT_PLANT_UML_FILENAME).exists(), "Expect every spec to be transformed");
+    assertEquals(3, heapBudget.getAdmitted(), "Expect every spec to be admitted");
+    assertEquals(0, heapBudget.getInFlight(), "Expect every spec to be released");
+    assertTrue(heapBudget.getPeakInFlightBytes() < 2 * AdmissionController.estimateBytes(0, 0), "Expect one spec in flight at a time");
+  }
+
+  @Test
+  @DisplayName("Petstore test with the fast layout preset")
+  void test_generatePetStorePlantUml_withLayoutPreset(@TempDir File outputDir) throws Exception {
+    PlantUMLGenerator presetGenerator = new PlantUMLGenerator();
+    presetGenerator.setLayoutPreset(LayoutPreset.parse("Fast"));
+
+    presetGenerator.transformSwagger2Puml("src/test/resources/petstore/swagger.yaml", outputDir.getAbsolutePath(), false, true, false);
+
+    String plantUml = FileUtils.readFileToString(new File(outputDir, DEFAULT_PLANT_UML_FILENAME), StandardCharsets.UTF_8);
+    assertTrue(plantUml.contains("skinparam linetype polyline"), "Expect polyline edges");
+    assertTrue(plantUml.contains("skinparam nodesep 15"), "Expect tighter node spacing");
+    assertTrue(plantUml.contains("skinparam ranksep 20"), "Expect tighter rank spacing");
+    assertEquals(1, countOccurrences(plantUml, "interface PetApi "), "Expect a single interface per tag");
+    assertFalse(plantUml.contains("hide members"), "Expect members shown on a small diagram");
+    assertThrows(IllegalArgumentException.class, () -> LayoutPreset.parse("fastest"));
+  }
+
+  @Test
+  @DisplayName("Petstore specs transformed in shards and merged into one index")
+  void test_transformPetStoreShards(@TempDir File outputDir) throws Exception {
+    List<String> specFiles = Arrays.asList("src/test/resources/petstore/swagger.yaml",
+        "src/test/resources/petstore_with_inheritance/swagger.yaml", "src/test/resources/petstore_with_maps/swagger.yaml");
+    List<String> reversed = new ArrayList<>(specFiles);
+    Collections.reverse(reversed);
+    ShardPlanner planner = new ShardPlanner(2);
+    assertEquals(planner.select(specFiles, 1), planner.select(reversed, 1).stream().sorted(Comparator.comparing(specFiles::indexOf))
+        .collect(Collectors.toList()), "Expect the assignment not to depend on the order of the specs");
+
+    List<File> shardOutputs = new ArrayList<>();
+    for (int shard = 1; shard <= 2; shard++) {
+      File shardOutput = new File(outputDir, "shard" + shard);
+      shardOutput.mkdirs();
+      shardOutputs.add(shardOutput);
+      assertEquals(planner.select(specFiles, shard).size(),
+          generator.transformShard(specFiles, shard, 2, shardOutput.getAbsolutePath(), false, true, false).getEntries().size(),
+          "Expect the shard to transform the specs assigned to it");
+    }
+
+    File merged = new File(outputDir, "merged");
+    ShardSummary index = new ShardMerger().merge(shardOutputs, merged);
+    assertEquals(specFiles, index.getEntries().stream().map(ShardEntry::getSpec).collect(Collectors.toList()), "Expect every spec once");
+    assertTrue(new File(merged, "petstore_with_maps_swagger/" + DEFAULT_PLANT_UML_FILENAME).exists(), "Expect the outputs of all shards");
+    assertTrue(FileUtils.readFileToString(new File(merged, ShardMerger.HTML_INDEX_FILE), StandardCharsets.UTF_8)
+        .contains("petstore_with_inheritance_swagger/swagger.puml"), "Expect the index to link the diagrams");
+    assertThrows(IOException.class, () -> new ShardMerger().merge(shardOutputs.subList(0, 1), new File(outputDir, "partial")),
+        "Expect a missing shard to fail the merge");
+    assertThrows(IOException.class, () -> new ShardMerger().merge(shardOutputs, merged),
+        "Expect a target holding leftovers to fail the merge");
+
+    List<File> duplicateOutputs = new ArrayList<>();
+    for (int shard = 1; shard <= 2; shard++) {
+      File duplicateOutput = new File(outputDir, "duplicate" + shard);
+      duplicateOutput.mkdirs();
+      duplicateOutputs.add(duplicateOutput);
+      ShardSummary summary = new ShardSummary(shard, 2);
+      summary.setSpecs(specFiles);
+      summary.setSpecsDigest(ShardPlanner.getDigest(specFiles));
+      summary.getEntries().add(new ShardEntry(specFiles.get(0), "petstore_swagger", shard, 1));
+      Json.pretty().writeValue(new File(duplicateOutput, ShardSummary.getFileName(shard, 2)), summary);
+    }
+    assertThrows(IOException.class, () -> new ShardMerger().merge(duplicateOutputs, new File(outputDir, "duplicate")),
+        "Expect a spec listed by two shards to fail the merge");
+
+    // a runner that assigned a spec differently, e.g. seeing another size
+    File summaryFile = new File(shardOutputs.get(0), ShardSummary.getFileName(1, 2));
+    ShardSummary summary = Json.mapper().readValue(summaryFile, ShardSummary.class);
+    summary.getEntries().remove(0);
+    Json.pretty().writeValue(summaryFile, summary);
+    IOException untransformed = assertThrows(IOException.class, () -> new ShardMerger().merge(shardOutputs, new File(outputDir, "untransformed")),
+        "Expect a spec transformed by no shard to fail the merge");
+    assertTrue(untransformed.getMessage().contains("transformed by no shard"), "Expect the spec left out to be reported");
+  }
+
+  @Test
+  @DisplayName("Shard costs are the same for CRLF and LF checkouts")
+  void test_shardCostIgnoresLineEndings(@TempDir File outputDir) throws Exception {
+    String spec = FileUtils.readFileToString(new File("src/test/resources/petstore/swagger.yaml"), StandardCharsets.UTF_8).replace("\r\n", "\n");
+    File lf = new File(outputDir, "lf/swagger.yaml");
+    File crlf = new File(outputDir, "crlf/swagger.yaml");
+    FileUtils.writeStringToFile(lf, spec, StandardCharsets.UTF_8);
+    FileUtils.writeStringToFile(crlf, spec.replace("\n", "\r\n"), StandardCharsets.UTF_8);
+
+    assertTrue(crlf.length() > lf.length(), "Expect the CRLF checkout to be larger on disk");
+    assertEquals(ShardPlanner.getCost(lf.getPath()), ShardPlanner.getCost(crlf.getPath()), "Expect line endings not to change the cost");
+  }
+
+  private static int countOccurrences(String text, String token) {
+    int count = 0;
+    for (int index = text.indexOf(token); index >= 0; index = text.indexOf(token, index + token.length())) {
+      count++;
+    }
+    return count;
+  }
+}
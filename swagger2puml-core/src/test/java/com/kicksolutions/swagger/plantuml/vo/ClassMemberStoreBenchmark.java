@@ -0,0 +1,92 @@
+package com.kicksolutions.swagger.plantuml.vo;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Compares the retained heap of one {@link ClassMembers} object per property
+ * with the same members held by a {@link ClassMemberStore}.
+ *
+ * Run with: java -cp target/classes:target/test-classes
+ * com.kicksolutions.swagger.plantuml.vo.ClassMemberStoreBenchmark [members]
+ */
+public class ClassMemberStoreBenchmark {
+
+  private static final int MEMBERS_PER_CLASS = 100;
+  private static final String[] DATA_TYPES = {"String", "Int64", "Int32", "Boolean", "Date-time", "Address[]"};
+
+  public static void main(String[] args) {
+    int members = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+    long baseline = usedHeap();
+    List<List<ClassMembers>> objectModel = buildObjectModel(members);
+    long objectBytes = usedHeap() - baseline;
+    System.out.println(objectModel.size() + " classes");
+    objectModel = null;
+
+    baseline = usedHeap();
+    ClassMemberStore store = new ClassMemberStore();
+    List<List<ClassMembers>> storeViews = new ArrayList<>();
+    for (List<ClassMembers> classMembers : buildObjectModelInBatches(members)) {
+      storeViews.add(store.append(classMembers));
+    }
+    long storeBytes = usedHeap() - baseline;
+    System.out.println(storeViews.size() + " classes, " + store.distinctStrings() + " distinct strings");
+
+    System.out.printf("%d members: objects %,d bytes (%.1f/member), columnar %,d bytes (%.1f/member), saving %.0f%%%n",
+        members, objectBytes, (double) objectBytes / members, storeBytes, (double) storeBytes / members,
+        100.0 * (objectBytes - storeBytes) / objectBytes);
+  }
+
+  private static List<List<ClassMembers>> buildObjectModel(int members) {
+    List<List<ClassMembers>> classes = new ArrayList<>();
+    for (int i = 0; i < members; i += MEMBERS_PER_CLASS) {
+      classes.add(buildClass(i, Math.min(MEMBERS_PER_CLASS, members - i)));
+    }
+    return classes;
+  }
+
+  /**
+   * Mirrors codegen in compact mode, where each class list is only alive until
+   * it has been appended to the store.
+   */
+  private static Iterable<List<ClassMembers>> buildObjectModelInBatches(int members) {
+    return () -> new Iterator<List<ClassMembers>>() {
+      private int next = 0;
+
+      @Override
+      public boolean hasNext() {
+        return next < members;
+      }
+
+      @Override
+      public List<ClassMembers> next() {
+        List<ClassMembers> classMembers = buildClass(next, Math.min(MEMBERS_PER_CLASS, members - next));
+        next += MEMBERS_PER_CLASS;
+        return classMembers;
+      }
+    };
+  }
+
+  private static List<ClassMembers> buildClass(int first, int count) {
+    List<ClassMembers> classMembers = new ArrayList<>();
+    for (int i = first; i < first + count; i++) {
+      // new String(...) as the parser hands out distinct instances per spec node
+      String name = new String("property" + (i % 500));
+      String dataType = new String(DATA_TYPES[i % DATA_TYPES.length]);
+      String className = i % 7 == 0 ? new String("Address") : null;
+      String cardinality = className != null ? new String("0..*") : null;
+      classMembers.add(new ClassMembers(dataType, name, className, cardinality));
+    }
+    return classMembers;
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,305 @@
+package com.kicksolutions.swagger.maven;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Remembers, per spec, the options it was transformed with, a digest of the
+ * spec and of every local file it references through $ref and a digest of
+ * every file written. A spec is only transformed again when one of them
+ * changed or an output went missing. Files are hashed outside of the lock, so
+ * specs of a parallel build are checked concurrently.
+ *
+ * @author MSANTOSH
+ *
+ */
+public class StaleCheckManifest {
+
+	private static final Pattern REF = Pattern
+			.compile("[\"']?\\$ref[\"']?\\s*:\\s*[\"']?([^\"'#\\s,}]*)");
+
+	private static final String OPTIONS = "|options";
+	private static final String INPUT = "|input|";
+	private static final String OUTPUT = "|output|";
+
+	private final File manifestFile;
+	private final Properties entries = new Properties();
+
+	/**
+	 *
+	 * @param manifestFile
+	 *            read when it exists
+	 * @throws IOException
+	 */
+	public StaleCheckManifest(File manifestFile) throws IOException {
+		this.manifestFile = manifestFile;
+
+		if (manifestFile.isFile()) {
+			try (InputStream in = new FileInputStream(manifestFile)) {
+				entries.load(in);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param specFile
+	 * @param options
+	 * @param outputDirectory
+	 * @return whether the spec was transformed with the same options and
+	 *         neither it, a file it references nor an output changed since
+	 * @throws IOException
+	 */
+	public boolean isUpToDate(String specFile, String options, File outputDirectory) throws IOException {
+		Map<String, String> recorded = getEntries(specFile);
+
+		if (!options.equals(recorded.get(OPTIONS))) {
+			return false;
+		}
+
+		List<File> inputs = getInputs(specFile);
+		int recordedInputs = 0;
+
+		for (String key : recorded.keySet()) {
+			if (key.startsWith(INPUT)) {
+				recordedInputs++;
+			}
+		}
+
+		if (recordedInputs != inputs.size()) {
+			return false;
+		}
+
+		for (File input : inputs) {
+			if (!digest(input).equals(recorded.get(INPUT + input.getPath()))) {
+				return false;
+			}
+		}
+
+		boolean hasOutputs = false;
+
+		for (Map.Entry<String, String> entry : recorded.entrySet()) {
+			if (entry.getKey().startsWith(OUTPUT)) {
+				File output = new File(outputDirectory, entry.getKey().substring(OUTPUT.length()));
+				hasOutputs = true;
+
+				if (!output.isFile() || !digest(output).equals(entry.getValue())) {
+					return false;
+				}
+			}
+		}
+
+		return hasOutputs;
+	}
+
+	/**
+	 * Replaces what is remembered of the spec with its current inputs and the
+	 * files now in its output directory.
+	 *
+	 * @param specFile
+	 * @param options
+	 * @param outputDirectory
+	 * @throws IOException
+	 */
+	public void record(String specFile, String options, File outputDirectory) throws IOException {
+		Map<String, String> recorded = new HashMap<String, String>();
+		recorded.put(OPTIONS, options);
+
+		for (File input : getInputs(specFile)) {
+			recorded.put(INPUT + input.getPath(), digest(input));
+		}
+
+		Deque<File> pending = new ArrayDeque<File>();
+		pending.add(outputDirectory);
+
+		while (!pending.isEmpty()) {
+			File[] files = pending.poll().listFiles();
+
+			if (files == null) {
+				continue;
+			}
+
+			for (File file : files) {
+				if (file.getAbsoluteFile().equals(manifestFile.getAbsoluteFile())) {
+					continue;
+				}
+
+				if (file.isDirectory()) {
+					pending.add(file);
+				} else {
+					String relativePath = outputDirectory.toURI().relativize(file.toURI()).getPath();
+					recorded.put(OUTPUT + relativePath, digest(file));
+				}
+			}
+		}
+
+		synchronized (this) {
+			forget(specFile);
+
+			for (Map.Entry<String, String> entry : recorded.entrySet()) {
+				entries.setProperty(specFile + entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param specFile
+	 * @return what is remembered of the spec, keyed without the spec
+	 */
+	private synchronized Map<String, String> getEntries(String specFile) {
+		Map<String, String> recorded = new HashMap<String, String>();
+
+		for (String key : entries.stringPropertyNames()) {
+			if (key.startsWith(specFile + "|")) {
+				recorded.put(key.substring(specFile.length()), entries.getProperty(key));
+			}
+		}
+
+		return recorded;
+	}
+
+	/**
+	 *
+	 * @param specFile
+	 */
+	public synchronized void forget(String specFile) {
+		for (String key : entries.stringPropertyNames()) {
+			if (key.startsWith(specFile + "|")) {
+				entries.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Writes the manifest through a temp file, so an interrupted build leaves
+	 * the previous one in place.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void save() throws IOException {
+		File directory = manifestFile.getAbsoluteFile().getParentFile();
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create " + directory);
+		}
+
+		Path temp = Files.createTempFile(directory.toPath(), manifestFile.getName(), ".tmp");
+
+		try {
+			try (OutputStream out = new FileOutputStream(temp.toFile())) {
+				entries.store(out, "swagger2puml stale-check manifest");
+			}
+
+			try {
+				Files.move(temp, manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * The spec itself, or the archive it is read from, followed by every local
+	 * file reachable through $ref. Remote references are not followed.
+	 *
+	 * @param specFile
+	 * @return
+	 * @throws IOException
+	 */
+	static List<File> getInputs(String specFile) throws IOException {
+		Set<File> inputs = new LinkedHashSet<File>();
+		Deque<File> pending = new ArrayDeque<File>();
+		boolean archiveEntry = specFile.contains("!/");
+
+		File spec = new File(specFile.replaceFirst("^jar:file:", "").replaceFirst("!/.*$", "")).getCanonicalFile();
+		inputs.add(spec);
+
+		if (!archiveEntry) {
+			pending.add(spec);
+		}
+
+		while (!pending.isEmpty()) {
+			File file = pending.poll();
+
+			if (!file.isFile()) {
+				continue;
+			}
+
+			Matcher matcher = REF.matcher(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+
+			while (matcher.find()) {
+				String reference = matcher.group(1);
+
+				if (reference.isEmpty() || reference.contains("://")) {
+					continue;
+				}
+
+				File referenced = new File(file.getParentFile(), reference).getCanonicalFile();
+
+				if (inputs.add(referenced)) {
+					pending.add(referenced);
+				}
+			}
+		}
+
+		return new ArrayList<File>(inputs);
+	}
+
+	/**
+	 *
+	 * @param file
+	 * @return SHA-256 of the file, "missing" when it does not exist
+	 * @throws IOException
+	 */
+	static String digest(File file) throws IOException {
+		if (!file.isFile()) {
+			return "missing";
+		}
+
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+			try (InputStream in = new FileInputStream(file)) {
+				byte[] buffer = new byte[65536];
+				for (int read; (read = in.read(buffer)) != -1;) {
+					digest.update(buffer, 0, read);
+				}
+			}
+
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest.digest()) {
+				hex.append(String.format("%02x", b));
+			}
+
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+}
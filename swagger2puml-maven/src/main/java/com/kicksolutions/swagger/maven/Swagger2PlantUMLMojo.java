@@ -0,0 +1,308 @@
+package com.kicksolutions.swagger.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import com.kicksolutions.swagger.plantuml.AdmissionController;
+import com.kicksolutions.swagger.plantuml.BatchPipeline;
+import com.kicksolutions.swagger.plantuml.DiagramFormat;
+import com.kicksolutions.swagger.plantuml.LayoutPreset;
+import com.kicksolutions.swagger.plantuml.PlantUMLGenerator;
+
+/**
+ * Generates swagger.puml and the diagrams of each configured spec, with the
+ * options of the command line tool. Specs whose inputs, options and outputs
+ * did not change since the last build are skipped.
+ *
+ * @author MSANTOSH
+ *
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.GENERATE_RESOURCES, threadSafe = true)
+public class Swagger2PlantUMLMojo extends AbstractMojo {
+
+	@Parameter(defaultValue = "${basedir}", readonly = true)
+	private File basedir;
+
+	/**
+	 * Swagger Definitions (yaml or json), relative to the project, or
+	 * &lt;archive&gt;!/&lt;entry&gt; to read one from a zip or jar. Several specs
+	 * are each written to a directory of the output directory named after the
+	 * spec.
+	 */
+	@Parameter(property = "swagger2puml.specs", required = true)
+	private List<String> specs;
+
+	@Parameter(property = "swagger2puml.outputDirectory", defaultValue = "${project.build.directory}/swagger2puml")
+	private File outputDirectory;
+
+	/**
+	 * Remembers inputs and outputs of each spec, to skip unchanged specs.
+	 */
+	@Parameter(property = "swagger2puml.manifestFile", defaultValue = "${project.build.directory}/swagger2puml.manifest")
+	private File manifestFile;
+
+	/**
+	 * Specs transformed at the same time, defaults to the number of
+	 * processors.
+	 */
+	@Parameter(property = "swagger2puml.parallelism", defaultValue = "0")
+	private int parallelism;
+
+	/**
+	 * MB of heap the specs transformed at the same time may take together,
+	 * by estimate; further specs wait. 0 only limits by parallelism.
+	 */
+	@Parameter(property = "swagger2puml.heapBudget", defaultValue = "0")
+	private long heapBudget;
+
+	/**
+	 * Transforms every spec, even when up to date.
+	 */
+	@Parameter(property = "swagger2puml.force", defaultValue = "false")
+	private boolean force;
+
+	@Parameter(property = "swagger2puml.skip", defaultValue = "false")
+	private boolean skip;
+
+	@Parameter(property = "swagger2puml.generateDefinitionModelOnly", defaultValue = "false")
+	private boolean generateDefinitionModelOnly;
+
+	@Parameter(property = "swagger2puml.includeCardinality", defaultValue = "true")
+	private boolean includeCardinality;
+
+	@Parameter(property = "swagger2puml.generateSvg", defaultValue = "true")
+	private boolean generateSvg;
+
+	@Parameter(property = "swagger2puml.groupOperationsByTag", defaultValue = "false")
+	private boolean groupOperationsByTag;
+
+	@Parameter(property = "swagger2puml.shardOutput", defaultValue = "false")
+	private boolean shardOutput;
+
+	@Parameter(property = "swagger2puml.compactMembers", defaultValue = "false")
+	private boolean compactMembers;
+
+	@Parameter(property = "swagger2puml.maxEnumValues", defaultValue = "0")
+	private int maxEnumValues;
+
+	@Parameter(property = "swagger2puml.maxMembers", defaultValue = "0")
+	private int maxMembers;
+
+	@Parameter(property = "swagger2puml.flattenInheritance", defaultValue = "true")
+	private boolean flattenInheritance;
+
+	@Parameter(property = "swagger2puml.simplifyRelations", defaultValue = "false")
+	private boolean simplifyRelations;
+
+	@Parameter(property = "swagger2puml.metrics", defaultValue = "false")
+	private boolean metrics;
+
+	/**
+	 * quality, balanced or fast.
+	 */
+	@Parameter(property = "swagger2puml.layoutPreset", defaultValue = "quality")
+	private String layoutPreset;
+
+	/**
+	 * Comma separated list of svg, png, eps, txt, utxt.
+	 */
+	@Parameter(property = "swagger2puml.formats", defaultValue = "svg")
+	private String formats;
+
+	@Parameter(property = "swagger2puml.profile", defaultValue = "false")
+	private boolean profile;
+
+	@Parameter(property = "swagger2puml.minifySvg", defaultValue = "false")
+	private boolean minifySvg;
+
+	@Parameter(property = "swagger2puml.svgPrecision", defaultValue = "2")
+	private int svgPrecision;
+
+	@Parameter(property = "swagger2puml.svgz", defaultValue = "false")
+	private boolean svgz;
+
+	@Parameter(property = "swagger2puml.tileSize", defaultValue = "0")
+	private int tileSize;
+
+	@Parameter(property = "swagger2puml.renderBudget", defaultValue = "0")
+	private long renderBudget;
+
+	@Parameter(property = "swagger2puml.renderTimeout", defaultValue = "0")
+	private long renderTimeout;
+
+	public Swagger2PlantUMLMojo() {
+		super();
+	}
+
+	@Override
+	public void execute() throws MojoExecutionException {
+		if (skip) {
+			getLog().info("Skipping swagger2puml");
+			return;
+		}
+
+		if (specs == null || specs.isEmpty()) {
+			throw new MojoExecutionException("No specs configured");
+		}
+
+		if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+			throw new MojoExecutionException("Unable to create " + outputDirectory);
+		}
+
+		List<String> specFiles = new ArrayList<String>();
+		for (String spec : specs) {
+			specFiles.add(resolve(spec.trim()));
+		}
+
+		List<File> targetDirectories = specFiles.size() == 1 ? Collections.singletonList(outputDirectory)
+				: BatchPipeline.getTargetDirectories(outputDirectory, specFiles);
+
+		final PlantUMLGenerator generator = newGenerator();
+		final String options = getOptions();
+		final StaleCheckManifest manifest;
+
+		try {
+			manifest = new StaleCheckManifest(manifestFile);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Unable to read " + manifestFile, e);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.min(specFiles.size(), parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors()));
+		Map<String, Future<Boolean>> results = new LinkedHashMap<String, Future<Boolean>>();
+
+		try {
+			for (int i = 0; i < specFiles.size(); i++) {
+				final String specFile = specFiles.get(i);
+				final File targetDirectory = targetDirectories.get(i);
+
+				results.put(specFile, executor.submit(() -> {
+					if (!force && manifest.isUpToDate(specFile, options, targetDirectory)) {
+						return false;
+					}
+
+					manifest.forget(specFile);
+					generator.transformSwagger2Puml(specFile, targetDirectory.getAbsolutePath(),
+							generateDefinitionModelOnly, includeCardinality, generateSvg);
+					manifest.record(specFile, options, targetDirectory);
+					return true;
+				}));
+			}
+
+			int transformed = 0;
+			List<String> failures = new ArrayList<String>();
+
+			for (Map.Entry<String, Future<Boolean>> result : results.entrySet()) {
+				try {
+					if (result.getValue().get()) {
+						transformed++;
+					} else {
+						getLog().debug(result.getKey() + " is up to date");
+					}
+				} catch (ExecutionException e) {
+					getLog().error("Unable to transform " + result.getKey(), e.getCause());
+					failures.add(result.getKey());
+				}
+			}
+
+			getLog().info("Transformed " + transformed + " of " + specFiles.size() + " specs, "
+					+ (specFiles.size() - transformed - failures.size()) + " up to date");
+
+			if (generator.getAdmissionController() != null) {
+				getLog().info(generator.getAdmissionController().toString());
+			}
+
+			if (!failures.isEmpty()) {
+				throw new MojoExecutionException("Unable to transform " + failures);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Interrupted while transforming " + specFiles, e);
+		} finally {
+			executor.shutdownNow();
+
+			try {
+				manifest.save();
+			} catch (IOException e) {
+				getLog().warn("Unable to write " + manifestFile, e);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return generator configured with the options of the plugin
+	 */
+	private PlantUMLGenerator newGenerator() {
+		PlantUMLGenerator generator = new PlantUMLGenerator();
+		generator.setGroupOperationsByTag(groupOperationsByTag);
+		generator.setRenderBudgetMillis(renderBudget);
+		generator.setShardOutput(shardOutput);
+		generator.setCompactMembers(compactMembers);
+		generator.setMaxEnumValues(maxEnumValues);
+		generator.setMaxMembers(maxMembers);
+		generator.setFlattenInheritance(flattenInheritance);
+		generator.setSimplifyRelations(simplifyRelations);
+		generator.setWriteMetrics(metrics);
+		generator.setLayoutPreset(LayoutPreset.parse(layoutPreset));
+		generator.setFormats(DiagramFormat.parse(formats));
+		generator.setProfile(profile);
+		generator.setMinifySvg(minifySvg);
+		generator.setSvgPrecision(svgPrecision);
+		generator.setSvgz(svgz);
+		generator.setTileSize(tileSize);
+		generator.setRenderTimeoutMillis(renderTimeout);
+
+		if (heapBudget > 0) {
+			generator.setAdmissionController(new AdmissionController(heapBudget * 1024 * 1024));
+		}
+
+		return generator;
+	}
+
+	/**
+	 *
+	 * @return options changing the outputs, a spec is transformed again when
+	 *         they differ from the last build
+	 */
+	private String getOptions() {
+		return new StringBuilder().append("generateDefinitionModelOnly=").append(generateDefinitionModelOnly)
+				.append(",includeCardinality=").append(includeCardinality).append(",generateSvg=").append(generateSvg)
+				.append(",groupOperationsByTag=").append(groupOperationsByTag).append(",shardOutput=")
+				.append(shardOutput).append(",maxEnumValues=").append(maxEnumValues).append(",maxMembers=")
+				.append(maxMembers).append(",flattenInheritance=").append(flattenInheritance)
+				.append(",simplifyRelations=").append(simplifyRelations).append(",metrics=").append(metrics)
+				.append(",layoutPreset=").append(layoutPreset).append(",formats=").append(formats)
+				.append(",minifySvg=").append(minifySvg).append(",svgPrecision=").append(svgPrecision)
+				.append(",svgz=").append(svgz).append(",tileSize=").append(tileSize).append(",renderBudget=")
+				.append(renderBudget).toString();
+	}
+
+	/**
+	 *
+	 * @param spec
+	 * @return the spec relative to the project directory
+	 */
+	private String resolve(String spec) {
+		if (spec.startsWith("jar:") || new File(spec.replaceFirst("!/.*$", "")).isAbsolute()) {
+			return spec;
+		}
+
+		return new File(basedir, spec).getAbsolutePath();
+	}
+}
@@ -0,0 +1,71 @@
+package com.kicksolutions.swagger.maven;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StaleCheckManifestTest {
+
+  private static final String OPTIONS = "svg=true|cardinality=true";
+
+  @TempDir
+  File workDir;
+
+  private File specFile;
+  private File referencedFile;
+  private File outputDir;
+  private File manifestFile;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    specFile = new File(workDir, "api/swagger.yaml");
+    referencedFile = new File(workDir, "api/common/error.yaml");
+    outputDir = new File(workDir, "out");
+    manifestFile = new File(outputDir, ".swagger2puml-manifest");
+
+    FileUtils.writeStringToFile(specFile, "swagger: '2.0'\ndefinitions:\n  Error:\n    $ref: 'common/error.yaml#/Error'\n", StandardCharsets.UTF_8);
+    FileUtils.writeStringToFile(referencedFile, "Error:\n  type: object\n", StandardCharsets.UTF_8);
+    FileUtils.writeStringToFile(new File(outputDir, "swagger.puml"), "@startuml\n@enduml\n", StandardCharsets.UTF_8);
+
+    StaleCheckManifest manifest = new StaleCheckManifest(manifestFile);
+    manifest.record(specFile.getPath(), OPTIONS, outputDir);
+    manifest.save();
+  }
+
+  @Test
+  @DisplayName("Unchanged spec, references, options and outputs are skipped")
+  void test_isUpToDate_unchanged() throws IOException {
+    assertTrue(new StaleCheckManifest(manifestFile).isUpToDate(specFile.getPath(), OPTIONS, outputDir), "Expect the spec to be skipped");
+  }
+
+  @Test
+  @DisplayName("A change to a file referenced through $ref rebuilds the spec")
+  void test_isUpToDate_changedReference() throws IOException {
+    FileUtils.writeStringToFile(referencedFile, "Error:\n  type: object\n  properties:\n    code:\n      type: integer\n", StandardCharsets.UTF_8);
+
+    assertFalse(new StaleCheckManifest(manifestFile).isUpToDate(specFile.getPath(), OPTIONS, outputDir), "Expect the spec to be rebuilt");
+  }
+
+  @Test
+  @DisplayName("A missing output rebuilds the spec")
+  void test_isUpToDate_missingOutput() throws IOException {
+    assertTrue(new File(outputDir, "swagger.puml").delete());
+
+    assertFalse(new StaleCheckManifest(manifestFile).isUpToDate(specFile.getPath(), OPTIONS, outputDir), "Expect the spec to be rebuilt");
+  }
+
+  @Test
+  @DisplayName("Changed options rebuild the spec")
+  void test_isUpToDate_changedOptions() throws IOException {
+    assertFalse(new StaleCheckManifest(manifestFile).isUpToDate(specFile.getPath(), OPTIONS.replace("svg=true", "svg=false"), outputDir), "Expect the spec to be rebuilt");
+  }
+}